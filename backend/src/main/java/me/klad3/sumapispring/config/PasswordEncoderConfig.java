@@ -0,0 +1,33 @@
+package me.klad3.sumapispring.config;
+
+import me.klad3.sumapispring.security.PepperedHmacPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+@Configuration
+public class PasswordEncoderConfig {
+
+    public static final String HMAC_SHA256_ID = "hmac-sha256";
+    public static final String BCRYPT_ID = "bcrypt";
+
+    @Bean
+    public PasswordEncoder apiSecretEncoder(@Value("${api.security.secret.pepper}") String pepper) {
+        return createApiSecretEncoder(pepper);
+    }
+
+    public static PasswordEncoder createApiSecretEncoder(String pepper) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(HMAC_SHA256_ID, Map.of(
+                HMAC_SHA256_ID, new PepperedHmacPasswordEncoder(pepper),
+                BCRYPT_ID, bcrypt
+        ));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
@@ -2,21 +2,27 @@ package me.klad3.sumapispring.controller;
 
 import lombok.RequiredArgsConstructor;
 import me.klad3.sumapispring.dto.ApiResponse;
+import me.klad3.sumapispring.dto.LoginCoursesResponse;
 import me.klad3.sumapispring.dto.LoginRequest;
 import me.klad3.sumapispring.dto.LoginResponse;
+import me.klad3.sumapispring.security.ApiClientAuthentication;
 import me.klad3.sumapispring.service.AuthService;
+import me.klad3.sumapispring.service.CourseService;
+import me.klad3.sumapispring.util.Deadline;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/user")
@@ -24,15 +30,49 @@ import java.util.Objects;
 public class AuthController {
 
     private final AuthService authService;
+    private final CourseService courseService;
+    private final UpstreamTimeouts upstreamTimeouts;
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<LoginResponse>> login(@Validated @RequestBody LoginRequest loginRequest) throws IOException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<LoginResponse>>> login(@Validated @RequestBody LoginRequest loginRequest,
+                                                                              @RequestHeader(value = UpstreamTimeouts.REQUEST_TIMEOUT_HEADER, required = false) String requestTimeout,
+                                                                              ApiClientAuthentication authentication) {
         String username = loginRequest.getUser();
         String password = loginRequest.getPassword();
 
-        LoginResponse loginResponse = authService.login(username, password);
+        return authService.login(client(authentication), username, password, upstreamTimeouts.deadline(requestTimeout)).thenApply(this::toResponse);
+    }
+
+    @PostMapping("/login/courses")
+    public CompletableFuture<ResponseEntity<ApiResponse<LoginCoursesResponse>>> loginWithCourses(@Validated @RequestBody LoginRequest loginRequest,
+                                                                                                @RequestHeader(value = UpstreamTimeouts.REQUEST_TIMEOUT_HEADER, required = false) String requestTimeout,
+                                                                                                ApiClientAuthentication authentication) {
+        Deadline deadline = upstreamTimeouts.deadline(requestTimeout);
 
-        List<String> cookies = loginResponse.getSessionCookies();
+        return authService.openSession(client(authentication), loginRequest.getUser(), loginRequest.getPassword(), deadline)
+                .thenCompose(cookieJar -> courseService.getCourses(cookieJar, deadline)
+                        .thenApply(courses -> {
+                            List<String> sessionCookies = cookieJar.getCookies();
+                            LoginCoursesResponse data = new LoginCoursesResponse("Login successful", sessionCookies, courses);
+                            return ResponseEntity.ok()
+                                    .headers(sessionCookieHeaders(sessionCookies))
+                                    .body(ApiResponse.success("Login and courses fetched successfully", data));
+                        }));
+    }
+
+    private static String client(ApiClientAuthentication authentication) {
+        return authentication == null ? null : (String) authentication.getPrincipal();
+    }
+
+    private ResponseEntity<ApiResponse<LoginResponse>> toResponse(LoginResponse loginResponse) {
+        ApiResponse<LoginResponse> response = ApiResponse.success("Login successful", loginResponse);
+
+        return ResponseEntity.ok()
+                .headers(sessionCookieHeaders(loginResponse.getSessionCookies()))
+                .body(response);
+    }
+
+    private HttpHeaders sessionCookieHeaders(List<String> cookies) {
         List<ResponseCookie> responseCookies = cookies.stream()
                 .map(cookieStr -> {
                     String[] parts = cookieStr.split(";", 2);
@@ -52,11 +92,6 @@ public class AuthController {
 
         HttpHeaders headers = new HttpHeaders();
         responseCookies.forEach(cookie -> headers.add(HttpHeaders.SET_COOKIE, cookie.toString()));
-
-        ApiResponse<LoginResponse> response = ApiResponse.success("Login successful", loginResponse);
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(response);
+        return headers;
     }
 }
\ No newline at end of file
@@ -4,12 +4,14 @@ import lombok.RequiredArgsConstructor;
 import me.klad3.sumapispring.dto.ApiResponse;
 import me.klad3.sumapispring.dto.CourseResponse;
 import me.klad3.sumapispring.service.CourseService;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/courses")
@@ -17,18 +19,20 @@ import java.util.List;
 public class CourseController {
 
     private final CourseService courseService;
+    private final UpstreamTimeouts upstreamTimeouts;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CourseResponse>>> getCourses(HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<List<CourseResponse>>>> getCourses(HttpServletRequest request,
+                                                                                          @RequestHeader(value = UpstreamTimeouts.REQUEST_TIMEOUT_HEADER, required = false) String requestTimeout) {
         String cookies = request.getHeader("Cookie");
 
         if (cookies == null || cookies.isEmpty()) {
-            return new ResponseEntity<>(ApiResponse.error("Missing cookies", null), HttpStatus.UNAUTHORIZED);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(ApiResponse.error("Missing cookies", null), HttpStatus.UNAUTHORIZED));
         }
 
-        List<CourseResponse> courses = courseService.getCourses(cookies);
-
-        ApiResponse<List<CourseResponse>> apiResponse = ApiResponse.success("Courses fetched successfully", courses);
-        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        return courseService.getCourses(cookies, upstreamTimeouts.deadline(requestTimeout)).thenApply(courses -> {
+            ApiResponse<List<CourseResponse>> apiResponse = ApiResponse.success("Courses fetched successfully", courses);
+            return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        });
     }
 }
@@ -0,0 +1,32 @@
+package me.klad3.sumapispring.controller;
+
+import lombok.RequiredArgsConstructor;
+import me.klad3.sumapispring.dto.ApiResponse;
+import me.klad3.sumapispring.dto.TokenResponse;
+import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiClientAuthentication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/user")
+@RequiredArgsConstructor
+public class TokenController {
+
+    private final AccessTokenService accessTokenService;
+
+    @PostMapping("/token")
+    public ResponseEntity<ApiResponse<TokenResponse>> token(ApiClientAuthentication authentication) {
+        if (authentication == null) {
+            throw new ApiKeyUnauthorizedException("Missing API Key or Secret");
+        }
+
+        AccessTokenService.AccessToken accessToken = accessTokenService.issue(authentication.getUserId(), (String) authentication.getPrincipal());
+        TokenResponse tokenResponse = new TokenResponse(accessToken.value(), "Bearer", accessTokenService.getTtlSeconds());
+
+        return ResponseEntity.ok(ApiResponse.success("Token issued successfully", tokenResponse));
+    }
+}
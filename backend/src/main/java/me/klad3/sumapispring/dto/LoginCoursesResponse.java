@@ -0,0 +1,18 @@
+package me.klad3.sumapispring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class LoginCoursesResponse {
+    private String message;
+    private List<String> sessionCookies;
+    private List<CourseResponse> courses;
+}
@@ -0,0 +1,11 @@
+package me.klad3.sumapispring.exception;
+
+public class DeadlineExceededException extends ExternalApiException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,6 +2,7 @@ package me.klad3.sumapispring.exception;
 
 import me.klad3.sumapispring.dto.ApiResponse;
 import me.klad3.sumapispring.dto.ErrorResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,12 +24,17 @@ public class GlobalExceptionHandler {
     private static final String NOT_FOUND = "Not Found";
     private static final String CONFLICT = "Conflict";
     private static final String INTERNAL_SERVER_ERROR = "Internal Server Error";
+    private static final String SERVICE_UNAVAILABLE = "Service Unavailable";
+    private static final String TOO_MANY_REQUESTS = "Too Many Requests";
+    private static final String GATEWAY_TIMEOUT = "Gateway Timeout";
+    private static final String PAYLOAD_TOO_LARGE = "Payload Too Large";
     private static final String VALIDATION_FAILED = "Validation failed";
     private static final String AUTHENTICATION_FAILED = "Authentication failed";
     private static final String RESOURCE_NOT_FOUND = "Resource not found";
     private static final String MALFORMED_JSON_REQUEST = "Malformed JSON Request";
     private static final String EXTERNAL_API_ERROR = "External API Error";
     private static final String INTERNAL_ERROR_MESSAGE = "An unexpected error occurred";
+    private static final String UPSTREAM_TIMEOUT_MESSAGE = "Upstream request timed out";
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -81,6 +88,13 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handlePayloadTooLarge(PayloadTooLargeException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), PAYLOAD_TOO_LARGE);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(PAYLOAD_TOO_LARGE, error);
+        return new ResponseEntity<>(response, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
     @ExceptionHandler(ResourceAlreadyExistsException.class)
     public ResponseEntity<ApiResponse<ErrorResponse>> handleResourceAlreadyExists(ResourceAlreadyExistsException ex) {
         ErrorResponse error = new ErrorResponse(ex.getMessage(), CONFLICT);
@@ -95,6 +109,47 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handleServiceUnavailable(ServiceUnavailableException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), SERVICE_UNAVAILABLE);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(SERVICE_UNAVAILABLE, error);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handleDeadlineExceeded(DeadlineExceededException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), EXTERNAL_API_ERROR);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(GATEWAY_TIMEOUT, error);
+        return new ResponseEntity<>(response, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handleUpstreamUnavailable(UpstreamUnavailableException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), EXTERNAL_API_ERROR);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(SERVICE_UNAVAILABLE, error);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handleAsyncRequestTimeout(AsyncRequestTimeoutException ex) {
+        ErrorResponse error = new ErrorResponse(UPSTREAM_TIMEOUT_MESSAGE, SERVICE_UNAVAILABLE);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(SERVICE_UNAVAILABLE, error);
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ApiResponse<ErrorResponse>> handleRateLimitExceeded(RateLimitExceededException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), TOO_MANY_REQUESTS);
+        ApiResponse<ErrorResponse> response = ApiResponse.error(TOO_MANY_REQUESTS, error);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<ErrorResponse>> handleAllExceptions(Exception ex) {
         ErrorResponse error = new ErrorResponse(INTERNAL_ERROR_MESSAGE, ex.getMessage());
@@ -0,0 +1,7 @@
+package me.klad3.sumapispring.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
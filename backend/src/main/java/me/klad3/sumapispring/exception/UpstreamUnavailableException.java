@@ -0,0 +1,14 @@
+package me.klad3.sumapispring.exception;
+
+import lombok.Getter;
+
+@Getter
+public class UpstreamUnavailableException extends ExternalApiException {
+
+    private final long retryAfterSeconds;
+
+    public UpstreamUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,27 @@
+package me.klad3.sumapispring.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "rate_limit_buckets", indexes = @Index(name = "idx_rate_limit_buckets_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitBucket {
+
+    @Id
+    @Column(name = "id", length = 200)
+    private String id;
+
+    @Column(name = "state", nullable = false, length = 2048)
+    private byte[] state;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
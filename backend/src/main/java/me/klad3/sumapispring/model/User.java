@@ -5,11 +5,13 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import me.klad3.sumapispring.security.ApiCredentialChangeListener;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(ApiCredentialChangeListener.class)
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "username"),
         @UniqueConstraint(columnNames = "email"),
@@ -41,6 +43,9 @@ public class User {
     @Column(name = "api_secret", nullable = false, length = 100)
     private String apiSecretHash;
 
+    @Column(name = "signing_key", length = 100)
+    private String signingKey;
+
     @Column(name = "student_name", nullable = false, length = 100)
     private String studentName;
 
@@ -50,12 +55,20 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    public void setApiSecret(String apiSecret) {
-        this.apiSecretHash = new BCryptPasswordEncoder().encode(apiSecret);
+    public void setApiSecret(String apiSecret, PasswordEncoder encoder) {
+        this.apiSecretHash = encoder.encode(apiSecret);
+    }
+
+    public boolean verifyApiSecret(String apiSecret, PasswordEncoder encoder) {
+        return encoder.matches(apiSecret, this.apiSecretHash);
+    }
+
+    public boolean isApiSecretUpgradeRequired(PasswordEncoder encoder) {
+        return encoder.upgradeEncoding(this.apiSecretHash);
     }
 
-    public boolean verifyApiSecret(String apiSecret) {
-        return new BCryptPasswordEncoder().matches(apiSecret, this.apiSecretHash);
+    public boolean isCredentialUpgradeRequired(PasswordEncoder encoder) {
+        return isApiSecretUpgradeRequired(encoder) || this.signingKey == null;
     }
 
     @PrePersist
@@ -0,0 +1,15 @@
+package me.klad3.sumapispring.repository;
+
+import me.klad3.sumapispring.model.User;
+
+public record ApiCredentialEntry(Long id, String apiKey, String apiSecretHash, String signingKey) {
+
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .apiKey(apiKey)
+                .apiSecretHash(apiSecretHash)
+                .signingKey(signingKey)
+                .build();
+    }
+}
@@ -0,0 +1,4 @@
+package me.klad3.sumapispring.repository;
+
+public record ApiKeyEntry(Long id, String apiKey) {
+}
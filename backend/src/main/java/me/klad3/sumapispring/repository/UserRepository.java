@@ -1,10 +1,18 @@
 package me.klad3.sumapispring.repository;
 
 import me.klad3.sumapispring.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends ListCrudRepository<User, Long> {
@@ -12,4 +20,18 @@ public interface UserRepository extends ListCrudRepository<User, Long> {
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByInstitutionId(String institutionId);
+    boolean existsByApiKey(String apiKey);
+
+    @Query("select new me.klad3.sumapispring.repository.ApiKeyEntry(u.id, u.apiKey) from User u where u.id > :afterId order by u.id")
+    List<ApiKeyEntry> findApiKeysAfter(@Param("afterId") Long afterId);
+
+    @Query("select new me.klad3.sumapispring.repository.ApiKeyEntry(u.id, u.apiKey) from User u where u.updatedAt >= :since order by u.id")
+    List<ApiKeyEntry> findApiKeysUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("select new me.klad3.sumapispring.repository.ApiCredentialEntry(u.id, u.apiKey, u.apiSecretHash, u.signingKey) from User u where u.apiKey = :apiKey")
+    Optional<ApiCredentialEntry> findCredentialsByApiKey(@Param("apiKey") String apiKey);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new me.klad3.sumapispring.repository.ApiCredentialEntry(u.id, u.apiKey, u.apiSecretHash, u.signingKey) from User u")
+    Stream<ApiCredentialEntry> streamApiCredentials();
 }
@@ -0,0 +1,95 @@
+package me.klad3.sumapispring.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+@Component
+public class AccessTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "v1";
+    private static final int MIN_SIGNING_KEY_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec signingKey;
+    private final long ttlSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public AccessTokenService(@Value("${api.security.token.signing-key}") String signingKey,
+                              @Value("${api.security.token.ttl-seconds:900}") long ttlSeconds) {
+        this(signingKey, ttlSeconds, Clock.systemUTC());
+    }
+
+    AccessTokenService(String signingKey, long ttlSeconds, Clock clock) {
+        if (signingKey == null || signingKey.length() < MIN_SIGNING_KEY_LENGTH) {
+            throw new IllegalArgumentException("Access token signing key must be at least " + MIN_SIGNING_KEY_LENGTH + " characters long");
+        }
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    public AccessToken issue(Long userId, String apiKey) {
+        Instant expiresAt = clock.instant().plusSeconds(ttlSeconds);
+        String payload = String.join(":", VERSION, String.valueOf(userId), apiKey, String.valueOf(expiresAt.getEpochSecond()));
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        String token = encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+        return new AccessToken(token, userId, apiKey, expiresAt);
+    }
+
+    public Optional<AccessToken> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0 || separator != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        String encodedPayload = token.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return Optional.empty();
+            }
+            String[] claims = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split(":");
+            if (claims.length != 4 || !VERSION.equals(claims[0])) {
+                return Optional.empty();
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(claims[3]));
+            if (!clock.instant().isBefore(expiresAt)) {
+                return Optional.empty();
+            }
+            return Optional.of(new AccessToken(token, Long.valueOf(claims[1]), claims[2], expiresAt));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    public record AccessToken(String value, Long userId, String apiKey, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,33 @@
+package me.klad3.sumapispring.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+
+public class ApiClientAuthentication extends AbstractAuthenticationToken {
+
+    private final Long userId;
+    private final String apiKey;
+
+    public ApiClientAuthentication(Long userId, String apiKey) {
+        super(Collections.singletonList(new SimpleGrantedAuthority("ROLE_API_CLIENT")));
+        this.userId = userId;
+        this.apiKey = apiKey;
+        setAuthenticated(true);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return apiKey;
+    }
+}
@@ -0,0 +1,80 @@
+package me.klad3.sumapispring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.common.lang.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+@Component
+public class ApiCredentialCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "api.credentials";
+
+    private final Cache<String, VerifiedCredential> cache;
+
+    public ApiCredentialCache(@Value("${api.security.credential-cache.max-size:10000}") long maxSize,
+                              @Value("${api.security.credential-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Long> findVerifiedUserId(String apiKey, String apiSecret) {
+        VerifiedCredential credential = cache.getIfPresent(apiKey);
+        if (credential == null || !MessageDigest.isEqual(credential.secretDigest(), digest(apiSecret))) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(credential.userId());
+    }
+
+    public void put(Long userId, String apiKey, String apiSecret) {
+        cache.put(apiKey, new VerifiedCredential(userId, digest(apiSecret)));
+    }
+
+    public void invalidate(String apiKey) {
+        cache.invalidate(apiKey);
+    }
+
+    public void invalidateUser(Long userId) {
+        cache.asMap().values().removeIf(credential -> Objects.equals(credential.userId(), userId));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCredentialsChanged(ApiCredentialsChangedEvent event) {
+        invalidateUser(event.userId());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private static byte[] digest(String apiSecret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(apiSecret.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedCredential(Long userId, byte[] secretDigest) {
+    }
+}
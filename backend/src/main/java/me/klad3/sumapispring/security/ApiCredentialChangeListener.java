@@ -0,0 +1,27 @@
+package me.klad3.sumapispring.security;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import me.klad3.sumapispring.model.User;
+import org.springframework.context.ApplicationEventPublisher;
+
+public class ApiCredentialChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ApiCredentialChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onCredentialsSaved(User user) {
+        eventPublisher.publishEvent(ApiCredentialsChangedEvent.saved(user));
+    }
+
+    @PostRemove
+    public void onCredentialsRemoved(User user) {
+        eventPublisher.publishEvent(ApiCredentialsChangedEvent.removed(user));
+    }
+}
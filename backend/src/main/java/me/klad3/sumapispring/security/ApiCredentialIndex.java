@@ -0,0 +1,178 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.ApiCredentialEntry;
+import me.klad3.sumapispring.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+public class ApiCredentialIndex implements MeterBinder {
+
+    private static final String METRIC_PREFIX = "api.credentials.index";
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Object lock = new Object();
+
+    private volatile Map<String, ApiCredentialEntry> byApiKey;
+    private Map<Long, String> apiKeyById;
+    private List<ApiCredentialEntry> pendingEntries;
+    private List<ApiCredentialsChangedEvent> pendingChanges;
+    private volatile Counter driftCounter;
+    private volatile Timer reconcileTimer;
+
+    public ApiCredentialIndex(UserRepository userRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${api.security.credential-index.enabled:false}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return byApiKey != null;
+    }
+
+    public Optional<User> find(String apiKey) {
+        Map<String, ApiCredentialEntry> current = byApiKey;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.get(apiKey)).map(ApiCredentialEntry::toUser);
+    }
+
+    public void put(ApiCredentialEntry entry) {
+        synchronized (lock) {
+            if (byApiKey != null) {
+                apply(byApiKey, apiKeyById, entry);
+            }
+            if (pendingEntries != null) {
+                pendingEntries.add(entry);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCredentialsChanged(ApiCredentialsChangedEvent event) {
+        synchronized (lock) {
+            if (byApiKey != null) {
+                apply(byApiKey, apiKeyById, event);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${api.security.credential-index.reconcile-interval-ms:60000}",
+            fixedDelayString = "${api.security.credential-index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            pendingEntries = new ArrayList<>();
+            pendingChanges = new ArrayList<>();
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            Map<String, ApiCredentialEntry> loadedByApiKey = new ConcurrentHashMap<>();
+            Map<Long, String> loadedApiKeyById = new ConcurrentHashMap<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ApiCredentialEntry> entries = userRepository.streamApiCredentials()) {
+                    entries.forEach(entry -> apply(loadedByApiKey, loadedApiKeyById, entry));
+                }
+            });
+            synchronized (lock) {
+                pendingEntries.forEach(entry -> apply(loadedByApiKey, loadedApiKeyById, entry));
+                pendingChanges.forEach(event -> apply(loadedByApiKey, loadedApiKeyById, event));
+                long drift = byApiKey == null ? 0 : countDrift(byApiKey, loadedByApiKey);
+                byApiKey = loadedByApiKey;
+                apiKeyById = loadedApiKeyById;
+                Counter counter = driftCounter;
+                if (counter != null) {
+                    counter.increment(drift);
+                }
+                log.info("Índice de credenciales reconciliado: {} credenciales, {} diferencias", loadedByApiKey.size(), drift);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo reconciliar el índice de credenciales: {}", e.getMessage());
+        } finally {
+            synchronized (lock) {
+                pendingEntries = null;
+                pendingChanges = null;
+            }
+            Timer timer = reconcileTimer;
+            if (timer != null) {
+                sample.stop(timer);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        driftCounter = Counter.builder(METRIC_PREFIX + ".drift")
+                .description("Credenciales corregidas durante la reconciliación")
+                .register(registry);
+        reconcileTimer = Timer.builder(METRIC_PREFIX + ".reconcile")
+                .description("Duración de la reconciliación del índice de credenciales")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, index -> index.byApiKey == null ? 0 : index.byApiKey.size())
+                .description("Credenciales cargadas en memoria")
+                .register(registry);
+    }
+
+    private static void apply(Map<String, ApiCredentialEntry> byApiKey, Map<Long, String> apiKeyById, ApiCredentialEntry entry) {
+        String previousApiKey = apiKeyById.put(entry.id(), entry.apiKey());
+        if (previousApiKey != null && !previousApiKey.equals(entry.apiKey())) {
+            byApiKey.remove(previousApiKey);
+        }
+        byApiKey.put(entry.apiKey(), entry);
+    }
+
+    private static void apply(Map<String, ApiCredentialEntry> byApiKey, Map<Long, String> apiKeyById, ApiCredentialsChangedEvent event) {
+        if (event.removed()) {
+            String apiKey = apiKeyById.remove(event.userId());
+            if (apiKey != null) {
+                byApiKey.remove(apiKey);
+            }
+            return;
+        }
+        apply(byApiKey, apiKeyById, new ApiCredentialEntry(event.userId(), event.apiKey(), event.apiSecretHash(), event.signingKey()));
+    }
+
+    private static long countDrift(Map<String, ApiCredentialEntry> current, Map<String, ApiCredentialEntry> loaded) {
+        long changed = loaded.entrySet().stream()
+                .filter(entry -> !Objects.equals(current.get(entry.getKey()), entry.getValue()))
+                .count();
+        long removed = current.keySet().stream().filter(apiKey -> !loaded.containsKey(apiKey)).count();
+        return changed + removed;
+    }
+}
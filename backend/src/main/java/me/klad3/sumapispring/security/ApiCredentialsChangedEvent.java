@@ -0,0 +1,14 @@
+package me.klad3.sumapispring.security;
+
+import me.klad3.sumapispring.model.User;
+
+public record ApiCredentialsChangedEvent(Long userId, String apiKey, String apiSecretHash, String signingKey, boolean removed) {
+
+    public static ApiCredentialsChangedEvent saved(User user) {
+        return new ApiCredentialsChangedEvent(user.getId(), user.getApiKey(), user.getApiSecretHash(), user.getSigningKey(), false);
+    }
+
+    public static ApiCredentialsChangedEvent removed(User user) {
+        return new ApiCredentialsChangedEvent(user.getId(), user.getApiKey(), null, null, true);
+    }
+}
@@ -6,28 +6,44 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.exception.PayloadTooLargeException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import me.klad3.sumapispring.exception.ServiceUnavailableException;
 import me.klad3.sumapispring.model.User;
 import me.klad3.sumapispring.service.UserService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.Optional;
 
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOKEN_PATH = "/user/token";
+
     private final UserService apiClientService;
 
+    private final ApiCredentialCache credentialCache;
+
+    private final PasswordEncoder apiSecretEncoder;
+
+    private final AccessTokenService accessTokenService;
+
+    private final RequestSignatureVerifier requestSignatureVerifier;
+
+    private final CredentialVerificationExecutor credentialVerificationExecutor;
+
+    private final KnownApiKeys knownApiKeys;
+
     @Qualifier("handlerExceptionResolver") @NonNull
     private final HandlerExceptionResolver resolver;
 
@@ -37,8 +53,23 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     @Value("${api.security.secret.header.name:API-Secret}")
     private String apiSecretHeaderName;
 
-    public ApiKeyAuthFilter(UserService apiClientService, @Qualifier("handlerExceptionResolver") @NonNull HandlerExceptionResolver resolver) {
+    @Value("${api.security.signature.header.name:API-Signature}")
+    private String signatureHeaderName;
+
+    @Value("${api.security.signature.max-body-bytes:1048576}")
+    private int maxSignedBodyBytes;
+
+    public ApiKeyAuthFilter(UserService apiClientService, ApiCredentialCache credentialCache, PasswordEncoder apiSecretEncoder,
+                            AccessTokenService accessTokenService, RequestSignatureVerifier requestSignatureVerifier,
+                            CredentialVerificationExecutor credentialVerificationExecutor, KnownApiKeys knownApiKeys,
+                            @Qualifier("handlerExceptionResolver") @NonNull HandlerExceptionResolver resolver) {
         this.apiClientService = apiClientService;
+        this.credentialCache = credentialCache;
+        this.apiSecretEncoder = apiSecretEncoder;
+        this.accessTokenService = accessTokenService;
+        this.requestSignatureVerifier = requestSignatureVerifier;
+        this.credentialVerificationExecutor = credentialVerificationExecutor;
+        this.knownApiKeys = knownApiKeys;
         this.resolver = resolver;
     }
 
@@ -54,6 +85,25 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
                                     @NonNull  FilterChain filterChain) throws ServletException, IOException {
 
         try {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+                if (TOKEN_PATH.equals(request.getRequestURI())) {
+                    throw new ApiKeyUnauthorizedException("Access tokens cannot be exchanged for new tokens");
+                }
+                AccessTokenService.AccessToken accessToken = accessTokenService.verify(authorization.substring(BEARER_PREFIX.length()))
+                        .orElseThrow(() -> new ApiKeyUnauthorizedException("Invalid or expired access token"));
+                authenticate(accessToken.userId(), accessToken.apiKey());
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            if (StringUtils.hasText(request.getHeader(signatureHeaderName))) {
+                CachedBodyHttpServletRequest signedRequest = new CachedBodyHttpServletRequest(request, maxSignedBodyBytes);
+                SecurityContextHolder.getContext().setAuthentication(requestSignatureVerifier.verify(signedRequest));
+                filterChain.doFilter(signedRequest, response);
+                return;
+            }
+
             String apiKey = request.getHeader(apiKeyHeaderName);
             String apiSecret = request.getHeader(apiSecretHeaderName);
 
@@ -61,25 +111,39 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
                 throw new ApiKeyUnauthorizedException("Missing API Key or Secret");
             }
 
+            Optional<Long> cachedUserId = credentialCache.findVerifiedUserId(apiKey, apiSecret);
+            if (cachedUserId.isPresent()) {
+                authenticate(cachedUserId.get(), apiKey);
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            if (!knownApiKeys.mightContain(apiKey)) {
+                throw new ApiKeyUnauthorizedException("Invalid API Key or Secret");
+            }
+
             Optional<User> optionalApiClient = apiClientService.findByApiKey(apiKey);
 
             if (optionalApiClient.isPresent()) {
                 User apiClient = optionalApiClient.get();
-                if (apiClient.verifyApiSecret(apiSecret)) {
-                    Authentication auth = new UsernamePasswordAuthenticationToken(
-                            apiClient.getApiKey(),
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_API_CLIENT"))
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(auth);
+                if (credentialVerificationExecutor.verify(apiClient, apiSecret)) {
+                    if (apiClient.isCredentialUpgradeRequired(apiSecretEncoder)) {
+                        apiClientService.upgradeCredentials(apiClient, apiSecret);
+                    }
+                    credentialCache.put(apiClient.getId(), apiClient.getApiKey(), apiSecret);
+                    authenticate(apiClient.getId(), apiClient.getApiKey());
                     filterChain.doFilter(request, response);
                     return;
                 }
             }
 
             throw new ApiKeyUnauthorizedException("Invalid API Key or Secret");
-        } catch (ApiKeyUnauthorizedException e) {
+        } catch (ApiKeyUnauthorizedException | ServiceUnavailableException | PayloadTooLargeException | RateLimitExceededException e) {
             resolver.resolveException(request, response, null, e);
         }
         }
+
+    private void authenticate(Long userId, String apiKey) {
+        SecurityContextHolder.getContext().setAuthentication(new ApiClientAuthentication(userId, apiKey));
+    }
 }
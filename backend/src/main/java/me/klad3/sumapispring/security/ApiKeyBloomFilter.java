@@ -0,0 +1,89 @@
+package me.klad3.sumapispring.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class ApiKeyBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+    private static final int SEED_LENGTH = 16;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final byte[] seed;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private ApiKeyBloomFilter(long bitCount, int hashFunctions, byte[] seed) {
+        this.words = new AtomicLongArray(Math.toIntExact(bitCount / Long.SIZE));
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+        this.seed = seed;
+    }
+
+    static ApiKeyBloomFilter create(long expectedInsertions, double falsePositiveRate, long maxBytes, SecureRandom random) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || maxBytes < Long.BYTES) {
+            throw new IllegalArgumentException("Invalid API key filter sizing");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long bits = Math.min(optimalBits, maxBytes * Byte.SIZE);
+        bits = Math.max(Long.SIZE, (bits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * LN2));
+        byte[] seed = new byte[SEED_LENGTH];
+        random.nextBytes(seed);
+        return new ApiKeyBloomFilter(bits, hashes, seed);
+    }
+
+    void put(String apiKey) {
+        long[] hashes = hash(apiKey);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String apiKey) {
+        long[] hashes = hash(apiKey);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashFunctions * insertions.get() / bitCount), hashFunctions);
+    }
+
+    private long[] hash(String apiKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(seed);
+            ByteBuffer buffer = ByteBuffer.wrap(digest.digest(apiKey.getBytes(StandardCharsets.UTF_8)));
+            return new long[]{buffer.getLong(), buffer.getLong() | 1L};
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
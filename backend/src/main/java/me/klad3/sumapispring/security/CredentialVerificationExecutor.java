@@ -0,0 +1,129 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.exception.ServiceUnavailableException;
+import me.klad3.sumapispring.model.User;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class CredentialVerificationExecutor implements MeterBinder, DisposableBean {
+
+    private static final String METRIC_PREFIX = "api.credentials.verification";
+    private static final String OVERLOADED_MESSAGE = "Credential verification capacity exceeded, retry later";
+
+    private final PasswordEncoder apiSecretEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+
+    private volatile Timer waitTimer;
+    private volatile Counter queueFullRejections;
+    private volatile Counter timeoutRejections;
+
+    public CredentialVerificationExecutor(PasswordEncoder apiSecretEncoder,
+                                          @Value("${api.security.verification.pool-size:4}") int poolSize,
+                                          @Value("${api.security.verification.queue-capacity:64}") int queueCapacity,
+                                          @Value("${api.security.verification.timeout-millis:2000}") long timeoutMillis,
+                                          @Value("${api.security.verification.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.apiSecretEncoder = apiSecretEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verifier-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean verify(User apiClient, String apiSecret) {
+        long submittedAt = System.nanoTime();
+        Future<Boolean> verification;
+        try {
+            verification = executor.submit(() -> {
+                Timer timer = waitTimer;
+                if (timer != null) {
+                    timer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                }
+                return apiClient.verifyApiSecret(apiSecret, apiSecretEncoder);
+            });
+        } catch (RejectedExecutionException e) {
+            reject(queueFullRejections);
+            log.warn("Cola de verificación de credenciales llena ({} en espera)", executor.getQueue().size());
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE, retryAfterSeconds);
+        }
+
+        try {
+            return verification.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            verification.cancel(true);
+            reject(timeoutRejections);
+            log.warn("Tiempo de espera agotado al verificar credenciales tras {} ms", timeoutMillis);
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE, retryAfterSeconds);
+        } catch (InterruptedException e) {
+            verification.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Credential verification failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        waitTimer = Timer.builder(METRIC_PREFIX + ".wait")
+                .description("Tiempo en cola antes de verificar credenciales")
+                .register(registry);
+        queueFullRejections = rejectedCounter(registry, "queue-full");
+        timeoutRejections = rejectedCounter(registry, "timeout");
+        Gauge.builder(METRIC_PREFIX + ".queue.size", executor, pool -> pool.getQueue().size())
+                .description("Verificaciones de credenciales en espera")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Verificaciones de credenciales en curso")
+                .register(registry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Verificaciones rechazadas por cola llena o por tiempo de espera agotado")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static void reject(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,153 @@
+package me.klad3.sumapispring.security;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "api.rate-limit.mode", havingValue = "distributed")
+public class JdbcBucketProxyManager extends AbstractCompareAndSwapBasedProxyManager<String> {
+
+    private static final String SELECT_STATE = "SELECT state, version FROM rate_limit_buckets WHERE id = ?";
+    private static final String INSERT_STATE = "INSERT INTO rate_limit_buckets (id, state, version, expires_at) VALUES (?, ?, 0, ?)";
+    private static final String UPDATE_STATE = "UPDATE rate_limit_buckets SET state = ?, version = version + 1, expires_at = ? WHERE id = ? AND version = ?";
+    private static final String DELETE_STATE = "DELETE FROM rate_limit_buckets WHERE id = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM rate_limit_buckets WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Optimization optimization;
+    private final Duration stateTtl;
+    private final Clock clock;
+
+    public JdbcBucketProxyManager(DataSource dataSource,
+                                  @Value("${api.rate-limit.distributed.max-unsynchronized-tokens:5}") long maxUnsynchronizedTokens,
+                                  @Value("${api.rate-limit.distributed.max-unsynchronized-millis:500}") long maxUnsynchronizedMillis,
+                                  @Value("${api.rate-limit.distributed.state-ttl-seconds:3600}") long stateTtlSeconds) {
+        this(new JdbcTemplate(dataSource), maxUnsynchronizedTokens > 0
+                        ? Optimizations.delaying(new DelayParameters(maxUnsynchronizedTokens, Duration.ofMillis(maxUnsynchronizedMillis)))
+                        : Optimization.NONE_OPTIMIZED,
+                Duration.ofSeconds(stateTtlSeconds), Clock.systemUTC());
+    }
+
+    JdbcBucketProxyManager(JdbcTemplate jdbcTemplate, Optimization optimization, Duration stateTtl, Clock clock) {
+        super(ClientSideConfig.getDefault());
+        this.jdbcTemplate = jdbcTemplate;
+        this.optimization = optimization;
+        this.stateTtl = stateTtl;
+        this.clock = clock;
+    }
+
+    public Bucket bucket(String key, RateLimitPolicy policy) {
+        return builder()
+                .withOptimization(optimization)
+                .build(key, policy::configuration);
+    }
+
+    @Scheduled(initialDelayString = "${api.rate-limit.distributed.cleanup-interval-ms:300000}",
+            fixedDelayString = "${api.rate-limit.distributed.cleanup-interval-ms:300000}")
+    public void removeExpired() {
+        int removed = jdbcTemplate.update(DELETE_EXPIRED, clock.millis());
+        if (removed > 0) {
+            log.debug("Eliminados {} cubos de límite de tasa expirados", removed);
+        }
+    }
+
+    @Override
+    protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+        return new CompareAndSwapOperation() {
+            private Long version;
+
+            @Override
+            public Optional<byte[]> getStateData() {
+                List<StoredState> states = jdbcTemplate.query(SELECT_STATE,
+                        (rs, rowNum) -> new StoredState(rs.getBytes("state"), rs.getLong("version")), key);
+                if (states.isEmpty()) {
+                    return Optional.empty();
+                }
+                version = states.get(0).version();
+                return Optional.of(states.get(0).state());
+            }
+
+            @Override
+            public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState) {
+                long expiresAt = clock.millis() + stateTtl.toMillis();
+                if (version == null) {
+                    try {
+                        return jdbcTemplate.update(INSERT_STATE, key, newData, expiresAt) == 1;
+                    } catch (DuplicateKeyException e) {
+                        return false;
+                    }
+                }
+                return jdbcTemplate.update(UPDATE_STATE, newData, expiresAt, key, version) == 1;
+            }
+        };
+    }
+
+    @Override
+    protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+        CompareAndSwapOperation operation = beginCompareAndSwapOperation(key);
+        return new AsyncCompareAndSwapOperation() {
+            @Override
+            public CompletableFuture<Optional<byte[]>> getStateData() {
+                try {
+                    return CompletableFuture.completedFuture(operation.getStateData());
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+
+            @Override
+            public CompletableFuture<Boolean> compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState) {
+                try {
+                    return CompletableFuture.completedFuture(operation.compareAndSwap(originalData, newData, newState));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        jdbcTemplate.update(DELETE_STATE, key);
+    }
+
+    @Override
+    protected CompletableFuture<Void> removeAsync(String key) {
+        try {
+            removeProxy(key);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public boolean isAsyncModeSupported() {
+        return true;
+    }
+
+    private record StoredState(byte[] state, long version) {
+    }
+}
@@ -0,0 +1,206 @@
+package me.klad3.sumapispring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.repository.ApiKeyEntry;
+import me.klad3.sumapispring.repository.UserRepository;
+import me.klad3.sumapispring.util.OutcomeCounters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+public class KnownApiKeys implements MeterBinder {
+
+    private static final String METRIC_PREFIX = "api.keys.filter";
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final long maxBytes;
+    private final Duration refreshOverlap;
+    private final Cache<String, Boolean> missingKeys;
+    private final Bucket missLookups;
+    private final Clock clock;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Object filterLock = new Object();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile ApiKeyBloomFilter filter;
+    private volatile LocalDateTime refreshedAt;
+    private Set<String> pendingKeys;
+    private volatile Counter rejected;
+    private volatile OutcomeCounters lookups = OutcomeCounters.NONE;
+
+    public KnownApiKeys(UserRepository userRepository,
+                        @Value("${api.security.key-filter.enabled:true}") boolean enabled,
+                        @Value("${api.security.key-filter.expected-insertions:100000}") long expectedInsertions,
+                        @Value("${api.security.key-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                        @Value("${api.security.key-filter.max-bytes:1048576}") long maxBytes,
+                        @Value("${api.security.key-filter.refresh-overlap-seconds:60}") long refreshOverlapSeconds,
+                        @Value("${api.security.key-filter.miss-ttl-seconds:10}") long missTtlSeconds,
+                        @Value("${api.security.key-filter.miss-lookups-per-second:50}") long missLookupsPerSecond) {
+        this(userRepository, enabled, expectedInsertions, falsePositiveRate, maxBytes, refreshOverlapSeconds, missTtlSeconds,
+                missLookupsPerSecond, Clock.systemDefaultZone());
+    }
+
+    KnownApiKeys(UserRepository userRepository, boolean enabled, long expectedInsertions, double falsePositiveRate, long maxBytes,
+                 long refreshOverlapSeconds, long missTtlSeconds, long missLookupsPerSecond, Clock clock) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBytes = maxBytes;
+        this.refreshOverlap = Duration.ofSeconds(refreshOverlapSeconds);
+        this.missingKeys = Caffeine.newBuilder()
+                .maximumSize(expectedInsertions)
+                .expireAfterWrite(Duration.ofSeconds(missTtlSeconds))
+                .build();
+        this.missLookups = new RateLimitPolicy("key-filter-miss", null, missLookupsPerSecond, Duration.ofSeconds(1)).newBucket();
+        this.clock = clock;
+    }
+
+    public boolean mightContain(String apiKey) {
+        ApiKeyBloomFilter current = filter;
+        if (current == null || current.mightContain(apiKey)) {
+            return true;
+        }
+        if (missingKeys.getIfPresent(apiKey) == null && missLookups.tryConsume(1)) {
+            if (existsInDatabase(apiKey)) {
+                add(apiKey);
+                return true;
+            }
+        }
+        Counter counter = rejected;
+        if (counter != null) {
+            counter.increment();
+        }
+        return false;
+    }
+
+    private boolean existsInDatabase(String apiKey) {
+        boolean exists;
+        try {
+            exists = userRepository.existsByApiKey(apiKey);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo verificar una API key ausente del filtro: {}", e.getMessage());
+            return false;
+        }
+        if (!exists) {
+            missingKeys.put(apiKey, Boolean.TRUE);
+        }
+        lookups.increment(exists ? "found" : "missing");
+        return exists;
+    }
+
+    public void add(String apiKey) {
+        synchronized (filterLock) {
+            if (filter != null) {
+                filter.put(apiKey);
+            }
+            if (pendingKeys != null) {
+                pendingKeys.add(apiKey);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${api.security.key-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${api.security.key-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            synchronized (filterLock) {
+                pendingKeys = new HashSet<>();
+            }
+            try {
+                LocalDateTime startedAt = LocalDateTime.now(clock);
+                List<ApiKeyEntry> entries = userRepository.findApiKeysAfter(0L);
+                long capacity = Math.max(expectedInsertions, entries.size() + entries.size() / 2L);
+                ApiKeyBloomFilter rebuilt = ApiKeyBloomFilter.create(capacity, falsePositiveRate, maxBytes, secureRandom);
+                entries.forEach(entry -> rebuilt.put(entry.apiKey()));
+                synchronized (filterLock) {
+                    pendingKeys.forEach(rebuilt::put);
+                    filter = rebuilt;
+                }
+                refreshedAt = startedAt;
+                log.info("Filtro de API keys reconstruido con {} claves ({} bytes, FPR estimado {})",
+                        rebuilt.insertions(), rebuilt.sizeInBytes(), rebuilt.expectedFalsePositiveRate());
+            } catch (DataAccessException e) {
+                log.warn("No se pudo reconstruir el filtro de API keys: {}", e.getMessage());
+            } finally {
+                synchronized (filterLock) {
+                    pendingKeys = null;
+                }
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${api.security.key-filter.refresh-interval-ms:10000}",
+            fixedDelayString = "${api.security.key-filter.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (filter == null) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            LocalDateTime startedAt = LocalDateTime.now(clock);
+            List<ApiKeyEntry> entries = userRepository.findApiKeysUpdatedSince(refreshedAt.minus(refreshOverlap));
+            ApiKeyBloomFilter current = filter;
+            entries.stream()
+                    .map(ApiKeyEntry::apiKey)
+                    .filter(apiKey -> !current.mightContain(apiKey))
+                    .forEach(this::add);
+            refreshedAt = startedAt;
+        } catch (DataAccessException e) {
+            log.warn("No se pudo actualizar el filtro de API keys: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Solicitudes rechazadas sin consultar la base de datos")
+                .register(registry);
+        lookups = OutcomeCounters.register(registry, METRIC_PREFIX + ".lookups",
+                "API keys ausentes del filtro verificadas en la base de datos", "found", "missing");
+        Gauge.builder(METRIC_PREFIX + ".size", this, keys -> keys.filter == null ? 0 : keys.filter.sizeInBytes())
+                .baseUnit("bytes")
+                .description("Memoria usada por el filtro de API keys")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".keys", this, keys -> keys.filter == null ? 0 : keys.filter.insertions())
+                .description("API keys registradas en el filtro")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".expected.fpp", this, keys -> keys.filter == null ? 0 : keys.filter.expectedFalsePositiveRate())
+                .description("Tasa estimada de falsos positivos del filtro de API keys")
+                .register(registry);
+    }
+}
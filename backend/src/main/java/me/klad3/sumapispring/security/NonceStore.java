@@ -0,0 +1,82 @@
+package me.klad3.sumapispring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class NonceStore implements MeterBinder {
+
+    private static final String METRIC_PREFIX = "api.signature.nonces";
+
+    private final long maxPerApiKey;
+    private final Duration ttl;
+    private final Cache<String, Cache<String, Boolean>> noncesByApiKey;
+    private volatile Counter rejected;
+
+    public NonceStore(@Value("${api.security.signature.nonce-store.max-per-api-key:10000}") long maxPerApiKey,
+                      @Value("${api.security.signature.max-skew-seconds:300}") long maxSkewSeconds) {
+        this.maxPerApiKey = maxPerApiKey;
+        this.ttl = Duration.ofSeconds(maxSkewSeconds * 2);
+        this.noncesByApiKey = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    public boolean register(String apiKey, String nonce) {
+        boolean[] registered = new boolean[1];
+        noncesByApiKey.asMap().compute(apiKey, (key, current) -> {
+            Cache<String, Boolean> nonces = current != null ? current : Caffeine.newBuilder()
+                    .expireAfterWrite(ttl)
+                    .<String, Boolean>build();
+            if (nonces.getIfPresent(nonce) != null) {
+                return nonces;
+            }
+            if (nonces.estimatedSize() >= maxPerApiKey) {
+                nonces.cleanUp();
+                if (nonces.estimatedSize() >= maxPerApiKey) {
+                    Counter counter = rejected;
+                    if (counter != null) {
+                        counter.increment();
+                    }
+                    throw new RateLimitExceededException("Too many signed requests for this API Key", retryAfterSeconds(nonces));
+                }
+            }
+            nonces.put(nonce, Boolean.TRUE);
+            registered[0] = true;
+            return nonces;
+        });
+        return registered[0];
+    }
+
+    private long retryAfterSeconds(Cache<String, Boolean> nonces) {
+        Duration wait = nonces.policy().expireAfterWrite()
+                .flatMap(expiration -> expiration.oldest(1).keySet().stream().findFirst().flatMap(expiration::ageOf))
+                .map(ttl::minus)
+                .orElse(ttl);
+        return Math.max(1, (wait.toMillis() + 999) / 1000);
+    }
+
+    long size() {
+        return noncesByApiKey.asMap().values().stream().mapToLong(Cache::estimatedSize).sum();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Solicitudes firmadas rechazadas porque la API Key agotó su cupo de nonces")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, NonceStore::size)
+                .description("Nonces de solicitudes firmadas recordados para detectar repeticiones")
+                .register(registry);
+    }
+}
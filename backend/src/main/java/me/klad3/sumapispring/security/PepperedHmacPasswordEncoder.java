@@ -0,0 +1,54 @@
+package me.klad3.sumapispring.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+public class PepperedHmacPasswordEncoder implements PasswordEncoder {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_PEPPER_LENGTH = 32;
+
+    private final SecretKeySpec pepperKey;
+
+    public PepperedHmacPasswordEncoder(String pepper) {
+        if (pepper == null || pepper.length() < MIN_PEPPER_LENGTH) {
+            throw new IllegalArgumentException("API secret pepper must be at least " + MIN_PEPPER_LENGTH + " characters long");
+        }
+        this.pepperKey = new SecretKeySpec(pepper.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return Base64.getEncoder().encodeToString(hmac(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(encodedPassword);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, hmac(rawPassword));
+    }
+
+    private byte[] hmac(CharSequence rawPassword) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(pepperKey);
+            return mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package me.klad3.sumapispring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final String CACHE_NAME = "api.ratelimit.buckets";
+
+    private final boolean enabled;
+    private final List<RateLimitPolicy> policies;
+    private final RateLimitPolicy defaultPolicy;
+    private final Cache<String, Bucket> buckets;
+    private final HandlerExceptionResolver resolver;
+    private volatile Map<String, Counter> rejectedCounters = Map.of();
+    private JdbcBucketProxyManager distributedBuckets;
+
+    public RateLimitFilter(@Value("${api.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${api.rate-limit.max-buckets:100000}") long maxBuckets,
+                           @Value("${api.rate-limit.login.capacity:10}") long loginCapacity,
+                           @Value("${api.rate-limit.login.refill-period-seconds:60}") long loginRefillSeconds,
+                           @Value("${api.rate-limit.token.capacity:20}") long tokenCapacity,
+                           @Value("${api.rate-limit.token.refill-period-seconds:60}") long tokenRefillSeconds,
+                           @Value("${api.rate-limit.courses.capacity:60}") long coursesCapacity,
+                           @Value("${api.rate-limit.courses.refill-period-seconds:60}") long coursesRefillSeconds,
+                           @Value("${api.rate-limit.default.capacity:120}") long defaultCapacity,
+                           @Value("${api.rate-limit.default.refill-period-seconds:60}") long defaultRefillSeconds,
+                           @Qualifier("handlerExceptionResolver") @NonNull HandlerExceptionResolver resolver) {
+        this.enabled = enabled;
+        this.policies = List.of(
+                new RateLimitPolicy("login", "/user/login", loginCapacity, Duration.ofSeconds(loginRefillSeconds)),
+                new RateLimitPolicy("login", "/user/login/courses", loginCapacity, Duration.ofSeconds(loginRefillSeconds)),
+                new RateLimitPolicy("token", "/user/token", tokenCapacity, Duration.ofSeconds(tokenRefillSeconds)),
+                new RateLimitPolicy("courses", "/api/courses", coursesCapacity, Duration.ofSeconds(coursesRefillSeconds)));
+        this.defaultPolicy = new RateLimitPolicy("default", null, defaultCapacity, Duration.ofSeconds(defaultRefillSeconds));
+        long idleSeconds = Math.max(Math.max(loginRefillSeconds, tokenRefillSeconds), Math.max(coursesRefillSeconds, defaultRefillSeconds));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .recordStats()
+                .build();
+        this.resolver = resolver;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!enabled || !(authentication instanceof ApiClientAuthentication client)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitPolicy policy = resolvePolicy(request.getRequestURI());
+        Bucket bucket = buckets.get(policy.name() + ':' + client.getPrincipal(), key -> newBucket(key, policy));
+        ConsumptionProbe probe;
+        try {
+            probe = bucket.tryConsumeAndReturnRemaining(1);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo consultar el límite de tasa distribuido, se permite la solicitud: {}", e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(LIMIT_HEADER, String.valueOf(policy.capacity()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(probe.getRemainingTokens()));
+        if (probe.isConsumed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(probe.getNanosToWaitForRefill() / (double) TimeUnit.SECONDS.toNanos(1)));
+        response.setHeader(RESET_HEADER, String.valueOf(retryAfterSeconds));
+        Counter rejected = rejectedCounters.get(policy.name());
+        if (rejected != null) {
+            rejected.increment();
+        }
+        resolver.resolveException(request, response, null,
+                new RateLimitExceededException("Rate limit exceeded for this API Key", retryAfterSeconds));
+    }
+
+    @Autowired(required = false)
+    void setDistributedBuckets(JdbcBucketProxyManager distributedBuckets) {
+        this.distributedBuckets = distributedBuckets;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Map<String, Counter> counters = new HashMap<>();
+        for (RateLimitPolicy policy : policies) {
+            counters.computeIfAbsent(policy.name(), name -> rejectedCounter(registry, name));
+        }
+        counters.computeIfAbsent(defaultPolicy.name(), name -> rejectedCounter(registry, name));
+        rejectedCounters = Map.copyOf(counters);
+        CaffeineCacheMetrics.monitor(registry, buckets, CACHE_NAME);
+    }
+
+    private Bucket newBucket(String key, RateLimitPolicy policy) {
+        return distributedBuckets != null ? distributedBuckets.bucket(key, policy) : policy.newBucket();
+    }
+
+    private RateLimitPolicy resolvePolicy(String requestUri) {
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(requestUri)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String policy) {
+        return Counter.builder("api.ratelimit.rejected")
+                .description("Solicitudes rechazadas por límite de tasa")
+                .tag("policy", policy)
+                .register(registry);
+    }
+}
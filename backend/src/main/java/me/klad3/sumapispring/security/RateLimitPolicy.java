@@ -0,0 +1,31 @@
+package me.klad3.sumapispring.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+record RateLimitPolicy(String name, String path, long capacity, Duration refillPeriod) {
+
+    boolean matches(String requestUri) {
+        return path != null && path.equals(requestUri);
+    }
+
+    Bucket newBucket() {
+        return Bucket.builder()
+                .addLimit(bandwidth())
+                .build();
+    }
+
+    BucketConfiguration configuration() {
+        return BucketConfiguration.builder()
+                .addLimit(bandwidth())
+                .build();
+    }
+
+    private Bandwidth bandwidth() {
+        return Bandwidth.classic(capacity, Refill.greedy(capacity, refillPeriod));
+    }
+}
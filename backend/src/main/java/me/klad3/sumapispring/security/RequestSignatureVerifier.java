@@ -0,0 +1,191 @@
+package me.klad3.sumapispring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Objects;
+
+@Slf4j
+@Component
+public class RequestSignatureVerifier implements MeterBinder {
+
+    private static final String CACHE_NAME = "api.signature.keys";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_NONCE_LENGTH = 64;
+
+    private final UserService apiClientService;
+    private final RequestSigningKeys signingKeys;
+    private final NonceStore nonceStore;
+    private final KnownApiKeys knownApiKeys;
+    private final Cache<String, SigningKey> signingKeyCache;
+    private final long maxSkewSeconds;
+    private final Clock clock;
+
+    @Value("${api.security.header.name:API-Key}")
+    private String apiKeyHeaderName;
+
+    @Value("${api.security.signature.timestamp.header.name:API-Timestamp}")
+    private String timestampHeaderName;
+
+    @Value("${api.security.signature.nonce.header.name:API-Nonce}")
+    private String nonceHeaderName;
+
+    @Value("${api.security.signature.header.name:API-Signature}")
+    private String signatureHeaderName;
+
+    @Autowired
+    public RequestSignatureVerifier(UserService apiClientService,
+                                    RequestSigningKeys signingKeys,
+                                    NonceStore nonceStore,
+                                    KnownApiKeys knownApiKeys,
+                                    @Value("${api.security.signature.key-cache.max-size:10000}") long keyCacheMaxSize,
+                                    @Value("${api.security.signature.key-cache.ttl-seconds:600}") long keyCacheTtlSeconds,
+                                    @Value("${api.security.signature.max-skew-seconds:300}") long maxSkewSeconds) {
+        this(apiClientService, signingKeys, nonceStore, knownApiKeys, keyCacheMaxSize, keyCacheTtlSeconds, maxSkewSeconds, Clock.systemUTC());
+    }
+
+    RequestSignatureVerifier(UserService apiClientService, RequestSigningKeys signingKeys, NonceStore nonceStore, KnownApiKeys knownApiKeys,
+                             long keyCacheMaxSize, long keyCacheTtlSeconds, long maxSkewSeconds, Clock clock) {
+        this.apiClientService = apiClientService;
+        this.signingKeys = signingKeys;
+        this.nonceStore = nonceStore;
+        this.knownApiKeys = knownApiKeys;
+        this.signingKeyCache = Caffeine.newBuilder()
+                .maximumSize(keyCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(keyCacheTtlSeconds))
+                .recordStats()
+                .build();
+        this.maxSkewSeconds = maxSkewSeconds;
+        this.clock = clock;
+    }
+
+    public ApiClientAuthentication verify(CachedBodyHttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeaderName);
+        String timestamp = request.getHeader(timestampHeaderName);
+        String nonce = request.getHeader(nonceHeaderName);
+        String signature = request.getHeader(signatureHeaderName);
+
+        if (!StringUtils.hasText(apiKey) || !StringUtils.hasText(timestamp) || !StringUtils.hasText(nonce) || !StringUtils.hasText(signature)) {
+            throw new ApiKeyUnauthorizedException("Missing request signature headers");
+        }
+        if (nonce.length() > MAX_NONCE_LENGTH) {
+            throw new ApiKeyUnauthorizedException("Invalid request nonce");
+        }
+        if (!isWithinWindow(timestamp)) {
+            throw new ApiKeyUnauthorizedException("Request timestamp outside the allowed window");
+        }
+
+        SigningKey signingKey = findSigningKey(apiKey);
+        byte[] expected = sign(signingKey.key(), canonicalRequest(request, timestamp, nonce));
+        byte[] provided;
+        try {
+            provided = Base64.getUrlDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            throw new ApiKeyUnauthorizedException("Invalid request signature");
+        }
+        if (!MessageDigest.isEqual(expected, provided)) {
+            throw new ApiKeyUnauthorizedException("Invalid request signature");
+        }
+        if (!nonceStore.register(apiKey, nonce)) {
+            throw new ApiKeyUnauthorizedException("Replayed request nonce");
+        }
+        return new ApiClientAuthentication(signingKey.userId(), apiKey);
+    }
+
+    @EventListener
+    public void onCredentialsChanged(ApiCredentialsChangedEvent event) {
+        signingKeyCache.asMap().values().removeIf(key -> Objects.equals(key.userId(), event.userId()));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, signingKeyCache, CACHE_NAME);
+    }
+
+    static String canonicalRequest(CachedBodyHttpServletRequest request, String timestamp, String nonce) {
+        String path = request.getQueryString() == null ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+        return String.join("\n",
+                request.getMethod(),
+                path,
+                timestamp,
+                nonce,
+                HexFormat.of().formatHex(sha256(request.getBody())));
+    }
+
+    private boolean isWithinWindow(String timestamp) {
+        try {
+            long skew = Math.abs(clock.instant().getEpochSecond() - Long.parseLong(timestamp));
+            return skew <= maxSkewSeconds;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private SigningKey findSigningKey(String apiKey) {
+        SigningKey cached = signingKeyCache.getIfPresent(apiKey);
+        if (cached != null) {
+            return cached;
+        }
+        if (!knownApiKeys.mightContain(apiKey)) {
+            throw new ApiKeyUnauthorizedException("Invalid request signature");
+        }
+        User apiClient = apiClientService.findByApiKey(apiKey)
+                .orElseThrow(() -> new ApiKeyUnauthorizedException("Invalid request signature"));
+        if (apiClient.getSigningKey() == null) {
+            throw new ApiKeyUnauthorizedException("Request signing is not enabled for this API Key");
+        }
+        byte[] key;
+        try {
+            key = signingKeys.open(apiClient.getSigningKey());
+        } catch (IllegalStateException e) {
+            log.error("No se pudo descifrar la clave de firma del cliente {}: {}", apiClient.getId(), e.getMessage());
+            throw new ApiKeyUnauthorizedException("Invalid request signature");
+        }
+        SigningKey signingKey = new SigningKey(apiClient.getId(), key);
+        signingKeyCache.put(apiKey, signingKey);
+        return signingKey;
+    }
+
+    private static byte[] sign(byte[] key, String canonicalRequest) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            return mac.doFinal(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record SigningKey(Long userId, byte[] key) {
+    }
+}
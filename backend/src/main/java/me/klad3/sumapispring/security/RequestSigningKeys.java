@@ -0,0 +1,77 @@
+package me.klad3.sumapispring.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+@Component
+public class RequestSigningKeys {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final byte[] DERIVATION_LABEL = "sum-api-request-signing".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENCRYPTION_LABEL = "sum-api-signing-key-encryption:".getBytes(StandardCharsets.UTF_8);
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final SecretKeySpec encryptionKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RequestSigningKeys(@Value("${api.security.secret.pepper}") String pepper) {
+        this.encryptionKey = new SecretKeySpec(sha256(ENCRYPTION_LABEL, pepper.getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+
+    public static byte[] derive(String apiSecret) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return mac.doFinal(DERIVATION_LABEL);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    public String seal(String apiSecret) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            byte[] ciphertext = cipher.doFinal(derive(apiSecret));
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt request signing key", e);
+        }
+    }
+
+    public byte[] open(String sealedKey) {
+        try {
+            byte[] sealed = Base64.getDecoder().decode(sealedKey);
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH));
+            return cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to decrypt request signing key", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] label, byte[] value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(label);
+            return digest.digest(value);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -4,15 +4,25 @@ import lombok.RequiredArgsConstructor;
 import me.klad3.sumapispring.dto.LoginResponse;
 import me.klad3.sumapispring.exception.AuthenticationException;
 import me.klad3.sumapispring.exception.BadRequestException;
+import me.klad3.sumapispring.util.CookieJar;
+import me.klad3.sumapispring.util.Deadline;
 import me.klad3.sumapispring.util.HtmlParserUtil;
 import me.klad3.sumapispring.util.HttpClientUtil;
+import me.klad3.sumapispring.util.LoginFailureGuard;
+import me.klad3.sumapispring.util.LoginPagePool;
+import me.klad3.sumapispring.util.UpstreamCoalescer;
+import me.klad3.sumapispring.util.UpstreamEndpoint;
+import me.klad3.sumapispring.util.UpstreamResilience;
+import me.klad3.sumapispring.util.UpstreamSessionStore;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
-import java.io.IOException;
+import java.net.URI;
 import java.net.http.HttpResponse;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
@@ -20,39 +30,112 @@ public class AuthService {
 
     private final HttpClientUtil httpClientUtil;
     private final HtmlParserUtil htmlParserUtil;
+    private final UpstreamResilience upstreamResilience;
+    private final LoginPagePool loginPagePool;
+    private final UpstreamSessionStore upstreamSessionStore;
+    private final UpstreamCoalescer upstreamCoalescer;
+    private final LoginFailureGuard loginFailureGuard;
 
     private static final String LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
     private static final String SESSION_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/sesionIniciada";
+    private static final URI LOGIN_URI = URI.create(LOGIN_URL);
     private static final String RESTART_SESSION_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/reiniciarSesion?us=";
 
-    public LoginResponse login(String username, String password) throws IOException, InterruptedException {
-        HttpResponse<String> getResponse = httpClientUtil.get(LOGIN_URL);
-        if (getResponse.statusCode() != 200) {
-            throw new BadRequestException("Failed to fetch login page");
-        }
+    public CompletableFuture<LoginResponse> login(String client, String username, String password, Deadline deadline) {
+        return openSession(client, username, password, deadline)
+                .thenApply(cookieJar -> new LoginResponse("Login successful", cookieJar.getCookies()));
+    }
+
+    public CompletableFuture<CookieJar> openSession(String client, String username, String password, Deadline deadline) {
+        return CompletableFuture.completedFuture(null)
+                .thenRun(() -> loginFailureGuard.check(client, username, password))
+                .thenCompose(ignored -> upstreamCoalescer.coalesceLogin(username, password, deadline,
+                        sharedDeadline -> loginOnce(client, username, password, sharedDeadline)));
+    }
 
-        String csrfToken = htmlParserUtil.extractCsrfToken(getResponse.body());
-        if (csrfToken == null) {
-            throw new BadRequestException("CSRF token not found");
+    private CompletableFuture<CookieJar> loginOnce(String client, String username, String password, Deadline deadline) {
+        return upstreamSessionStore.find(username, password, deadline)
+                .thenCompose(storedCookies -> {
+                    if (storedCookies.isPresent()) {
+                        CookieJar cookieJar = new CookieJar();
+                        storedCookies.get().forEach(cookie -> cookieJar.add(LOGIN_URI, cookie));
+                        return CompletableFuture.completedFuture(cookieJar);
+                    }
+                    return loginUpstream(username, password, deadline)
+                            .thenApply(cookieJar -> {
+                                upstreamSessionStore.save(username, password, cookieJar.getCookies());
+                                return cookieJar;
+                            });
+                })
+                .whenComplete((response, e) -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause == null) {
+                        loginFailureGuard.recordSuccess(client, username);
+                    } else if (cause instanceof AuthenticationException) {
+                        loginFailureGuard.recordFailure(client, username, password);
+                    }
+                });
+    }
+
+    private CompletableFuture<CookieJar> loginUpstream(String username, String password, Deadline deadline) {
+        Optional<LoginPagePool.PreparedLogin> prepared = loginPagePool.take();
+        if (prepared.isEmpty()) {
+            return loginWithFreshPage(username, password, deadline);
         }
+        CookieJar cookieJar = prepared.get().cookieJar();
+        return submitCredentials(cookieJar, prepared.get().csrfToken(), username, password, deadline)
+                .thenCompose(postResponse -> {
+                    if (postResponse.statusCode() == 403) {
+                        loginPagePool.recordStale();
+                        return loginWithFreshPage(username, password, deadline);
+                    }
+                    return completeLogin(postResponse, cookieJar, username, deadline);
+                });
+    }
 
+    private CompletableFuture<CookieJar> loginWithFreshPage(String username, String password, Deadline deadline) {
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        return upstreamResilience.call(UpstreamEndpoint.LOGIN_PAGE, deadline,
+                        timeout -> httpClientUtil.getAsync(LOGIN_URL, cookieJar, htmlParserUtil.csrfTokenBodyHandler(), timeout))
+                .thenCompose(getResponse -> {
+                    if (getResponse.statusCode() != 200) {
+                        throw new BadRequestException("Failed to fetch login page");
+                    }
+
+                    String csrfToken = getResponse.body();
+                    if (csrfToken == null) {
+                        throw new BadRequestException("CSRF token not found");
+                    }
+
+                    return submitCredentials(cookieJar, csrfToken, username, password, deadline);
+                })
+                .thenCompose(postResponse -> completeLogin(postResponse, cookieJar, username, deadline));
+    }
+
+    private CompletableFuture<HttpResponse<String>> submitCredentials(CookieJar cookieJar, String csrfToken, String username,
+                                                                      String password, Deadline deadline) {
         MultiValueMap<String, String> loginData = new LinkedMultiValueMap<>();
         loginData.add("_csrf", csrfToken);
         loginData.add("login", username);
         loginData.add("clave", password);
 
-        HttpResponse<String> postResponse = httpClientUtil.post(LOGIN_URL, loginData);
+        return upstreamResilience.call(UpstreamEndpoint.LOGIN_SUBMIT, deadline,
+                timeout -> httpClientUtil.postAsync(LOGIN_URL, loginData, cookieJar, timeout));
+    }
+
+    private CompletableFuture<CookieJar> completeLogin(HttpResponse<String> postResponse, CookieJar cookieJar,
+                                                           String username, Deadline deadline) {
         String responseUrl = httpClientUtil.getFinalUrl(postResponse);
 
         if (LOGIN_URL.equals(responseUrl)) {
             throw new AuthenticationException("Invalid credentials");
         }
 
+        CompletableFuture<HttpResponse<String>> response = CompletableFuture.completedFuture(postResponse);
         if (SESSION_URL.equals(responseUrl)) {
-            httpClientUtil.get(RESTART_SESSION_URL + username);
+            response = upstreamResilience.call(UpstreamEndpoint.SESSION_RESTART, deadline,
+                    timeout -> httpClientUtil.getAsync(RESTART_SESSION_URL + username, cookieJar, timeout));
         }
-
-        List<String> sessionCookies = httpClientUtil.getAllCookies();
-        return new LoginResponse("Login successful", sessionCookies);
+        return response.thenApply(ignored -> cookieJar);
     }
-}
\ No newline at end of file
+}
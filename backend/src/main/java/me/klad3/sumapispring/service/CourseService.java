@@ -1,61 +1,92 @@
 package me.klad3.sumapispring.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import me.klad3.sumapispring.dto.CourseResponse;
 import me.klad3.sumapispring.dto.MatriculaResponse;
 import me.klad3.sumapispring.exception.ExternalApiException;
+import me.klad3.sumapispring.util.CookieJar;
+import me.klad3.sumapispring.util.Deadline;
 import me.klad3.sumapispring.util.HttpClientUtil;
+import me.klad3.sumapispring.util.JsonBodyHandler;
+import me.klad3.sumapispring.util.UpstreamCoalescer;
+import me.klad3.sumapispring.util.UpstreamEndpoint;
+import me.klad3.sumapispring.util.UpstreamResilience;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class CourseService {
 
     private final HttpClientUtil httpClientUtil;
+    private final UpstreamResilience upstreamResilience;
+    private final UpstreamCoalescer upstreamCoalescer;
 
     private static final String COURSES_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/v2/reportes/matricula?accion=obtenerAlumnoMatricula";
 
-    public List<CourseResponse> getCourses(String cookies) {
-        try {
-            HttpResponse<String> coursesResponse = httpClientUtil.getWithCookies(COURSES_URL, cookies);
-
-            if (coursesResponse.statusCode() != 200) {
-                throw new ExternalApiException("Failed to fetch courses from external API");
-            }
-
-            MatriculaResponse matriculaResponse = parseCoursesResponse(coursesResponse.body());
-
-            return matriculaResponse.getData().getMatricula().stream()
-                    .map(element -> new CourseResponse(
-                            element.getDesEscuela(),
-                            element.getCodPlan(),
-                            element.getCicloEstudio(),
-                            element.getDesAsignatura(),
-                            element.getCodSeccion(),
-                            String.format("%s %s %s", element.getNomDocente(), element.getApePatDocente(), element.getApeMatDocente())
-                    ))
-                    .toList();
-
-        } catch (IOException e) {
-            throw new ExternalApiException("Error fetching courses from external API", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new ExternalApiException("Error fetching courses from external API", e);
-        }
+    private static final URI COURSES_URI = URI.create(COURSES_URL);
+
+    private static final JsonBodyHandler<MatriculaResponse> MATRICULA_BODY_HANDLER =
+            new JsonBodyHandler<>(new ObjectMapper().readerFor(MatriculaResponse.class));
+
+    public CompletableFuture<List<CourseResponse>> getCourses(CookieJar cookieJar, Deadline deadline) {
+        String cookies = cookieJar.cookieHeader(COURSES_URI).orElse("");
+        return upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, COURSES_URL + "\n" + cookies, deadline,
+                sharedDeadline -> fetchCourses(timeout -> httpClientUtil.getJsonAsync(COURSES_URL, cookieJar, MATRICULA_BODY_HANDLER, timeout),
+                        sharedDeadline));
+    }
+
+    public CompletableFuture<List<CourseResponse>> getCourses(String cookies, Deadline deadline) {
+        return upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, COURSES_URL + "\n" + cookies, deadline,
+                sharedDeadline -> fetchCourses(timeout -> httpClientUtil.getWithCookiesAsync(COURSES_URL, cookies, MATRICULA_BODY_HANDLER, timeout),
+                        sharedDeadline));
+    }
+
+    private CompletableFuture<List<CourseResponse>> fetchCourses(Function<Duration, CompletableFuture<HttpResponse<Supplier<MatriculaResponse>>>> request,
+                                                                 Deadline deadline) {
+        return upstreamResilience.call(UpstreamEndpoint.COURSES, deadline, request)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof ExternalApiException externalApiException) {
+                        throw externalApiException;
+                    }
+                    throw new ExternalApiException("Error fetching courses from external API", cause);
+                })
+                .thenApply(coursesResponse -> {
+                    if (coursesResponse.statusCode() != 200) {
+                        throw new ExternalApiException("Failed to fetch courses from external API");
+                    }
+
+                    MatriculaResponse matriculaResponse = parseCoursesResponse(coursesResponse.body());
+
+                    return matriculaResponse.getData().getMatricula().stream()
+                            .map(element -> new CourseResponse(
+                                    element.getDesEscuela(),
+                                    element.getCodPlan(),
+                                    element.getCicloEstudio(),
+                                    element.getDesAsignatura(),
+                                    element.getCodSeccion(),
+                                    String.format("%s %s %s", element.getNomDocente(), element.getApePatDocente(), element.getApeMatDocente())
+                            ))
+                            .toList();
+                });
     }
 
-    private MatriculaResponse parseCoursesResponse(String responseBody) {
+    private MatriculaResponse parseCoursesResponse(Supplier<MatriculaResponse> responseBody) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(responseBody, MatriculaResponse.class);
-        } catch (JsonProcessingException e) {
-            throw new ExternalApiException("Error parsing courses response", e);
+            return responseBody.get();
+        } catch (UncheckedIOException e) {
+            throw new ExternalApiException("Error parsing courses response", e.getCause());
         }
     }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package me.klad3.sumapispring.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import me.klad3.sumapispring.dto.CreateUserRequest;
 import me.klad3.sumapispring.dto.CreateUserResponse;
 import me.klad3.sumapispring.exception.ResourceAlreadyExistsException;
 import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.ApiCredentialEntry;
 import me.klad3.sumapispring.repository.UserRepository;
+import me.klad3.sumapispring.security.ApiCredentialIndex;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSigningKeys;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
@@ -13,14 +20,49 @@ import java.util.Base64;
 import java.util.Optional;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
+    private final PasswordEncoder apiSecretEncoder;
+    private final RequestSigningKeys requestSigningKeys;
+    private final KnownApiKeys knownApiKeys;
+    private final ApiCredentialIndex credentialIndex;
     private final SecureRandom secureRandom = new SecureRandom();
 
     public Optional<User> findByApiKey(String apiKey) {
-        return userRepository.findByApiKey(apiKey);
+        boolean indexReady = credentialIndex.isReady();
+        if (indexReady) {
+            Optional<User> indexed = credentialIndex.find(apiKey);
+            if (indexed.isPresent()) {
+                return indexed;
+            }
+        }
+        Optional<ApiCredentialEntry> stored = userRepository.findCredentialsByApiKey(apiKey);
+        if (indexReady) {
+            stored.ifPresent(credentialIndex::put);
+        }
+        return stored.map(ApiCredentialEntry::toUser);
+    }
+
+    public void upgradeCredentials(User user, String apiSecret) {
+        try {
+            Optional<User> stored = userRepository.findById(user.getId());
+            if (stored.isEmpty()) {
+                return;
+            }
+            User storedUser = stored.get();
+            if (storedUser.isApiSecretUpgradeRequired(apiSecretEncoder)) {
+                storedUser.setApiSecret(apiSecret, apiSecretEncoder);
+            }
+            if (storedUser.getSigningKey() == null) {
+                storedUser.setSigningKey(requestSigningKeys.seal(apiSecret));
+            }
+            userRepository.save(storedUser);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron actualizar las credenciales del usuario {}: {}", user.getId(), e.getMessage());
+        }
     }
 
     public CreateUserResponse createUser(CreateUserRequest request) throws ResourceAlreadyExistsException {
@@ -44,8 +86,10 @@ public class UserService {
                 .studentName(request.getStudentName())
                 .apiKey(apiKey)
                 .build();
-        user.setApiSecret(apiSecret);
+        user.setApiSecret(apiSecret, apiSecretEncoder);
+        user.setSigningKey(requestSigningKeys.seal(apiSecret));
         userRepository.save(user);
+        knownApiKeys.add(apiKey);
 
         return new CreateUserResponse(
                 user.getUsername(),
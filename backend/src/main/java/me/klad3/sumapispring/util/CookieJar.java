@@ -0,0 +1,49 @@
+package me.klad3.sumapispring.util;
+
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class CookieJar {
+
+    private static final String COOKIE_HEADER = "Cookie";
+
+    private final CookieManager cookieManager = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+
+    public void store(URI uri, HttpHeaders headers) {
+        try {
+            cookieManager.put(uri, headers.map());
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to store response cookies for " + uri, e);
+        }
+    }
+
+    public void add(URI uri, String cookie) {
+        HttpCookie.parse(cookie).forEach(parsed -> {
+            if (parsed.getPath() == null) {
+                parsed.setPath("/");
+            }
+            cookieManager.getCookieStore().add(uri, parsed);
+        });
+    }
+
+    public Optional<String> cookieHeader(URI uri) {
+        try {
+            List<String> cookies = cookieManager.get(uri, Map.of()).getOrDefault(COOKIE_HEADER, List.of());
+            return cookies.isEmpty() ? Optional.empty() : Optional.of(String.join("; ", cookies));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read cookies for " + uri, e);
+        }
+    }
+
+    public List<String> getCookies() {
+        return cookieManager.getCookieStore().getCookies().stream()
+                .map(cookie -> cookie.getName() + "=" + cookie.getValue())
+                .toList();
+    }
+}
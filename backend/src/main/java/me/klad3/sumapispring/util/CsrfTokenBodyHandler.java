@@ -0,0 +1,115 @@
+package me.klad3.sumapispring.util;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+class CsrfTokenBodyHandler implements HttpResponse.BodyHandler<String> {
+
+    private static final String CHARSET_PARAMETER = "charset=";
+
+    private final Function<String, String> fallback;
+
+    CsrfTokenBodyHandler(Function<String, String> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.replacing(null);
+        }
+        Charset charset = responseInfo.headers().firstValue("Content-Type")
+                .map(CsrfTokenBodyHandler::charset)
+                .orElse(StandardCharsets.UTF_8);
+        return new TokenSubscriber(charset, fallback);
+    }
+
+    private static Charset charset(String contentType) {
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf(CHARSET_PARAMETER);
+        if (index < 0) {
+            return StandardCharsets.UTF_8;
+        }
+        String name = contentType.substring(index + CHARSET_PARAMETER.length()).split(";", 2)[0].trim().replace("\"", "");
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static final class TokenSubscriber implements HttpResponse.BodySubscriber<String> {
+
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final CsrfTokenScanner scanner = new CsrfTokenScanner();
+        private final Charset charset;
+        private final Function<String, String> fallback;
+        private ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        private TokenSubscriber(Charset charset, Function<String, String> fallback) {
+            this.charset = charset;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (received == null) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                if (!scanner.isDone()) {
+                    ByteBuffer scanned = item.duplicate();
+                    scanner.scan(scanned);
+                    if (scanner.token() != null) {
+                        received = null;
+                        body.complete(new String(scanner.token().getBytes(StandardCharsets.ISO_8859_1), charset));
+                        return;
+                    }
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                received.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            received = null;
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (received == null) {
+                return;
+            }
+            String html = received.toString(charset);
+            received = null;
+            try {
+                body.complete(fallback.apply(html));
+            } catch (RuntimeException e) {
+                body.completeExceptionally(e);
+            }
+        }
+    }
+}
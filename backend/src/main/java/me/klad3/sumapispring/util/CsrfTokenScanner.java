@@ -0,0 +1,139 @@
+package me.klad3.sumapispring.util;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class CsrfTokenScanner {
+
+    private static final int MAX_TAG_LENGTH = 8192;
+    private static final String CSRF_FIELD = "_csrf";
+    private static final Pattern ATTRIBUTE = Pattern.compile(
+            "([^\\s=/>\"']+)(?:\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+)))?");
+
+    private enum State { TEXT, TAG, COMMENT, RAW_TEXT }
+
+    private final StringBuilder tag = new StringBuilder();
+    private State state = State.TEXT;
+    private char quote;
+    private String rawTextEnd;
+    private int matched;
+    private String token;
+    private boolean unexpected;
+
+    boolean scan(ByteBuffer buffer) {
+        while (buffer.hasRemaining() && !isDone()) {
+            accept((char) (buffer.get() & 0xFF));
+        }
+        return isDone();
+    }
+
+    boolean isDone() {
+        return token != null || unexpected;
+    }
+
+    String token() {
+        return token;
+    }
+
+    boolean isUnexpected() {
+        return unexpected;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case TEXT -> {
+                if (c == '<') {
+                    tag.setLength(0);
+                    quote = 0;
+                    state = State.TAG;
+                }
+            }
+            case TAG -> acceptTag(c);
+            case COMMENT -> {
+                matched = c == '-' ? Math.min(matched + 1, 2) : c == '>' && matched == 2 ? 3 : 0;
+                if (matched == 3) {
+                    state = State.TEXT;
+                }
+            }
+            case RAW_TEXT -> {
+                matched = Character.toLowerCase(c) == rawTextEnd.charAt(matched) ? matched + 1
+                        : c == '<' ? 1 : 0;
+                if (matched == rawTextEnd.length()) {
+                    state = State.TEXT;
+                }
+            }
+        }
+    }
+
+    private void acceptTag(char c) {
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+        } else if (c == '"' || c == '\'') {
+            if (tag.length() > 0 && tag.charAt(tag.length() - 1) != '=' && !Character.isWhitespace(tag.charAt(tag.length() - 1))) {
+                tag.append(c);
+                return;
+            }
+            quote = c;
+        } else if (c == '>') {
+            endTag();
+            return;
+        }
+        tag.append(c);
+        if (tag.length() == 3 && "!--".contentEquals(tag)) {
+            matched = 0;
+            state = State.COMMENT;
+        } else if (tag.length() > MAX_TAG_LENGTH) {
+            unexpected = true;
+        }
+    }
+
+    private void endTag() {
+        state = State.TEXT;
+        Matcher matcher = ATTRIBUTE.matcher(tag);
+        if (!matcher.lookingAt()) {
+            return;
+        }
+        String name = matcher.group(1).toLowerCase(Locale.ROOT);
+        if ("script".equals(name) || "style".equals(name)) {
+            rawTextEnd = "</" + name;
+            matched = 0;
+            state = State.RAW_TEXT;
+            return;
+        }
+        if (!"input".equals(name)) {
+            return;
+        }
+        String fieldName = null;
+        String value = null;
+        while (matcher.find()) {
+            String attribute = matcher.group(1).toLowerCase(Locale.ROOT);
+            String attributeValue = attributeValue(matcher);
+            if ("name".equals(attribute) && fieldName == null) {
+                fieldName = attributeValue;
+            } else if ("value".equals(attribute) && value == null) {
+                value = attributeValue;
+            }
+        }
+        if (fieldName == null || !CSRF_FIELD.equalsIgnoreCase(fieldName.trim())) {
+            return;
+        }
+        if (value == null || value.indexOf('&') >= 0) {
+            unexpected = true;
+        } else {
+            token = value;
+        }
+    }
+
+    private static String attributeValue(Matcher matcher) {
+        for (int group = 2; group <= 4; group++) {
+            if (matcher.group(group) != null) {
+                return matcher.group(group);
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,148 @@
+package me.klad3.sumapispring.util;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.BiFunction;
+
+class DecompressingBodyHandler<T> implements HttpResponse.BodyHandler<T> {
+
+    static final String IDENTITY = "identity";
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    private final HttpResponse.BodyHandler<T> downstream;
+    private final BiFunction<String, String, TransferMetrics> metrics;
+    private final String endpoint;
+
+    DecompressingBodyHandler(HttpResponse.BodyHandler<T> downstream, BiFunction<String, String, TransferMetrics> metrics, String endpoint) {
+        this.downstream = downstream;
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<T> apply(HttpResponse.ResponseInfo responseInfo) {
+        String encoding = responseInfo.headers().firstValue(CONTENT_ENCODING_HEADER)
+                .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                .filter(value -> !value.isEmpty())
+                .orElse(IDENTITY);
+        StreamingInflater inflater = switch (encoding) {
+            case GZIP, "x-gzip" -> StreamingInflater.gzip();
+            case DEFLATE -> StreamingInflater.deflate();
+            default -> null;
+        };
+        String recordedEncoding = inflater == null ? IDENTITY : (DEFLATE.equals(encoding) ? DEFLATE : GZIP);
+        return new DecodingSubscriber<>(downstream.apply(responseInfo), inflater, metrics.apply(endpoint, recordedEncoding));
+    }
+
+    private static final class DecodingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final StreamingInflater inflater;
+        private final TransferMetrics metrics;
+        private Flow.Subscription subscription;
+        private long wireBytes;
+        private long bodyBytes;
+        private long decompressionNanos;
+        private boolean failed;
+
+        private DecodingSubscriber(HttpResponse.BodySubscriber<T> downstream, StreamingInflater inflater, TransferMetrics metrics) {
+            this.downstream = downstream;
+            this.inflater = inflater;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (failed) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                wireBytes += item.remaining();
+            }
+            if (inflater == null) {
+                bodyBytes = wireBytes;
+                downstream.onNext(items);
+                return;
+            }
+            List<ByteBuffer> decoded = new ArrayList<>();
+            long startedAt = System.nanoTime();
+            try {
+                for (ByteBuffer item : items) {
+                    for (ByteBuffer chunk : inflater.inflate(item)) {
+                        bodyBytes += chunk.remaining();
+                        decoded.add(chunk);
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                decompressionNanos += System.nanoTime() - startedAt;
+            }
+            if (decoded.isEmpty()) {
+                subscription.request(1);
+            } else {
+                downstream.onNext(decoded);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (inflater != null) {
+                inflater.close();
+            }
+            if (!failed) {
+                failed = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (failed) {
+                return;
+            }
+            if (inflater != null) {
+                try {
+                    if (wireBytes > 0) {
+                        inflater.finish();
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                } finally {
+                    inflater.close();
+                }
+            }
+            if (metrics != null) {
+                metrics.record(wireBytes, bodyBytes, decompressionNanos);
+            }
+            downstream.onComplete();
+        }
+
+        private void fail(IOException e) {
+            subscription.cancel();
+            onError(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.klad3.sumapispring.util;
+
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+class HostRequestLimiter {
+
+    private static final String QUEUE_TIMEOUT_MESSAGE = "Timed out waiting for a free request slot to ";
+    private static final long QUEUE_FULL_RETRY_AFTER_SECONDS = 1;
+
+    private final int maxPerHost;
+    private final int maxQueuedPerHost;
+    private final Duration maxQueueWait;
+    private final Executor executor;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    HostRequestLimiter(int maxPerHost, int maxQueuedPerHost, Duration maxQueueWait, Executor executor) {
+        this.maxPerHost = maxPerHost;
+        this.maxQueuedPerHost = maxQueuedPerHost;
+        this.maxQueueWait = maxQueueWait;
+        this.executor = executor;
+    }
+
+    boolean isLimited() {
+        return maxPerHost > 0;
+    }
+
+    Duration maxQueueWait() {
+        return maxQueueWait;
+    }
+
+    void acquire(URI uri, Duration timeout) throws InterruptedException, HttpTimeoutException {
+        if (isLimited() && !host(uri).permits.tryAcquire(Math.max(0, timeout.toMillis()), TimeUnit.MILLISECONDS)) {
+            throw new HttpTimeoutException(QUEUE_TIMEOUT_MESSAGE + uri.getHost());
+        }
+    }
+
+    void release(URI uri) {
+        if (isLimited()) {
+            host(uri).release();
+        }
+    }
+
+    <T> CompletableFuture<T> submit(URI uri, Deadline deadline, Supplier<CompletableFuture<T>> call) {
+        if (!isLimited()) {
+            return call.get();
+        }
+        Host host = host(uri);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                host.release();
+                return;
+            }
+            CompletableFuture<T> exchange;
+            try {
+                exchange = call.get();
+            } catch (RuntimeException e) {
+                exchange = CompletableFuture.failedFuture(e);
+            }
+            exchange.whenComplete((value, e) -> {
+                host.release();
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        if (host.permits.tryAcquire()) {
+            start.run();
+            return result;
+        }
+        if (!host.waiting.offer(start)) {
+            result.completeExceptionally(new UpstreamUnavailableException(
+                    "Too many queued requests to " + uri.getHost() + ", retry later", QUEUE_FULL_RETRY_AFTER_SECONDS));
+            return result;
+        }
+        Duration wait = deadline == null ? maxQueueWait : deadline.remaining();
+        CompletableFuture.delayedExecutor(Math.max(0, wait.toNanos()), TimeUnit.NANOSECONDS)
+                .execute(() -> result.completeExceptionally(new HttpTimeoutException(QUEUE_TIMEOUT_MESSAGE + uri.getHost())));
+        result.whenComplete((value, e) -> host.waiting.remove(start));
+        host.drain();
+        return result;
+    }
+
+    int pending() {
+        return hosts.values().stream().mapToInt(host -> host.waiting.size()).sum();
+    }
+
+    private Host host(URI uri) {
+        return hosts.computeIfAbsent(uri.getHost() + ":" + uri.getPort(), key -> new Host(maxPerHost, maxQueuedPerHost));
+    }
+
+    private final class Host {
+
+        private final Semaphore permits;
+        private final BlockingQueue<Runnable> waiting;
+
+        private Host(int permits, int maxQueued) {
+            this.permits = new Semaphore(permits);
+            this.waiting = maxQueued > 0 ? new LinkedBlockingQueue<>(maxQueued) : new SynchronousQueue<>();
+        }
+
+        private void release() {
+            Runnable next = waiting.poll();
+            if (next != null) {
+                executor.execute(next);
+                return;
+            }
+            permits.release();
+            drain();
+        }
+
+        private void drain() {
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    permits.release();
+                } else {
+                    executor.execute(next);
+                }
+            }
+        }
+    }
+}
@@ -5,9 +5,13 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.springframework.stereotype.Component;
 
+import java.net.http.HttpResponse;
+
 @Component
 public class HtmlParserUtil {
 
+    private final HttpResponse.BodyHandler<String> csrfTokenBodyHandler = new CsrfTokenBodyHandler(this::extractCsrfToken);
+
     public String extractCsrfToken(String html) {
         Document doc = Jsoup.parse(html);
         Element csrfElement = doc.selectFirst("input[name=_csrf]");
@@ -16,4 +20,8 @@ public class HtmlParserUtil {
         }
         return null;
     }
+
+    public HttpResponse.BodyHandler<String> csrfTokenBodyHandler() {
+        return csrfTokenBodyHandler;
+    }
 }
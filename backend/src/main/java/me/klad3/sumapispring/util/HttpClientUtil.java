@@ -1,142 +1,409 @@
 package me.klad3.sumapispring.util;
 
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.util.MultiValueMap;
 
 import java.io.IOException;
-import java.net.*;
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.List;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
-public class HttpClientUtil {
+public class HttpClientUtil implements MeterBinder, DisposableBean {
 
     private static final String ACCEPT_HEADER = "Accept";
     private static final String COOKIE_HEADER = "Cookie";
     private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
 
     private static final String ACCEPT_JSON = "application/json";
     private static final String ACCEPT_HTML = "text/html";
     private static final String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded";
-    private static final String BASE_URL = "https://sum.unmsm.edu.pe";
+    private static final String ACCEPT_COMPRESSED = "gzip, deflate";
+
+    private static final String LOCATION_HEADER = "Location";
+    private static final int MAX_REDIRECTS = 5;
+    private static final String DEADLINE_EXCEEDED_MESSAGE = "Request deadline exceeded";
+    private static final String THREAD_PREFIX = "sum-http-";
 
     private final HttpClient httpClient;
-    private final CookieManager cookieManager;
+    private final HostRequestLimiter requestLimiter;
+    private final ExecutorService dedicatedExecutor;
+    private final Map<String, TransferMetrics> transferMetrics = new ConcurrentHashMap<>();
+    private volatile MeterRegistry meterRegistry;
 
     public HttpClientUtil(HttpClient httpClient) {
-        this.cookieManager = new CookieManager();
-        this.cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
         this.httpClient = httpClient;
+        this.requestLimiter = new HostRequestLimiter(0, 0, Duration.ZERO, ForkJoinPool.commonPool());
+        this.dedicatedExecutor = null;
     }
 
     public HttpClientUtil() {
-        this.cookieManager = new CookieManager();
-        this.cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .cookieHandler(cookieManager)
-                .build();
+        this(false);
+    }
+
+    public HttpClientUtil(boolean virtualThreads) {
+        this(virtualThreads, HttpClient.Version.HTTP_2, 0, 0, 0, 0, 0);
+    }
+
+    @Autowired
+    public HttpClientUtil(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                          @Value("${api.upstream.http-version:HTTP_2}") HttpClient.Version version,
+                          @Value("${api.upstream.connect-timeout-millis:0}") long connectTimeoutMillis,
+                          @Value("${api.upstream.executor-threads:0}") int executorThreads,
+                          @Value("${api.upstream.max-requests-per-host:0}") int maxRequestsPerHost,
+                          @Value("${api.upstream.max-queued-per-host:0}") int maxQueuedPerHost,
+                          @Value("${api.upstream.max-queue-wait-millis:0}") long maxQueueWaitMillis) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        Executor executor = ForkJoinPool.commonPool();
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor(THREAD_PREFIX);
+            virtualExecutor.setVirtualThreads(true);
+            builder.executor(virtualExecutor);
+            executor = virtualExecutor;
+            this.dedicatedExecutor = null;
+            log.info("Cliente HTTP configurado con hilos virtuales");
+        } else if (executorThreads > 0) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.dedicatedExecutor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+                Thread thread = new Thread(runnable, THREAD_PREFIX + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            builder.executor(dedicatedExecutor);
+            executor = dedicatedExecutor;
+        } else {
+            this.dedicatedExecutor = null;
+        }
+        this.httpClient = builder.build();
+        this.requestLimiter = new HostRequestLimiter(maxRequestsPerHost, maxQueuedPerHost, Duration.ofMillis(maxQueueWaitMillis), executor);
+        log.info("Cliente HTTP: versión {}, timeout de conexión {} ms, {} hilos, máximo {} solicitudes simultáneas y {} en cola por host",
+                version, connectTimeoutMillis, virtualThreads ? "virtuales" : executorThreads, maxRequestsPerHost, maxQueuedPerHost);
+    }
+
+    public CookieJar newCookieJar() {
+        return new CookieJar();
     }
 
     public HttpResponse<String> get(String url) throws IOException, InterruptedException {
+        return get(url, newCookieJar());
+    }
+
+    public HttpResponse<String> get(String url, CookieJar cookieJar) throws IOException, InterruptedException {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .header(ACCEPT_HEADER, ACCEPT_HTML)
-                    .build();
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return send(URI.create(url), htmlGet(), cookieJar);
         } catch (IOException | InterruptedException e) {
             log.error("Error en la solicitud GET a {}: {}", url, e.getMessage());
             throw e;
         }
     }
 
+    public CompletableFuture<HttpResponse<String>> getAsync(String url, CookieJar cookieJar) {
+        return logFailure(sendAsync(URI.create(url), htmlGet(), cookieJar, 0, null),
+                "Error en la solicitud GET a {}: {}", url);
+    }
+
+    public CompletableFuture<HttpResponse<String>> getAsync(String url, CookieJar cookieJar, Duration timeout) {
+        return logFailure(sendAsync(URI.create(url), htmlGet(), cookieJar, 0, Deadline.after(timeout)),
+                "Error en la solicitud GET a {}: {}", url);
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> getAsync(String url, CookieJar cookieJar, HttpResponse.BodyHandler<T> bodyHandler, Duration timeout) {
+        return logFailure(sendAsync(URI.create(url), htmlGet(), cookieJar, bodyHandler, 0, Deadline.after(timeout)),
+                "Error en la solicitud GET a {}: {}", url);
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> getJsonAsync(String url, CookieJar cookieJar, HttpResponse.BodyHandler<T> bodyHandler, Duration timeout) {
+        return logFailure(sendAsync(URI.create(url), jsonGet(), cookieJar, bodyHandler, 0, Deadline.after(timeout)),
+                "Error en la solicitud GET a {}: {}", url);
+    }
+
     public HttpResponse<String> getWithCookies(String url, String cookies) throws IOException, InterruptedException {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .header(ACCEPT_HEADER, ACCEPT_JSON)
-                    .header(COOKIE_HEADER, cookies)
-                    .build();
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return exchange(jsonGet(url, cookies).build(), HttpResponse.BodyHandlers.ofString());
         } catch (IOException | InterruptedException e) {
             log.error("Error en la solicitud GET con cookies a {}: {}", url, e.getMessage());
             throw e;
         }
     }
 
+    public CompletableFuture<HttpResponse<String>> getWithCookiesAsync(String url, String cookies) {
+        return getWithCookiesAsync(url, cookies, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> getWithCookiesAsync(String url, String cookies, HttpResponse.BodyHandler<T> bodyHandler) {
+        return logFailure(exchangeAsync(jsonGet(url, cookies).build(), bodyHandler),
+                "Error en la solicitud GET con cookies a {}: {}", url);
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> getWithCookiesAsync(String url, String cookies, HttpResponse.BodyHandler<T> bodyHandler, Duration timeout) {
+        return logFailure(exchangeAsync(jsonGet(url, cookies), bodyHandler, Deadline.after(timeout)),
+                "Error en la solicitud GET con cookies a {}: {}", url);
+    }
+
     public HttpResponse<String> post(String url, MultiValueMap<String, String> formData) throws IOException, InterruptedException {
+        return post(url, formData, newCookieJar());
+    }
+
+    public HttpResponse<String> post(String url, MultiValueMap<String, String> formData, CookieJar cookieJar) throws IOException, InterruptedException {
         try {
-            StringBuilder formBody = new StringBuilder();
-            formData.forEach((key, values) -> {
-                for (String value : values) {
-                    if (formBody.length() > 0) {
-                        formBody.append("&");
-                    }
-                    formBody.append(key).append("=").append(value);
-                }
-            });
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .POST(HttpRequest.BodyPublishers.ofString(formBody.toString()))
-                    .header(CONTENT_TYPE_HEADER, CONTENT_TYPE_FORM)
-                    .header(ACCEPT_HEADER, ACCEPT_HTML)
-                    .build();
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return send(URI.create(url), formPost(formData), cookieJar);
         } catch (IOException | InterruptedException e) {
             log.error("Error en la solicitud POST a {}: {}", url, e.getMessage());
             throw e;
         }
     }
 
+    public CompletableFuture<HttpResponse<String>> postAsync(String url, MultiValueMap<String, String> formData, CookieJar cookieJar) {
+        return logFailure(sendAsync(URI.create(url), formPost(formData), cookieJar, 0, null),
+                "Error en la solicitud POST a {}: {}", url);
+    }
+
+    public CompletableFuture<HttpResponse<String>> postAsync(String url, MultiValueMap<String, String> formData, CookieJar cookieJar, Duration timeout) {
+        return logFailure(sendAsync(URI.create(url), formPost(formData), cookieJar, 0, Deadline.after(timeout)),
+                "Error en la solicitud POST a {}: {}", url);
+    }
+
     public HttpResponse<String> postWithCookies(String url, String body, String cookies, String contentType) throws IOException, InterruptedException {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .header(CONTENT_TYPE_HEADER, contentType)
-                    .header(ACCEPT_HEADER, ACCEPT_JSON)
-                    .header(COOKIE_HEADER, cookies)
-                    .build();
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return exchange(jsonPost(url, body, cookies, contentType), HttpResponse.BodyHandlers.ofString());
         } catch (IOException | InterruptedException e) {
             log.error("Error en la solicitud POST con cookies a {}: {}", url, e.getMessage());
             throw e;
         }
     }
 
+    public CompletableFuture<HttpResponse<String>> postWithCookiesAsync(String url, String body, String cookies, String contentType) {
+        return logFailure(exchangeAsync(jsonPost(url, body, cookies, contentType), HttpResponse.BodyHandlers.ofString()),
+                "Error en la solicitud POST con cookies a {}: {}", url);
+    }
+
+    public CompletableFuture<Long> warmUp(String url, int connections) {
+        URI uri = URI.create(url);
+        CompletableFuture<?>[] probes = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            HttpRequest probe = HttpRequest.newBuilder(uri)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .header(ACCEPT_HEADER, ACCEPT_HTML)
+                    .build();
+            probes[i] = exchangeAsync(probe, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> e == null);
+        }
+        return CompletableFuture.allOf(probes)
+                .thenApply(ignored -> Arrays.stream(probes).filter(probe -> Boolean.TRUE.equals(probe.join())).count());
+    }
+
     public String getFinalUrl(HttpResponse<?> response) {
         return response.uri().toString();
     }
 
-    public List<String> getAllCookies() {
-        return cookieManager.getCookieStore().get(URI.create(BASE_URL)).stream()
-                .map(cookie -> cookie.getName() + "=" + cookie.getValue())
-                .toList();
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        meterRegistry = registry;
+        transferMetrics.clear();
+        Gauge.builder("upstream.requests.pending", requestLimiter, HostRequestLimiter::pending)
+                .description("Solicitudes al portal SUM en cola esperando un cupo libre por host")
+                .register(registry);
     }
 
-    public void setResponseCookies(List<String> cookies) {
-        cookies.forEach(cookie -> {
-            try {
-                cookieManager.getCookieStore().add(URI.create(BASE_URL), HttpCookie.parse(cookie).get(0));
-            } catch (Exception e) {
-                log.error("Error al agregar cookie: {}", cookie, e);
+    @Override
+    public void destroy() {
+        if (dedicatedExecutor != null) {
+            dedicatedExecutor.shutdownNow();
+        }
+    }
+
+    private HttpRequest.Builder htmlGet() {
+        return HttpRequest.newBuilder()
+                .GET()
+                .header(ACCEPT_HEADER, ACCEPT_HTML)
+                .header(ACCEPT_ENCODING_HEADER, ACCEPT_COMPRESSED);
+    }
+
+    private HttpRequest.Builder formPost(MultiValueMap<String, String> formData) {
+        StringBuilder formBody = new StringBuilder();
+        formData.forEach((key, values) -> {
+            for (String value : values) {
+                if (formBody.length() > 0) {
+                    formBody.append("&");
+                }
+                formBody.append(key).append("=").append(value);
             }
         });
+        return HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(formBody.toString()))
+                .header(CONTENT_TYPE_HEADER, CONTENT_TYPE_FORM)
+                .header(ACCEPT_HEADER, ACCEPT_HTML)
+                .header(ACCEPT_ENCODING_HEADER, ACCEPT_COMPRESSED);
     }
 
-    public HttpClient getHttpClient() {
-        return httpClient;
+    private HttpRequest.Builder jsonGet() {
+        return HttpRequest.newBuilder()
+                .GET()
+                .header(ACCEPT_HEADER, ACCEPT_JSON)
+                .header(ACCEPT_ENCODING_HEADER, ACCEPT_COMPRESSED);
+    }
+
+    private HttpRequest.Builder jsonGet(String url, String cookies) {
+        return jsonGet()
+                .uri(URI.create(url))
+                .header(COOKIE_HEADER, cookies);
+    }
+
+    private HttpRequest jsonPost(String url, String body, String cookies, String contentType) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header(CONTENT_TYPE_HEADER, contentType)
+                .header(ACCEPT_HEADER, ACCEPT_JSON)
+                .header(ACCEPT_ENCODING_HEADER, ACCEPT_COMPRESSED)
+                .header(COOKIE_HEADER, cookies)
+                .build();
+    }
+
+    private HttpResponse<String> send(URI uri, HttpRequest.Builder requestBuilder, CookieJar cookieJar) throws IOException, InterruptedException {
+        HttpResponse<String> response = exchange(withCookies(uri, requestBuilder, cookieJar).build(), HttpResponse.BodyHandlers.ofString());
+        cookieJar.store(uri, response.headers());
+        for (int redirects = 0; redirects < MAX_REDIRECTS; redirects++) {
+            Optional<URI> location = redirectLocation(uri, response);
+            if (location.isEmpty()) {
+                break;
+            }
+            uri = location.get();
+            requestBuilder = redirectRequest(response.statusCode(), requestBuilder);
+            response = exchange(withCookies(uri, requestBuilder, cookieJar).build(), HttpResponse.BodyHandlers.ofString());
+            cookieJar.store(uri, response.headers());
+        }
+        return response;
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(URI uri, HttpRequest.Builder requestBuilder, CookieJar cookieJar, int redirects, Deadline deadline) {
+        return sendAsync(uri, requestBuilder, cookieJar, HttpResponse.BodyHandlers.ofString(), redirects, deadline);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(URI uri, HttpRequest.Builder requestBuilder, CookieJar cookieJar,
+                                                             HttpResponse.BodyHandler<T> bodyHandler, int redirects, Deadline deadline) {
+        return exchangeAsync(withCookies(uri, requestBuilder, cookieJar), bodyHandler, deadline)
+                .thenCompose(response -> {
+                    cookieJar.store(uri, response.headers());
+                    Optional<URI> location = redirects < MAX_REDIRECTS ? redirectLocation(uri, response) : Optional.empty();
+                    return location.isPresent()
+                            ? sendAsync(location.get(), redirectRequest(response.statusCode(), requestBuilder), cookieJar, bodyHandler, redirects + 1, deadline)
+                            : CompletableFuture.completedFuture(response);
+                });
+    }
+
+    private <T> HttpResponse<T> exchange(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        requestLimiter.acquire(request.uri(), request.timeout().orElse(requestLimiter.maxQueueWait()));
+        try {
+            return httpClient.send(request, decompressing(request.uri(), bodyHandler));
+        } finally {
+            requestLimiter.release(request.uri());
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(HttpRequest.Builder requestBuilder, HttpResponse.BodyHandler<T> bodyHandler, Deadline deadline) {
+        if (deadline == null) {
+            return exchangeAsync(requestBuilder.build(), bodyHandler);
+        }
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new HttpTimeoutException(DEADLINE_EXCEEDED_MESSAGE));
+        }
+        URI uri = requestBuilder.build().uri();
+        return requestLimiter.submit(uri, deadline, () -> {
+            if (deadline.isExpired()) {
+                return CompletableFuture.failedFuture(new HttpTimeoutException(DEADLINE_EXCEEDED_MESSAGE));
+            }
+            return httpClient.sendAsync(requestBuilder.timeout(deadline.remaining()).build(), decompressing(uri, bodyHandler));
+        });
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        return requestLimiter.submit(request.uri(), null, () -> httpClient.sendAsync(request, decompressing(request.uri(), bodyHandler)));
+    }
+
+    private <T> HttpResponse.BodyHandler<T> decompressing(URI uri, HttpResponse.BodyHandler<T> bodyHandler) {
+        String endpoint = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        return new DecompressingBodyHandler<>(bodyHandler, this::transferMetrics, endpoint);
+    }
+
+    private TransferMetrics transferMetrics(String endpoint, String encoding) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return null;
+        }
+        return transferMetrics.computeIfAbsent(endpoint + " " + encoding,
+                key -> new TransferMetrics(registry, endpoint, encoding));
+    }
+
+    private HttpRequest.Builder withCookies(URI uri, HttpRequest.Builder requestBuilder, CookieJar cookieJar) {
+        cookieJar.cookieHeader(uri).ifPresent(cookies -> requestBuilder.setHeader(COOKIE_HEADER, cookies));
+        return requestBuilder.uri(uri);
+    }
+
+    private HttpRequest.Builder redirectRequest(int statusCode, HttpRequest.Builder requestBuilder) {
+        if (statusCode == 307 || statusCode == 308) {
+            return HttpRequest.newBuilder(requestBuilder.build(), (name, value) -> !COOKIE_HEADER.equalsIgnoreCase(name));
+        }
+        return htmlGet();
+    }
+
+    private static Optional<URI> redirectLocation(URI uri, HttpResponse<?> response) {
+        if (!isRedirect(response.statusCode())) {
+            return Optional.empty();
+        }
+        return response.headers().firstValue(LOCATION_HEADER)
+                .map(uri::resolve)
+                .filter(location -> !isDowngrade(uri, location));
+    }
+
+    private static <T> CompletableFuture<T> logFailure(CompletableFuture<T> future, String message, String url) {
+        return future.whenComplete((result, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error(message, url, cause.getMessage());
+            }
+        });
+    }
+
+    private static boolean isRedirect(int statusCode) {
+        return statusCode == 301 || statusCode == 302 || statusCode == 303 || statusCode == 307 || statusCode == 308;
     }
 
-    public CookieManager getCookieManager() {
-        return cookieManager;
+    private static boolean isDowngrade(URI from, URI to) {
+        return "https".equalsIgnoreCase(from.getScheme()) && !"https".equalsIgnoreCase(to.getScheme());
     }
 }
@@ -0,0 +1,35 @@
+package me.klad3.sumapispring.util;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.util.function.Supplier;
+
+public class JsonBodyHandler<T> implements HttpResponse.BodyHandler<Supplier<T>> {
+
+    private final ObjectReader reader;
+
+    public JsonBodyHandler(ObjectReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<Supplier<T>> apply(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.replacing(() -> null);
+        }
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), this::decoder);
+    }
+
+    private Supplier<T> decoder(byte[] body) {
+        return () -> {
+            try {
+                return reader.readValue(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
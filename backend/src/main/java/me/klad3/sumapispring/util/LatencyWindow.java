@@ -0,0 +1,36 @@
+package me.klad3.sumapispring.util;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+class LatencyWindow {
+
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity, int minSamples) {
+        this.samples = new long[capacity];
+        this.minSamples = minSamples;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    OptionalLong percentile(double percentile) {
+        long[] snapshot;
+        synchronized (this) {
+            if (size < minSamples || size == 0) {
+                return OptionalLong.empty();
+            }
+            snapshot = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(snapshot);
+        int index = (int) Math.ceil(percentile * snapshot.length) - 1;
+        return OptionalLong.of(snapshot[Math.max(0, Math.min(index, snapshot.length - 1))]);
+    }
+}
@@ -0,0 +1,158 @@
+package me.klad3.sumapispring.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.klad3.sumapispring.exception.AuthenticationException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+@Component
+public class LoginFailureGuard implements MeterBinder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_KEY_LENGTH = 32;
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final boolean enabled;
+    private final int freeAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final Clock clock;
+    private final SecretKeySpec digestKey;
+    private final Cache<String, Boolean> rejectedCredentials;
+    private final Cache<String, FailureCounter> failures;
+    private volatile OutcomeCounters requests = OutcomeCounters.NONE;
+
+    @Autowired
+    public LoginFailureGuard(@Value("${api.upstream.login-guard.enabled:true}") boolean enabled,
+                             @Value("${api.upstream.login-guard.max-size:100000}") long maxSize,
+                             @Value("${api.upstream.login-guard.negative-ttl-seconds:60}") long negativeTtlSeconds,
+                             @Value("${api.upstream.login-guard.failure-window-seconds:900}") long failureWindowSeconds,
+                             @Value("${api.upstream.login-guard.free-attempts:3}") int freeAttempts,
+                             @Value("${api.upstream.login-guard.backoff-base-millis:1000}") long backoffBaseMillis,
+                             @Value("${api.upstream.login-guard.backoff-max-millis:300000}") long backoffMaxMillis) {
+        this(enabled, maxSize, negativeTtlSeconds, failureWindowSeconds, freeAttempts, backoffBaseMillis, backoffMaxMillis,
+                Clock.systemUTC());
+    }
+
+    LoginFailureGuard(boolean enabled, long maxSize, long negativeTtlSeconds, long failureWindowSeconds, int freeAttempts,
+                      long backoffBaseMillis, long backoffMaxMillis, Clock clock) {
+        this.enabled = enabled;
+        this.freeAttempts = freeAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.clock = clock;
+        byte[] secret = new byte[DIGEST_KEY_LENGTH];
+        new SecureRandom().nextBytes(secret);
+        this.digestKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.rejectedCredentials = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .build();
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofSeconds(failureWindowSeconds))
+                .build();
+    }
+
+    public void check(String client, String username, String password) {
+        if (!enabled) {
+            return;
+        }
+        if (rejectedCredentials.getIfPresent(credentialKey(username, password)) != null) {
+            requests.increment("cached");
+            throw new AuthenticationException("Invalid credentials");
+        }
+        FailureCounter counter = failures.getIfPresent(failureKey(client, username));
+        long waitMillis = counter == null ? 0 : counter.remainingBackoff(clock.millis());
+        if (waitMillis > 0) {
+            requests.increment("throttled");
+            throw new RateLimitExceededException("Too many failed login attempts", Math.max(1, (waitMillis + 999) / 1000));
+        }
+    }
+
+    public void recordFailure(String client, String username, String password) {
+        if (!enabled) {
+            return;
+        }
+        rejectedCredentials.put(credentialKey(username, password), Boolean.TRUE);
+        failures.get(failureKey(client, username), ignored -> new FailureCounter()).fail(clock.millis());
+        requests.increment("rejected");
+    }
+
+    public void recordSuccess(String client, String username) {
+        if (enabled) {
+            failures.invalidate(failureKey(client, username));
+        }
+    }
+
+    long backingOff() {
+        long now = clock.millis();
+        return failures.asMap().values().stream()
+                .filter(counter -> counter.remainingBackoff(now) > 0)
+                .count();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        requests = OutcomeCounters.register(registry, "upstream.login.guard.requests",
+                "Logins con credenciales inválidas respondidos sin llamar al portal SUM o rechazados por él",
+                "cached", "throttled", "rejected");
+        Gauge.builder("upstream.login.guard.backoff", this, LoginFailureGuard::backingOff)
+                .description("Pares de cliente de la API y usuario del portal SUM con logins bloqueados temporalmente por fallos repetidos")
+                .register(registry);
+    }
+
+    private long backoffMillis(int failures) {
+        int exponent = Math.min(failures - freeAttempts - 1, MAX_BACKOFF_SHIFT);
+        return exponent < 0 ? 0 : Math.min(backoffMaxMillis, backoffBaseMillis << exponent);
+    }
+
+    private static String failureKey(String client, String username) {
+        return (client == null ? "" : client) + '\n' + username;
+    }
+
+    private String credentialKey(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return ENCODER.encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private final class FailureCounter {
+
+        private int failures;
+        private long blockedUntilMillis;
+
+        private synchronized void fail(long now) {
+            failures++;
+            blockedUntilMillis = now + backoffMillis(failures);
+        }
+
+        private synchronized long remainingBackoff(long now) {
+            return blockedUntilMillis - now;
+        }
+    }
+}
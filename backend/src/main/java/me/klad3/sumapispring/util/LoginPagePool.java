@@ -0,0 +1,127 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class LoginPagePool implements MeterBinder {
+
+    private static final String LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
+
+    private final HttpClientUtil httpClientUtil;
+    private final HtmlParserUtil htmlParserUtil;
+    private final UpstreamResilience upstreamResilience;
+    private final boolean enabled;
+    private final int size;
+    private final long ttlNanos;
+    private final Duration refillTimeout;
+    private final Deque<PreparedLogin> ready = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger demand = new AtomicInteger();
+    private volatile OutcomeCounters requests = OutcomeCounters.NONE;
+
+    public LoginPagePool(HttpClientUtil httpClientUtil,
+                         HtmlParserUtil htmlParserUtil,
+                         UpstreamResilience upstreamResilience,
+                         @Value("${api.upstream.login-pool.enabled:false}") boolean enabled,
+                         @Value("${api.upstream.login-pool.size:8}") int size,
+                         @Value("${api.upstream.login-pool.ttl-seconds:60}") long ttlSeconds,
+                         @Value("${api.upstream.login-pool.refill-timeout-millis:8000}") long refillTimeoutMillis) {
+        this.httpClientUtil = httpClientUtil;
+        this.htmlParserUtil = htmlParserUtil;
+        this.upstreamResilience = upstreamResilience;
+        this.enabled = enabled;
+        this.size = size;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.refillTimeout = Duration.ofMillis(refillTimeoutMillis);
+    }
+
+    public Optional<PreparedLogin> take() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        demand.incrementAndGet();
+        PreparedLogin prepared;
+        while ((prepared = ready.pollLast()) != null) {
+            if (!isExpired(prepared)) {
+                requests.increment("hit");
+                return Optional.of(prepared);
+            }
+            requests.increment("expired");
+        }
+        requests.increment("miss");
+        return Optional.empty();
+    }
+
+    public void recordStale() {
+        requests.increment("stale");
+    }
+
+    @Scheduled(initialDelayString = "${api.upstream.login-pool.refill-interval-ms:1000}",
+            fixedDelayString = "${api.upstream.login-pool.refill-interval-ms:1000}")
+    public void refill() {
+        if (!enabled) {
+            return;
+        }
+        ready.removeIf(this::isExpired);
+        int target = Math.min(size, demand.getAndSet(0));
+        int missing = target - ready.size() - pending.get();
+        for (int i = 0; i < missing; i++) {
+            prefetch();
+        }
+    }
+
+    int available() {
+        return ready.size();
+    }
+
+    CompletableFuture<Void> prefetch() {
+        pending.incrementAndGet();
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        return upstreamResilience.call(UpstreamEndpoint.LOGIN_PAGE, Deadline.after(refillTimeout),
+                        timeout -> httpClientUtil.getAsync(LOGIN_URL, cookieJar, htmlParserUtil.csrfTokenBodyHandler(), timeout))
+                .thenAccept(response -> {
+                    String csrfToken = response.statusCode() == 200 ? response.body() : null;
+                    if (csrfToken != null) {
+                        ready.offerLast(new PreparedLogin(cookieJar, csrfToken, System.nanoTime()));
+                    }
+                })
+                .exceptionally(e -> {
+                    log.debug("No se pudo precargar la página de login del portal SUM: {}", e.getMessage());
+                    return null;
+                })
+                .whenComplete((ignored, e) -> pending.decrementAndGet());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        requests = OutcomeCounters.register(registry, "upstream.login.pool.requests",
+                "Logins según si usaron una página precargada o tuvieron que descargarla",
+                "hit", "expired", "miss", "stale");
+        Gauge.builder("upstream.login.pool.size", this, LoginPagePool::available)
+                .description("Páginas de login precargadas con token CSRF listas para usar")
+                .register(registry);
+    }
+
+    private boolean isExpired(PreparedLogin prepared) {
+        return System.nanoTime() - prepared.preparedAtNanos() >= ttlNanos;
+    }
+
+    public record PreparedLogin(CookieJar cookieJar, String csrfToken, long preparedAtNanos) {
+    }
+}
@@ -0,0 +1,43 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class OutcomeCounters {
+
+    public static final OutcomeCounters NONE = new OutcomeCounters(Map.of());
+
+    private final Map<String, Counter> counters;
+
+    private OutcomeCounters(Map<String, Counter> counters) {
+        this.counters = counters;
+    }
+
+    public static OutcomeCounters register(MeterRegistry registry, String name, String description, String... outcomes) {
+        return register(registry, name, description, Tags.empty(), outcomes);
+    }
+
+    public static OutcomeCounters register(MeterRegistry registry, String name, String description, Tags tags,
+                                           String... outcomes) {
+        Map<String, Counter> counters = new HashMap<>();
+        for (String outcome : outcomes) {
+            counters.put(outcome, Counter.builder(name)
+                    .description(description)
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+        return new OutcomeCounters(Map.copyOf(counters));
+    }
+
+    public void increment(String outcome) {
+        Counter counter = counters.get(outcome);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
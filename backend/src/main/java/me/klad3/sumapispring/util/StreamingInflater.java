@@ -0,0 +1,168 @@
+package me.klad3.sumapispring.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+class StreamingInflater {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private byte[] pending = new byte[0];
+    private boolean trailerVerified;
+
+    private StreamingInflater(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    static StreamingInflater gzip() {
+        return new StreamingInflater(true);
+    }
+
+    static StreamingInflater deflate() {
+        return new StreamingInflater(false);
+    }
+
+    List<ByteBuffer> inflate(ByteBuffer input) throws IOException {
+        byte[] bytes = new byte[input.remaining()];
+        input.get(bytes);
+        List<ByteBuffer> output = new ArrayList<>();
+        if (inflater == null) {
+            pending = concat(pending, bytes);
+            int headerLength = gzip ? gzipHeaderLength(pending) : (pending.length > 0 ? 0 : -1);
+            if (headerLength < 0) {
+                return output;
+            }
+            inflater = new Inflater(gzip || !isZlibHeader(pending[0]));
+            bytes = Arrays.copyOfRange(pending, headerLength, pending.length);
+            pending = new byte[0];
+        }
+        if (inflater.finished()) {
+            readTrailer(bytes);
+            return output;
+        }
+        inflater.setInput(bytes);
+        try {
+            while (!inflater.finished() && !inflater.needsInput()) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int inflated = inflater.inflate(chunk);
+                if (inflated > 0) {
+                    crc.update(chunk, 0, inflated);
+                    output.add(ByteBuffer.wrap(chunk, 0, inflated));
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Compressed body requires a preset dictionary");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        if (inflater.finished() && inflater.getRemaining() > 0) {
+            readTrailer(Arrays.copyOfRange(bytes, bytes.length - inflater.getRemaining(), bytes.length));
+        }
+        return output;
+    }
+
+    void finish() throws IOException {
+        if (inflater == null || !inflater.finished() || (gzip && !trailerVerified)) {
+            throw new EOFException("Compressed body ended unexpectedly");
+        }
+    }
+
+    void close() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private void readTrailer(byte[] bytes) throws IOException {
+        if (!gzip || trailerVerified) {
+            return;
+        }
+        pending = concat(pending, bytes);
+        if (pending.length < GZIP_TRAILER_SIZE) {
+            return;
+        }
+        if (readInt(pending, 0) != (int) crc.getValue() || readInt(pending, 4) != (int) inflater.getBytesWritten()) {
+            throw new ZipException("Corrupt gzip trailer");
+        }
+        trailerVerified = true;
+        pending = new byte[0];
+    }
+
+    private static int gzipHeaderLength(byte[] header) throws IOException {
+        if (header.length < GZIP_HEADER_SIZE) {
+            return -1;
+        }
+        if (readShort(header, 0) != GZIP_MAGIC || header[2] != 8) {
+            throw new ZipException("Not in gzip format");
+        }
+        int flags = header[3] & 0xff;
+        int position = GZIP_HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            if (header.length < position + 2) {
+                return -1;
+            }
+            position += 2 + readShort(header, position);
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(header, position);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipZeroTerminated(header, position);
+        }
+        if ((flags & FHCRC) != 0 && position >= 0) {
+            position += 2;
+        }
+        return position >= 0 && position <= header.length ? position : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] header, int position) {
+        if (position < 0) {
+            return position;
+        }
+        for (int i = position; i < header.length; i++) {
+            if (header[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isZlibHeader(byte first) {
+        return (first & 0x0f) == 8 && ((first & 0xff) >> 4) <= 7;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
@@ -0,0 +1,39 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+class TransferMetrics {
+
+    private static final String METRIC_PREFIX = "upstream.response";
+
+    private final DistributionSummary wireBytes;
+    private final DistributionSummary bodyBytes;
+    private final Timer decompressionTimer;
+
+    TransferMetrics(MeterRegistry registry, String endpoint, String encoding) {
+        wireBytes = DistributionSummary.builder(METRIC_PREFIX + ".wire.bytes")
+                .description("Bytes recibidos del portal SUM antes de descomprimir")
+                .baseUnit("bytes")
+                .tags("endpoint", endpoint, "encoding", encoding)
+                .register(registry);
+        bodyBytes = DistributionSummary.builder(METRIC_PREFIX + ".body.bytes")
+                .description("Bytes del cuerpo de respuesta del portal SUM tras descomprimir")
+                .baseUnit("bytes")
+                .tags("endpoint", endpoint, "encoding", encoding)
+                .register(registry);
+        decompressionTimer = Timer.builder(METRIC_PREFIX + ".decompression")
+                .description("Tiempo dedicado a descomprimir respuestas del portal SUM")
+                .tags("endpoint", endpoint, "encoding", encoding)
+                .register(registry);
+    }
+
+    void record(long wire, long body, long decompressionNanos) {
+        wireBytes.record(wire);
+        bodyBytes.record(body);
+        decompressionTimer.record(decompressionNanos, TimeUnit.NANOSECONDS);
+    }
+}
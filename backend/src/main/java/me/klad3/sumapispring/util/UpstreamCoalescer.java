@@ -0,0 +1,162 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+@Component
+public class UpstreamCoalescer implements MeterBinder {
+
+    private static final String LEADER = "leader";
+    private static final String COALESCED = "coalesced";
+    private static final String BYPASSED = "bypassed";
+    private static final String REUSED = "reused";
+    private static final String DEADLINE_EXCEEDED_MESSAGE = "SUM portal did not respond within the request deadline";
+
+    private final UpstreamTimeouts upstreamTimeouts;
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final Duration loginRetention;
+    private final Map<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private volatile Map<UpstreamEndpoint, OutcomeCounters> requests = Map.of();
+
+    public UpstreamCoalescer(UpstreamTimeouts upstreamTimeouts,
+                             @Value("${api.upstream.coalescing.enabled:true}") boolean enabled,
+                             @Value("${api.upstream.coalescing.max-in-flight:1000}") int maxInFlight,
+                             @Value("${api.upstream.coalescing.login-retain-millis:2000}") long loginRetainMillis) {
+        this.upstreamTimeouts = upstreamTimeouts;
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.loginRetention = Duration.ofMillis(loginRetainMillis);
+    }
+
+    public <T> CompletableFuture<T> coalesce(UpstreamEndpoint endpoint, String key, Deadline deadline,
+                                             Function<Deadline, CompletableFuture<T>> call) {
+        return coalesce(endpoint, key, deadline, Duration.ZERO, call);
+    }
+
+    public <T> CompletableFuture<T> coalesceLogin(String username, String password, Deadline deadline,
+                                                  Function<Deadline, CompletableFuture<T>> call) {
+        return coalesce(UpstreamEndpoint.LOGIN_SUBMIT, loginKey(username, password), deadline, loginRetention, call);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> coalesce(UpstreamEndpoint endpoint, String key, Deadline deadline, Duration retention,
+                                              Function<Deadline, CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.apply(deadline);
+        }
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE));
+        }
+        Key inFlightKey = new Key(endpoint, key);
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.get(inFlightKey);
+        if (existing != null) {
+            count(endpoint, existing.isDone() ? REUSED : COALESCED);
+            return follow(existing, deadline);
+        }
+        if (inFlight.size() >= maxInFlight) {
+            count(endpoint, BYPASSED);
+            return call.apply(deadline);
+        }
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        existing = (CompletableFuture<T>) inFlight.putIfAbsent(inFlightKey, shared);
+        if (existing != null) {
+            count(endpoint, COALESCED);
+            return follow(existing, deadline);
+        }
+        count(endpoint, LEADER);
+        CompletableFuture<T> exchange;
+        try {
+            exchange = call.apply(upstreamTimeouts.sharedDeadline(deadline));
+        } catch (RuntimeException e) {
+            exchange = CompletableFuture.failedFuture(e);
+        }
+        exchange.whenComplete((result, e) -> {
+            if (e == null && !retention.isZero() && !retention.isNegative()) {
+                shared.complete(result);
+                CompletableFuture.delayedExecutor(retention.toNanos(), TimeUnit.NANOSECONDS)
+                        .execute(() -> inFlight.remove(inFlightKey, shared));
+                return;
+            }
+            inFlight.remove(inFlightKey, shared);
+            if (e == null) {
+                shared.complete(result);
+            } else {
+                shared.completeExceptionally(e);
+            }
+        });
+        return follow(shared, deadline);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Map<UpstreamEndpoint, OutcomeCounters> counters = new EnumMap<>(UpstreamEndpoint.class);
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            counters.put(endpoint, OutcomeCounters.register(registry, "upstream.coalescing.requests",
+                    "Solicitudes al portal SUM según si iniciaron, compartieron, reutilizaron u omitieron una llamada en curso",
+                    Tags.of("endpoint", endpoint.getBreakerName()), LEADER, COALESCED, BYPASSED, REUSED));
+        }
+        requests = counters;
+        Gauge.builder("upstream.coalescing.in.flight", this, UpstreamCoalescer::inFlight)
+                .description("Llamadas al portal SUM en curso que pueden compartirse")
+                .register(registry);
+    }
+
+    private static <T> CompletableFuture<T> follow(CompletableFuture<T> shared, Deadline deadline) {
+        Duration remaining = deadline.remaining();
+        if (remaining.isNegative() || remaining.isZero()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE));
+        }
+        return shared.copy()
+                .orTimeout(remaining.toNanos(), TimeUnit.NANOSECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        throw new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE, cause);
+                    }
+                    throw e instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+                });
+    }
+
+    private static String loginKey(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return username + "\n" + Base64.getEncoder().encodeToString(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void count(UpstreamEndpoint endpoint, String outcome) {
+        requests.getOrDefault(endpoint, OutcomeCounters.NONE).increment(outcome);
+    }
+
+    private record Key(UpstreamEndpoint endpoint, String key) {
+    }
+}
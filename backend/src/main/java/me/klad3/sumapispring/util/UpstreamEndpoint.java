@@ -0,0 +1,21 @@
+package me.klad3.sumapispring.util;
+
+import lombok.Getter;
+
+@Getter
+public enum UpstreamEndpoint {
+
+    LOGIN_PAGE("login-page", "login"),
+    LOGIN_SUBMIT("login-submit", "login"),
+    SESSION_RESTART("session-restart", "login"),
+    SESSION_KEEP_ALIVE("session-keep-alive", "login"),
+    COURSES("courses", "courses");
+
+    private final String breakerName;
+    private final String bulkheadName;
+
+    UpstreamEndpoint(String breakerName, String bulkheadName) {
+        this.breakerName = breakerName;
+        this.bulkheadName = bulkheadName;
+    }
+}
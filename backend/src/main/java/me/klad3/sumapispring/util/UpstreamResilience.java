@@ -0,0 +1,154 @@
+package me.klad3.sumapispring.util;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+public class UpstreamResilience implements MeterBinder {
+
+    private static final String LOGIN_BULKHEAD = "login";
+    private static final String COURSES_BULKHEAD = "courses";
+    private static final String DEADLINE_EXCEEDED_MESSAGE = "SUM portal did not respond within the request deadline";
+
+    private final UpstreamTimeouts upstreamTimeouts;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final Map<UpstreamEndpoint, CircuitBreaker> circuitBreakers = new EnumMap<>(UpstreamEndpoint.class);
+    private final long waitDurationOpenSeconds;
+    private final long bulkheadRetryAfterSeconds;
+
+    public UpstreamResilience(UpstreamTimeouts upstreamTimeouts,
+                              @Value("${api.upstream.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                              @Value("${api.upstream.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+                              @Value("${api.upstream.circuit-breaker.slow-call-duration-threshold-millis:5000}") long slowCallDurationMillis,
+                              @Value("${api.upstream.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                              @Value("${api.upstream.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+                              @Value("${api.upstream.circuit-breaker.wait-duration-open-seconds:30}") long waitDurationOpenSeconds,
+                              @Value("${api.upstream.circuit-breaker.permitted-calls-half-open:3}") int permittedCallsHalfOpen,
+                              @Value("${api.upstream.bulkhead.login.max-concurrent-calls:32}") int loginMaxConcurrent,
+                              @Value("${api.upstream.bulkhead.courses.max-concurrent-calls:32}") int coursesMaxConcurrent,
+                              @Value("${api.upstream.bulkhead.retry-after-seconds:1}") long bulkheadRetryAfterSeconds) {
+        this.upstreamTimeouts = upstreamTimeouts;
+        this.waitDurationOpenSeconds = waitDurationOpenSeconds;
+        this.bulkheadRetryAfterSeconds = bulkheadRetryAfterSeconds;
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMillis))
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(Duration.ofSeconds(waitDurationOpenSeconds))
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsHalfOpen)
+                .recordResult(result -> result instanceof HttpResponse<?> response && response.statusCode() >= 500)
+                .build();
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+        this.bulkheadRegistry = BulkheadRegistry.ofDefaults();
+        bulkheadRegistry.bulkhead(LOGIN_BULKHEAD, bulkheadConfig(loginMaxConcurrent));
+        bulkheadRegistry.bulkhead(COURSES_BULKHEAD, bulkheadConfig(coursesMaxConcurrent));
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(endpoint.getBreakerName());
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Circuito del portal SUM '{}': {}", event.getCircuitBreakerName(), event.getStateTransition()));
+            circuitBreakers.put(endpoint, circuitBreaker);
+        }
+    }
+
+    public <T> CompletableFuture<T> call(UpstreamEndpoint endpoint, Deadline deadline, Function<Duration, CompletableFuture<T>> call) {
+        Duration callTimeout = upstreamTimeouts.callTimeout(endpoint);
+        Duration timeout = upstreamTimeouts.timeout(endpoint, deadline);
+        boolean limitedByDeadline = timeout.compareTo(callTimeout) < 0;
+        if (timeout.isNegative() || timeout.isZero()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE));
+        }
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(endpoint.getBulkheadName());
+        if (!bulkhead.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException(
+                    "Too many concurrent requests to the SUM portal, retry later", bulkheadRetryAfterSeconds));
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.releasePermission();
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException(
+                    "SUM portal is unavailable, retry later", waitDurationOpenSeconds));
+        }
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> exchange;
+        try {
+            exchange = call.apply(timeout);
+        } catch (RuntimeException e) {
+            exchange = CompletableFuture.failedFuture(e);
+        }
+        return exchange.handle((result, e) -> {
+            bulkhead.onComplete();
+            long duration = System.nanoTime() - startedAt;
+            if (e == null) {
+                upstreamTimeouts.record(endpoint, duration);
+                circuitBreaker.onResult(duration, TimeUnit.NANOSECONDS, result);
+                return result;
+            }
+            Throwable cause = unwrap(e);
+            if (cause instanceof UpstreamUnavailableException) {
+                circuitBreaker.releasePermission();
+                throw e instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+            }
+            if (cause instanceof HttpTimeoutException) {
+                if (limitedByDeadline) {
+                    circuitBreaker.releasePermission();
+                } else {
+                    circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, cause);
+                    upstreamTimeouts.record(endpoint, duration);
+                }
+                throw new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE, cause);
+            }
+            circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, cause);
+            throw e instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+        });
+    }
+
+    public CircuitBreaker.State state(UpstreamEndpoint endpoint) {
+        return circuitBreakers.get(endpoint).getState();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(registry);
+    }
+
+    private static BulkheadConfig bulkheadConfig(int maxConcurrentCalls) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
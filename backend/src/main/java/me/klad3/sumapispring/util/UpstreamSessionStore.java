@@ -0,0 +1,322 @@
+package me.klad3.sumapispring.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class UpstreamSessionStore implements MeterBinder {
+
+    private static final String LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
+    private static final URI SESSION_URI = URI.create("https://sum.unmsm.edu.pe/");
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final byte[] ENCRYPTION_LABEL = "sum-api-upstream-session-encryption:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DIGEST_LABEL = "sum-api-upstream-session-digest:".getBytes(StandardCharsets.UTF_8);
+    private static final int MIN_ENCRYPTION_KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final String COOKIE_SEPARATOR = "\n";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final HttpClientUtil httpClientUtil;
+    private final UpstreamResilience upstreamResilience;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final long validateAfterMillis;
+    private final int keepAliveConcurrency;
+    private final Duration keepAliveTimeout;
+    private final String probeUrl;
+    private final Clock clock;
+    private final SecretKeySpec encryptionKey;
+    private final SecretKeySpec digestKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Cache<String, StoredSession> sessions;
+    private final AtomicBoolean keepAliveRunning = new AtomicBoolean();
+    private volatile OutcomeCounters requests = OutcomeCounters.NONE;
+    private volatile OutcomeCounters keepAlives = OutcomeCounters.NONE;
+
+    @Autowired
+    public UpstreamSessionStore(HttpClientUtil httpClientUtil,
+                                UpstreamResilience upstreamResilience,
+                                @Value("${api.upstream.session-store.enabled:false}") boolean enabled,
+                                @Value("${api.upstream.session-store.encryption-key:}") String encryptionKey,
+                                @Value("${api.upstream.session-store.max-size:10000}") long maxSize,
+                                @Value("${api.upstream.session-store.ttl-seconds:1800}") long ttlSeconds,
+                                @Value("${api.upstream.session-store.validate-after-seconds:60}") long validateAfterSeconds,
+                                @Value("${api.upstream.session-store.keep-alive-concurrency:4}") int keepAliveConcurrency,
+                                @Value("${api.upstream.session-store.keep-alive-timeout-millis:8000}") long keepAliveTimeoutMillis,
+                                @Value("${api.upstream.session-store.probe-url:https://sum.unmsm.edu.pe/alumnoWebSum/inicio}") String probeUrl) {
+        this(httpClientUtil, upstreamResilience, enabled, encryptionKey, maxSize, ttlSeconds, validateAfterSeconds,
+                keepAliveConcurrency, keepAliveTimeoutMillis, probeUrl, Clock.systemUTC());
+    }
+
+    UpstreamSessionStore(HttpClientUtil httpClientUtil, UpstreamResilience upstreamResilience, boolean enabled,
+                         String encryptionKey, long maxSize, long ttlSeconds, long validateAfterSeconds,
+                         int keepAliveConcurrency, long keepAliveTimeoutMillis, String probeUrl, Clock clock) {
+        if (enabled && (encryptionKey == null || encryptionKey.length() < MIN_ENCRYPTION_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Upstream session encryption key must be at least " + MIN_ENCRYPTION_KEY_LENGTH + " characters long");
+        }
+        this.httpClientUtil = httpClientUtil;
+        this.upstreamResilience = upstreamResilience;
+        this.enabled = enabled;
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.validateAfterMillis = Duration.ofSeconds(validateAfterSeconds).toMillis();
+        this.keepAliveConcurrency = Math.max(1, keepAliveConcurrency);
+        this.keepAliveTimeout = Duration.ofMillis(keepAliveTimeoutMillis);
+        this.probeUrl = probeUrl;
+        this.clock = clock;
+        byte[] secret = (encryptionKey == null ? "" : encryptionKey).getBytes(StandardCharsets.UTF_8);
+        this.encryptionKey = new SecretKeySpec(sha256(ENCRYPTION_LABEL, secret), "AES");
+        this.digestKey = new SecretKeySpec(sha256(DIGEST_LABEL, secret), HMAC_ALGORITHM);
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public CompletableFuture<Optional<List<String>>> find(String username, String password, Deadline deadline) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        String key = key(username);
+        StoredSession session = sessions.getIfPresent(key);
+        if (session == null) {
+            requests.increment("miss");
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        if (!MessageDigest.isEqual(session.credentialDigest(), credentialDigest(username, password))) {
+            requests.increment("mismatch");
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        long now = clock.millis();
+        if (isExpired(session, now)) {
+            sessions.asMap().remove(key, session);
+            requests.increment("expired");
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        List<String> cookies = open(key, session.sealedCookies());
+        if (now - session.validatedAtMillis() < validateAfterMillis) {
+            requests.increment("hit");
+            return CompletableFuture.completedFuture(Optional.of(cookies));
+        }
+        return probe(cookies, deadline)
+                .thenApply(alive -> {
+                    if (!alive) {
+                        sessions.asMap().remove(key, session);
+                        requests.increment("dead");
+                        return Optional.<List<String>>empty();
+                    }
+                    sessions.asMap().replace(key, session, session.validatedAt(clock.millis()));
+                    requests.increment("validated");
+                    return Optional.of(cookies);
+                })
+                .exceptionally(e -> {
+                    log.debug("No se pudo validar la sesión guardada del portal SUM: {}", e.getMessage());
+                    requests.increment("unverified");
+                    return Optional.empty();
+                });
+    }
+
+    public void save(String username, String password, List<String> cookies) {
+        if (!enabled || cookies == null || cookies.isEmpty()) {
+            return;
+        }
+        String key = key(username);
+        long now = clock.millis();
+        sessions.put(key, new StoredSession(seal(key, cookies), credentialDigest(username, password), now, now));
+    }
+
+    public void invalidate(String username) {
+        if (enabled) {
+            sessions.invalidate(key(username));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${api.upstream.session-store.keep-alive-interval-ms:240000}",
+            fixedDelayString = "${api.upstream.session-store.keep-alive-interval-ms:240000}")
+    public void keepAlive() {
+        if (!keepAliveRunning.compareAndSet(false, true)) {
+            log.debug("La renovación anterior de sesiones del portal SUM sigue en curso, se omite esta ejecución");
+            return;
+        }
+        CompletableFuture<Void> run;
+        try {
+            run = keepAliveAll();
+        } catch (RuntimeException e) {
+            keepAliveRunning.set(false);
+            throw e;
+        }
+        run.whenComplete((ignored, e) -> keepAliveRunning.set(false));
+    }
+
+    long size() {
+        sessions.cleanUp();
+        return sessions.estimatedSize();
+    }
+
+    CompletableFuture<Void> keepAliveAll() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long now = clock.millis();
+        Queue<Map.Entry<String, StoredSession>> due = new ConcurrentLinkedQueue<>();
+        sessions.asMap().forEach((key, session) -> {
+            if (isExpired(session, now)) {
+                sessions.asMap().remove(key, session);
+            } else if (now - session.validatedAtMillis() >= validateAfterMillis) {
+                due.add(Map.entry(key, session));
+            }
+        });
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(keepAliveConcurrency, due.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = keepAliveNext(due);
+        }
+        return CompletableFuture.allOf(workers);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        requests = OutcomeCounters.register(registry, "upstream.session.store.requests",
+                "Logins según si reutilizaron una sesión guardada del portal SUM",
+                "miss", "mismatch", "expired", "hit", "dead", "validated", "unverified");
+        keepAlives = OutcomeCounters.register(registry, "upstream.session.store.keep.alive",
+                "Renovaciones en segundo plano de sesiones guardadas del portal SUM",
+                "failed", "refreshed", "dead");
+        Gauge.builder("upstream.session.store.size", this, UpstreamSessionStore::size)
+                .description("Sesiones del portal SUM guardadas para reutilizar en logins posteriores")
+                .register(registry);
+    }
+
+    private CompletableFuture<Void> keepAliveNext(Queue<Map.Entry<String, StoredSession>> due) {
+        Map.Entry<String, StoredSession> entry = due.poll();
+        if (entry == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = entry.getKey();
+        StoredSession session = entry.getValue();
+        return probe(open(key, session.sealedCookies()), Deadline.after(keepAliveTimeout))
+                .handle((alive, e) -> {
+                    if (e != null) {
+                        log.debug("No se pudo mantener activa una sesión del portal SUM: {}", e.getMessage());
+                        keepAlives.increment("failed");
+                    } else if (alive) {
+                        sessions.asMap().replace(key, session, session.validatedAt(clock.millis()));
+                        keepAlives.increment("refreshed");
+                    } else {
+                        sessions.asMap().remove(key, session);
+                        keepAlives.increment("dead");
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> keepAliveNext(due));
+    }
+
+    private CompletableFuture<Boolean> probe(List<String> cookies, Deadline deadline) {
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        cookies.forEach(cookie -> cookieJar.add(SESSION_URI, cookie));
+        return upstreamResilience.call(UpstreamEndpoint.SESSION_KEEP_ALIVE, deadline,
+                        timeout -> httpClientUtil.getAsync(probeUrl, cookieJar, HttpResponse.BodyHandlers.discarding(), timeout))
+                .thenApply(response -> response.statusCode() == 200 && !LOGIN_URL.equals(httpClientUtil.getFinalUrl(response)));
+    }
+
+    private boolean isExpired(StoredSession session, long now) {
+        return now - session.createdAtMillis() >= ttlMillis;
+    }
+
+    private String key(String username) {
+        return ENCODER.encodeToString(hmac(DIGEST_LABEL, username));
+    }
+
+    private byte[] credentialDigest(String username, String password) {
+        return hmac(username.getBytes(StandardCharsets.UTF_8), password);
+    }
+
+    private byte[] hmac(byte[] context, String value) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(context);
+            mac.update((byte) 0);
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private byte[] seal(String key, List<String> cookies) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(key.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(String.join(COOKIE_SEPARATOR, cookies).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt upstream session", e);
+        }
+    }
+
+    private List<String> open(String key, byte[] sealed) {
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH));
+            cipher.updateAAD(key.getBytes(StandardCharsets.UTF_8));
+            byte[] plaintext = cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+            return Arrays.asList(new String(plaintext, StandardCharsets.UTF_8).split(COOKIE_SEPARATOR));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to decrypt upstream session", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] label, byte[] value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(label);
+            return digest.digest(value);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record StoredSession(byte[] sealedCookies, byte[] credentialDigest, long createdAtMillis, long validatedAtMillis) {
+
+        private StoredSession validatedAt(long validatedAtMillis) {
+            return new StoredSession(sealedCookies, credentialDigest, createdAtMillis, validatedAtMillis);
+        }
+    }
+}
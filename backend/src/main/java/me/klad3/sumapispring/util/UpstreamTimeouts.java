@@ -0,0 +1,108 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+@Component
+public class UpstreamTimeouts implements MeterBinder {
+
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration defaultBudget;
+    private final Duration maxBudget;
+    private final Duration fixedTimeout;
+    private final boolean adaptive;
+    private final double percentile;
+    private final double multiplier;
+    private final Duration minTimeout;
+    private final Map<UpstreamEndpoint, LatencyWindow> latencies = new EnumMap<>(UpstreamEndpoint.class);
+
+    public UpstreamTimeouts(@Value("${api.upstream.deadline.default-millis:10000}") long defaultBudgetMillis,
+                            @Value("${api.upstream.deadline.max-millis:25000}") long maxBudgetMillis,
+                            @Value("${api.upstream.timeout.fixed-millis:8000}") long fixedTimeoutMillis,
+                            @Value("${api.upstream.timeout.adaptive.enabled:false}") boolean adaptive,
+                            @Value("${api.upstream.timeout.adaptive.percentile:0.99}") double percentile,
+                            @Value("${api.upstream.timeout.adaptive.multiplier:2.0}") double multiplier,
+                            @Value("${api.upstream.timeout.adaptive.min-millis:1000}") long minTimeoutMillis,
+                            @Value("${api.upstream.timeout.adaptive.window-size:200}") int windowSize,
+                            @Value("${api.upstream.timeout.adaptive.min-samples:20}") int minSamples) {
+        this.defaultBudget = Duration.ofMillis(defaultBudgetMillis);
+        this.maxBudget = Duration.ofMillis(maxBudgetMillis);
+        this.fixedTimeout = Duration.ofMillis(fixedTimeoutMillis);
+        this.adaptive = adaptive;
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.minTimeout = Duration.ofMillis(minTimeoutMillis);
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            latencies.put(endpoint, new LatencyWindow(windowSize, minSamples));
+        }
+    }
+
+    public Deadline deadline(String requestedTimeoutMillis) {
+        Duration budget = requestedBudget(requestedTimeoutMillis);
+        return Deadline.after(budget.compareTo(maxBudget) > 0 ? maxBudget : budget);
+    }
+
+    public Deadline sharedDeadline(Deadline deadline) {
+        Duration remaining = deadline.remaining();
+        Duration budget = remaining.compareTo(defaultBudget) > 0 ? remaining : defaultBudget;
+        return Deadline.after(budget.compareTo(maxBudget) > 0 ? maxBudget : budget);
+    }
+
+    public Duration timeout(UpstreamEndpoint endpoint, Deadline deadline) {
+        Duration callTimeout = callTimeout(endpoint);
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(callTimeout) < 0 ? remaining : callTimeout;
+    }
+
+    public void record(UpstreamEndpoint endpoint, long latencyNanos) {
+        latencies.get(endpoint).record(latencyNanos);
+    }
+
+    Duration callTimeout(UpstreamEndpoint endpoint) {
+        if (!adaptive) {
+            return fixedTimeout;
+        }
+        OptionalLong observed = latencies.get(endpoint).percentile(percentile);
+        if (observed.isEmpty()) {
+            return fixedTimeout;
+        }
+        Duration derived = Duration.ofNanos((long) (observed.getAsLong() * multiplier));
+        if (derived.compareTo(minTimeout) < 0) {
+            return minTimeout;
+        }
+        return derived.compareTo(fixedTimeout) > 0 ? fixedTimeout : derived;
+    }
+
+    private Duration requestedBudget(String requestedTimeoutMillis) {
+        if (requestedTimeoutMillis == null) {
+            return defaultBudget;
+        }
+        try {
+            long requested = Long.parseLong(requestedTimeoutMillis.trim());
+            return requested > 0 ? Duration.ofMillis(requested) : defaultBudget;
+        } catch (NumberFormatException e) {
+            return defaultBudget;
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            Gauge.builder("upstream.timeout", this, timeouts -> timeouts.callTimeout(endpoint).toMillis())
+                    .description("Tiempo máximo asignado a cada llamada al portal SUM")
+                    .baseUnit("milliseconds")
+                    .tag("endpoint", endpoint.getBreakerName())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package me.klad3.sumapispring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Component
+public class UpstreamWarmup implements ApplicationRunner {
+
+    private final HttpClientUtil httpClientUtil;
+    private final boolean enabled;
+    private final String url;
+    private final int connections;
+    private final long timeoutMillis;
+
+    public UpstreamWarmup(HttpClientUtil httpClientUtil,
+                          @Value("${api.upstream.warmup.enabled:false}") boolean enabled,
+                          @Value("${api.upstream.warmup.url:https://sum.unmsm.edu.pe/alumnoWebSum/login}") String url,
+                          @Value("${api.upstream.warmup.connections:4}") int connections,
+                          @Value("${api.upstream.warmup.timeout-millis:10000}") long timeoutMillis) {
+        this.httpClientUtil = httpClientUtil;
+        this.enabled = enabled;
+        this.url = url;
+        this.connections = connections;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || connections <= 0) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            long opened = httpClientUtil.warmUp(url, connections).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            log.info("Precalentamiento de conexiones con {}: {}/{} correctas en {} ms",
+                    url, opened, connections, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } catch (TimeoutException e) {
+            log.warn("Precalentamiento de conexiones con {} sin completar tras {} ms", url, timeoutMillis);
+        } catch (ExecutionException e) {
+            log.warn("Error al precalentar conexiones con {}: {}", url, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
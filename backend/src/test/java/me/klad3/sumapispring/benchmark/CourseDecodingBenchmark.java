@@ -0,0 +1,118 @@
+package me.klad3.sumapispring.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.klad3.sumapispring.dto.MatriculaResponse;
+import me.klad3.sumapispring.util.JsonBodyHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CourseDecodingBenchmark {
+
+    private static final int COURSES = 12;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final Flow.Subscription NO_BACKPRESSURE = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final JsonBodyHandler<MatriculaResponse> bytesHandler =
+            new JsonBodyHandler<>(new ObjectMapper().readerFor(MatriculaResponse.class));
+
+    private HttpResponse.ResponseInfo responseInfo;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{\"data\":{\"matricula\":[");
+        for (int i = 0; i < COURSES; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"desEscuela\":\"E.P. de Ingeniería de Sistemas\",\"codPlan\":\"2018\",")
+                    .append("\"cicloEstudio\":\"").append(i % 10 + 1).append("\",")
+                    .append("\"desAsignatura\":\"Asignatura de prueba número ").append(i).append("\",")
+                    .append("\"codSeccion\":\"").append(i % 3 + 1).append("\",")
+                    .append("\"nomDocente\":\"Nombre\",\"apePatDocente\":\"Paterno\",\"apeMatDocente\":\"Materno\"}");
+        }
+        payload = json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+        responseInfo = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(Map.of(), (name, value) -> true);
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_2;
+            }
+        };
+    }
+
+    @Benchmark
+    public MatriculaResponse bufferedString() {
+        String body = receive(HttpResponse.BodyHandlers.ofString());
+        try {
+            return new ObjectMapper().readValue(body, MatriculaResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public MatriculaResponse bufferedReader() {
+        Supplier<MatriculaResponse> body = receive(bytesHandler);
+        return body.get();
+    }
+
+    private <T> T receive(HttpResponse.BodyHandler<T> bodyHandler) {
+        HttpResponse.BodySubscriber<T> subscriber = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(NO_BACKPRESSURE);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < payload.length; offset += CHUNK_SIZE) {
+            chunks.add(ByteBuffer.wrap(payload, offset, Math.min(CHUNK_SIZE, payload.length - offset)).asReadOnlyBuffer());
+        }
+        subscriber.onNext(chunks);
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+}
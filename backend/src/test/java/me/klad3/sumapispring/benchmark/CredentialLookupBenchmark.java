@@ -0,0 +1,89 @@
+package me.klad3.sumapispring.benchmark;
+
+import me.klad3.sumapispring.LauchApplication;
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.ApiCredentialEntry;
+import me.klad3.sumapispring.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CredentialLookupBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private String[] apiKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LauchApplication.class)
+                .profiles("security-test")
+                .properties("server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "api.security.key-filter.enabled=false")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+
+        List<User> users = new ArrayList<>(USERS);
+        apiKeys = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            apiKeys[i] = "benchmark-api-key-" + i;
+            users.add(User.builder()
+                    .username("benchmark-user-" + i)
+                    .email("benchmark-user-" + i + "@example.com")
+                    .institutionId("BENCH" + i)
+                    .studentName("Benchmark User " + i)
+                    .apiKey(apiKeys[i])
+                    .apiSecretHash("{hmac-sha256}benchmark-hash-" + i)
+                    .build());
+        }
+        userRepository.saveAll(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<User> entityLookup() {
+        return userRepository.findByApiKey(randomApiKey());
+    }
+
+    @Benchmark
+    public Optional<ApiCredentialEntry> projectionLookup() {
+        return userRepository.findCredentialsByApiKey(randomApiKey());
+    }
+
+    private String randomApiKey() {
+        return apiKeys[ThreadLocalRandom.current().nextInt(USERS)];
+    }
+}
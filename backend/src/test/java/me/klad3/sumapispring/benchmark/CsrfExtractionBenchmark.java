@@ -0,0 +1,104 @@
+package me.klad3.sumapispring.benchmark;
+
+import me.klad3.sumapispring.util.HtmlParserUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsrfExtractionBenchmark {
+
+    private static final String SINGLE_TOKEN =
+            "<html><body><form><input type='hidden' name='_csrf' value='dummyCsrfToken'></form></body></html>";
+    private static final String MULTIPLE_TOKENS = "<html><body>" +
+            "<form><input type='hidden' name='_csrf' value='firstToken'></form>" +
+            "<form><input type='hidden' name='_csrf' value='secondToken'></form>" +
+            "</body></html>";
+    private static final String NO_TOKEN = "<html><body><form></form></body></html>";
+
+    private static final Flow.Subscription NO_BACKPRESSURE = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    @Param({"single", "multiple", "missing"})
+    public String fixture;
+
+    private final HtmlParserUtil htmlParserUtil = new HtmlParserUtil();
+
+    private HttpResponse.ResponseInfo responseInfo;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String html = switch (fixture) {
+            case "single" -> SINGLE_TOKEN;
+            case "multiple" -> MULTIPLE_TOKENS;
+            default -> NO_TOKEN;
+        };
+        payload = html.getBytes(StandardCharsets.UTF_8);
+        responseInfo = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(Map.of("Content-Type", List.of("text/html;charset=UTF-8")), (name, value) -> true);
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    @Benchmark
+    public String jsoupDocument() {
+        return htmlParserUtil.extractCsrfToken(receive(HttpResponse.BodyHandlers.ofString()));
+    }
+
+    @Benchmark
+    public String streamingScanner() {
+        return receive(htmlParserUtil.csrfTokenBodyHandler());
+    }
+
+    private String receive(HttpResponse.BodyHandler<String> bodyHandler) {
+        HttpResponse.BodySubscriber<String> subscriber = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(NO_BACKPRESSURE);
+        subscriber.onNext(List.of(ByteBuffer.wrap(payload).asReadOnlyBuffer()));
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+}
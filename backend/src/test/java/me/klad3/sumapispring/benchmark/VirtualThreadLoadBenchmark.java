@@ -0,0 +1,116 @@
+package me.klad3.sumapispring.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import me.klad3.sumapispring.util.HttpClientUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 500;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long UPSTREAM_LATENCY_MILLIS = 50;
+    private static final byte[] LOGIN_PAGE = "<html><input name=\"_csrf\" value=\"token\"></html>".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    private HttpServer upstream;
+    private ExecutorService upstreamExecutor;
+    private ExecutorService platformExecutor;
+    private Executor requestExecutor;
+    private HttpClientUtil httpClientUtil;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CONCURRENT_REQUESTS);
+        upstream.createContext("/", exchange -> {
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, LOGIN_PAGE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(LOGIN_PAGE);
+            }
+        });
+        upstream.setExecutor(upstreamExecutor);
+        upstream.start();
+        url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/alumnoWebSum/login";
+
+        boolean virtualThreads = "virtual".equals(mode);
+        httpClientUtil = new HttpClientUtil(virtualThreads);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("benchmark-request-");
+            executor.setVirtualThreads(true);
+            requestExecutor = executor;
+        } else {
+            platformExecutor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            requestExecutor = platformExecutor;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (platformExecutor != null) {
+            platformExecutor.shutdownNow();
+        }
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int concurrentBlockingLogins() {
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[CONCURRENT_REQUESTS];
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            calls[i] = CompletableFuture.supplyAsync(this::fetchLoginPage, requestExecutor);
+        }
+        CompletableFuture.allOf(calls).join();
+        return calls.length;
+    }
+
+    private HttpResponse<String> fetchLoginPage() {
+        try {
+            return httpClientUtil.get(url);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
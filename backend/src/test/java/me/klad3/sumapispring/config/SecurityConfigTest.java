@@ -4,16 +4,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import me.klad3.sumapispring.controller.AuthController;
 import me.klad3.sumapispring.controller.CourseController;
 import me.klad3.sumapispring.controller.TestController;
+import me.klad3.sumapispring.controller.TokenController;
 import me.klad3.sumapispring.controller.UserController;
 import me.klad3.sumapispring.dto.CreateUserRequest;
 import me.klad3.sumapispring.dto.CreateUserResponse;
 import me.klad3.sumapispring.dto.LoginRequest;
 import me.klad3.sumapispring.dto.LoginResponse;
 import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiCredentialCache;
 import me.klad3.sumapispring.security.ApiKeyAuthFilter;
+import me.klad3.sumapispring.security.CredentialVerificationExecutor;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.NonceStore;
+import me.klad3.sumapispring.security.RequestSignatureVerifier;
+import me.klad3.sumapispring.security.RequestSigningKeys;
 import me.klad3.sumapispring.service.AuthService;
 import me.klad3.sumapispring.service.CourseService;
 import me.klad3.sumapispring.service.UserService;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,22 +35,41 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = {
         AuthController.class,
         UserController.class,
         CourseController.class,
+        TokenController.class,
         TestController.class
 })
-@Import({SecurityConfig.class, ApiKeyAuthFilter.class})
+@Import({SecurityConfig.class, PasswordEncoderConfig.class, ApiKeyAuthFilter.class, ApiCredentialCache.class, AccessTokenService.class,
+        RequestSignatureVerifier.class, RequestSigningKeys.class, NonceStore.class,
+        CredentialVerificationExecutor.class, UpstreamTimeouts.class})
 @ActiveProfiles("security-test")
 class SecurityConfigTest {
 
@@ -51,6 +79,12 @@ class SecurityConfigTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private RequestSigningKeys requestSigningKeys;
+
     @MockBean
     private UserService userService;
 
@@ -60,17 +94,23 @@ class SecurityConfigTest {
     @MockBean
     private CourseService courseService;
 
+    @MockBean
+    private KnownApiKeys knownApiKeys;
+
     private final String API_KEY = "valid-api-key";
     private final String API_SECRET = "valid-api-secret";
 
     @BeforeEach
     void setUp() {
         me.klad3.sumapispring.model.User mockUser = Mockito.mock(me.klad3.sumapispring.model.User.class);
+        Mockito.when(mockUser.getId()).thenReturn(1L);
         Mockito.when(mockUser.getApiKey()).thenReturn(API_KEY);
         Mockito.when(mockUser.getApiSecretHash()).thenReturn(API_SECRET);
-        Mockito.when(mockUser.verifyApiSecret(API_SECRET)).thenReturn(true);
+        Mockito.when(mockUser.verifyApiSecret(eq(API_SECRET), any())).thenReturn(true);
+        Mockito.when(mockUser.getSigningKey()).thenReturn(requestSigningKeys.seal(API_SECRET));
 
         Mockito.when(userService.findByApiKey(API_KEY)).thenReturn(Optional.of(mockUser));
+        Mockito.when(knownApiKeys.mightContain(API_KEY)).thenReturn(true);
 
         CreateUserResponse createUserResponse = CreateUserResponse.builder()
                 .message("User created successfully")
@@ -114,6 +154,20 @@ class SecurityConfigTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void whenAccessCombinedLoginEndpointWithoutAuth_thenUnauthorized() throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUser("testuser");
+        loginRequest.setPassword("password123");
+
+        mockMvc.perform(post("/user/login/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(authService, courseService);
+    }
+
     @Test
     void whenAccessProtectedEndpointWithValidApiKey_thenOk() throws Exception {
         LoginRequest loginRequest = new LoginRequest();
@@ -126,14 +180,16 @@ class SecurityConfigTest {
                 .sessionCookies(List.of("SESSIONID=abc123; HttpOnly", "OTHERCOOKIE=xyz789; Secure"))
                 .build();
 
-        when(authService.login("testuser", "password123")).thenReturn(mockLoginResponse);
+        when(authService.login(any(), eq("testuser"), eq("password123"), any())).thenReturn(CompletableFuture.completedFuture(mockLoginResponse));
 
-        mockMvc.perform(post("/user/login")
+        performAsync(post("/user/login")
                         .header("API-Key", API_KEY)
                         .header("API-Secret", API_SECRET)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(loginJson))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-RateLimit-Limit", "1000"))
+                .andExpect(header().exists("X-RateLimit-Remaining"));
     }
 
     @Test
@@ -144,7 +200,7 @@ class SecurityConfigTest {
 
         String loginJson = objectMapper.writeValueAsString(loginRequest);
 
-        when(authService.login("testuser", "password123")).thenThrow(new ApiKeyUnauthorizedException("Invalid API Key or Secret"));
+        when(authService.login(any(), eq("testuser"), eq("password123"), any())).thenReturn(CompletableFuture.failedFuture(new ApiKeyUnauthorizedException("Invalid API Key or Secret")));
 
         mockMvc.perform(post("/user/login")
                         .header("API-Key", "invalid-key")
@@ -152,5 +208,93 @@ class SecurityConfigTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(loginJson))
                 .andExpect(status().isUnauthorized());
+
+        Mockito.verify(userService, Mockito.never()).findByApiKey("invalid-key");
+    }
+
+    @Test
+    void whenExchangeApiKeyForToken_thenTokenAuthenticatesProtectedEndpoint() throws Exception {
+        String tokenJson = mockMvc.perform(post("/user/token")
+                        .header("API-Key", API_KEY)
+                        .header("API-Secret", API_SECRET))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.tokenType").value("Bearer"))
+                .andReturn().getResponse().getContentAsString();
+        String accessToken = objectMapper.readTree(tokenJson).path("data").path("accessToken").asText();
+
+        LoginRequest loginRequest = new LoginRequest("testuser", "password123");
+        when(authService.login(any(), eq("testuser"), eq("password123"), any())).thenReturn(CompletableFuture.completedFuture(LoginResponse.builder()
+                .sessionCookies(List.of("SESSIONID=abc123"))
+                .build()));
+        Mockito.clearInvocations(userService);
+
+        performAsync(post("/user/login")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+
+        Mockito.verify(userService, Mockito.never()).findByApiKey(any());
+    }
+
+    @Test
+    void whenExchangeTokenForToken_thenUnauthorized() throws Exception {
+        String accessToken = accessTokenService.issue(1L, API_KEY).value();
+
+        mockMvc.perform(post("/user/token")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void whenAccessProtectedEndpointWithTamperedToken_thenUnauthorized() throws Exception {
+        String accessToken = accessTokenService.issue(1L, API_KEY).value();
+
+        mockMvc.perform(post("/user/login")
+                        .header("Authorization", "Bearer " + accessToken + "x")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"user\":\"testuser\",\"password\":\"password123\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void whenAccessProtectedEndpointWithSignedRequest_thenOk() throws Exception {
+        String body = objectMapper.writeValueAsString(new LoginRequest("testuser", "password123"));
+        String timestamp = String.valueOf(Instant.now().getEpochSecond());
+        String nonce = "nonce-" + System.nanoTime();
+        String canonical = String.join("\n", "POST", "/user/login", timestamp, nonce,
+                HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8))));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(RequestSigningKeys.derive(API_SECRET), "HmacSHA256"));
+        String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(canonical.getBytes(StandardCharsets.UTF_8)));
+
+        when(authService.login(any(), eq("testuser"), eq("password123"), any())).thenReturn(CompletableFuture.completedFuture(LoginResponse.builder()
+                .sessionCookies(List.of("SESSIONID=abc123"))
+                .build()));
+
+        performAsync(post("/user/login")
+                        .header("API-Key", API_KEY)
+                        .header("API-Timestamp", timestamp)
+                        .header("API-Nonce", nonce)
+                        .header("API-Signature", signature)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/user/login")
+                        .header("API-Key", API_KEY)
+                        .header("API-Timestamp", timestamp)
+                        .header("API-Nonce", nonce)
+                        .header("API-Signature", signature)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
     }
 }
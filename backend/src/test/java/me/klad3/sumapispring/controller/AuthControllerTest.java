@@ -1,11 +1,21 @@
 package me.klad3.sumapispring.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import me.klad3.sumapispring.dto.CourseResponse;
 import me.klad3.sumapispring.dto.LoginRequest;
 import me.klad3.sumapispring.dto.LoginResponse;
 import me.klad3.sumapispring.exception.AuthenticationException;
+import me.klad3.sumapispring.exception.ExternalApiException;
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiCredentialCache;
+import me.klad3.sumapispring.security.CredentialVerificationExecutor;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSignatureVerifier;
 import me.klad3.sumapispring.service.AuthService;
+import me.klad3.sumapispring.service.CourseService;
 import me.klad3.sumapispring.service.UserService;
+import me.klad3.sumapispring.util.CookieJar;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -15,15 +25,24 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -38,9 +57,33 @@ class AuthControllerTest {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private CourseService courseService;
+
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private ApiCredentialCache credentialCache;
+
+    @MockBean
+    private PasswordEncoder apiSecretEncoder;
+
+    @MockBean
+    private RequestSignatureVerifier requestSignatureVerifier;
+
+    @MockBean
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @MockBean
+    private KnownApiKeys knownApiKeys;
+
+    @MockBean
+    private AccessTokenService accessTokenService;
+
+    @MockBean
+    private UpstreamTimeouts upstreamTimeouts;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -61,9 +104,9 @@ class AuthControllerTest {
                 .sessionCookies(List.of("SESSIONID=abc123; Path=/; HttpOnly", "CSRF-TOKEN=def456; Path=/; Secure"))
                 .build();
 
-        when(authService.login(any(String.class), any(String.class))).thenReturn(loginResponse);
+        when(authService.login(any(), any(String.class), any(String.class), any())).thenReturn(CompletableFuture.completedFuture(loginResponse));
 
-        mockMvc.perform(post("/user/login")
+        performAsync(post("/user/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isOk())
@@ -76,7 +119,7 @@ class AuthControllerTest {
 
         ArgumentCaptor<String> usernameCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> passwordCaptor = ArgumentCaptor.forClass(String.class);
-        verify(authService, times(1)).login(usernameCaptor.capture(), passwordCaptor.capture());
+        verify(authService, times(1)).login(any(), usernameCaptor.capture(), passwordCaptor.capture(), any());
         assertEquals("testuser", usernameCaptor.getValue());
         assertEquals("testpassword", passwordCaptor.getValue());
     }
@@ -98,7 +141,7 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.data.user", is("Username is mandatory")))
                 .andExpect(jsonPath("$.data.password", is("Password is mandatory")));
 
-        verify(authService, never()).login(any(String.class), any(String.class));
+        verify(authService, never()).login(any(), any(String.class), any(String.class), any());
     }
 
     @Test
@@ -108,10 +151,10 @@ class AuthControllerTest {
                 .password("wrongpassword")
                 .build();
 
-        when(authService.login(any(String.class), any(String.class)))
-                .thenThrow(new AuthenticationException("Invalid credentials"));
+        when(authService.login(any(), any(String.class), any(String.class), any()))
+                .thenReturn(CompletableFuture.failedFuture(new AuthenticationException("Invalid credentials")));
 
-        mockMvc.perform(post("/user/login")
+        performAsync(post("/user/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isUnauthorized())
@@ -120,7 +163,7 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message", is("Authentication failed")))
                 .andExpect(jsonPath("$.data", is(notNullValue())));
 
-        verify(authService, times(1)).login("invaliduser", "wrongpassword");
+        verify(authService, times(1)).login(any(), eq("invaliduser"), eq("wrongpassword"), any());
     }
 
     @Test
@@ -130,10 +173,10 @@ class AuthControllerTest {
                 .password("testpassword")
                 .build();
 
-        when(authService.login(any(String.class), any(String.class)))
-                .thenThrow(new RuntimeException("Database connection failed"));
+        when(authService.login(any(), any(String.class), any(String.class), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Database connection failed")));
 
-        mockMvc.perform(post("/user/login")
+        performAsync(post("/user/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isInternalServerError())
@@ -143,6 +186,108 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.data.message", is("An unexpected error occurred")))
                 .andExpect(jsonPath("$.data.error", is("Database connection failed")));
 
-        verify(authService, times(1)).login("testuser", "testpassword");
+        verify(authService, times(1)).login(any(), eq("testuser"), eq("testpassword"), any());
+    }
+
+    @Test
+    void loginWithCourses_ShouldReturnSessionAndCoursesInOneResponse() throws Exception {
+        LoginRequest loginRequest = LoginRequest.builder()
+                .user("testuser")
+                .password("testpassword")
+                .build();
+        CookieJar cookieJar = sessionCookieJar("SESSIONID=abc123", "CSRF-TOKEN=def456");
+        CourseResponse course = new CourseResponse("Ingeniería de Software", "2018", "5", "Base de Datos", "1", "Ana Pérez Gómez");
+
+        when(authService.openSession(any(), eq("testuser"), eq("testpassword"), any())).thenReturn(CompletableFuture.completedFuture(cookieJar));
+        when(courseService.getCourses(same(cookieJar), any())).thenReturn(CompletableFuture.completedFuture(List.of(course)));
+
+        performAsync(post("/user/login/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)))
+                .andExpect(jsonPath("$.message", is("Login and courses fetched successfully")))
+                .andExpect(jsonPath("$.data.message", is("Login successful")))
+                .andExpect(jsonPath("$.data.sessionCookies", hasSize(2)))
+                .andExpect(jsonPath("$.data.courses", hasSize(1)))
+                .andExpect(jsonPath("$.data.courses[0].curso", is("Base de Datos")))
+                .andExpect(header().stringValues("Set-Cookie", hasItem(containsString("SESSIONID=abc123"))));
+
+        verify(upstreamTimeouts, times(1)).deadline(any());
+    }
+
+    @Test
+    void loginWithCourses_ShouldFetchCoursesWithTheLoginCookieJar() throws Exception {
+        LoginRequest loginRequest = LoginRequest.builder()
+                .user("testuser")
+                .password("testpassword")
+                .build();
+        CookieJar cookieJar = sessionCookieJar("SESSIONID=abc123");
+
+        when(authService.openSession(any(), eq("testuser"), eq("testpassword"), any())).thenReturn(CompletableFuture.completedFuture(cookieJar));
+        when(courseService.getCourses(any(CookieJar.class), any())).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        performAsync(post("/user/login/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<CookieJar> cookieJarCaptor = ArgumentCaptor.forClass(CookieJar.class);
+        verify(courseService, times(1)).getCourses(cookieJarCaptor.capture(), any());
+        assertSame(cookieJar, cookieJarCaptor.getValue());
+        verify(authService, never()).login(any(), any(String.class), any(String.class), any());
+        verify(courseService, never()).getCourses(any(String.class), any());
+    }
+
+    @Test
+    void loginWithCourses_WithInvalidCredentials_ShouldNotFetchCourses() throws Exception {
+        LoginRequest loginRequest = LoginRequest.builder()
+                .user("invaliduser")
+                .password("wrongpassword")
+                .build();
+
+        when(authService.openSession(any(), any(String.class), any(String.class), any()))
+                .thenReturn(CompletableFuture.failedFuture(new AuthenticationException("Invalid credentials")));
+
+        performAsync(post("/user/login/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message", is("Authentication failed")));
+
+        verifyNoInteractions(courseService);
+    }
+
+    @Test
+    void loginWithCourses_WhenCoursesFail_ShouldReturnError() throws Exception {
+        LoginRequest loginRequest = LoginRequest.builder()
+                .user("testuser")
+                .password("testpassword")
+                .build();
+        when(authService.openSession(any(), any(String.class), any(String.class), any()))
+                .thenReturn(CompletableFuture.completedFuture(sessionCookieJar("SESSIONID=abc123")));
+        when(courseService.getCourses(any(CookieJar.class), any()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalApiException("Failed to fetch courses from external API")));
+
+        performAsync(post("/user/login/courses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    private static CookieJar sessionCookieJar(String... cookies) {
+        CookieJar cookieJar = new CookieJar();
+        for (String cookie : cookies) {
+            cookieJar.add(URI.create("https://sum.unmsm.edu.pe/alumnoWebSum/login"), cookie);
+        }
+        return cookieJar;
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
     }
 }
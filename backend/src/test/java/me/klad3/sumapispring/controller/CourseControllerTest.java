@@ -2,8 +2,16 @@ package me.klad3.sumapispring.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import me.klad3.sumapispring.dto.CourseResponse;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiCredentialCache;
+import me.klad3.sumapispring.security.CredentialVerificationExecutor;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSignatureVerifier;
 import me.klad3.sumapispring.service.CourseService;
 import me.klad3.sumapispring.service.UserService;
+import me.klad3.sumapispring.util.Deadline;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,16 +20,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,6 +57,27 @@ class CourseControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private ApiCredentialCache credentialCache;
+
+    @MockBean
+    private PasswordEncoder apiSecretEncoder;
+
+    @MockBean
+    private RequestSignatureVerifier requestSignatureVerifier;
+
+    @MockBean
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @MockBean
+    private KnownApiKeys knownApiKeys;
+
+    @MockBean
+    private AccessTokenService accessTokenService;
+
+    @MockBean
+    private UpstreamTimeouts upstreamTimeouts;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,9 +109,9 @@ class CourseControllerTest {
     void getCourses_ShouldReturnCourses_WhenCookiesPresent() throws Exception {
         String cookies = "SESSIONID=abc123; CSRF-TOKEN=def456";
 
-        when(courseService.getCourses(cookies)).thenReturn(mockCourses);
+        when(courseService.getCourses(eq(cookies), any())).thenReturn(CompletableFuture.completedFuture(mockCourses));
 
-        mockMvc.perform(get("/api/courses")
+        performAsync(get("/api/courses")
                         .header("Cookie", cookies)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -94,13 +133,13 @@ class CourseControllerTest {
                 .andExpect(jsonPath("$.data[1].profesor", is("María García")));
 
         ArgumentCaptor<String> cookiesCaptor = ArgumentCaptor.forClass(String.class);
-        verify(courseService, times(1)).getCourses(cookiesCaptor.capture());
+        verify(courseService, times(1)).getCourses(cookiesCaptor.capture(), any());
         assertEquals(cookies, cookiesCaptor.getValue());
     }
 
     @Test
     void getCourses_ShouldReturnUnauthorized_WhenCookiesMissing() throws Exception {
-        mockMvc.perform(get("/api/courses")
+        performAsync(get("/api/courses")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isUnauthorized())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -108,12 +147,12 @@ class CourseControllerTest {
                 .andExpect(jsonPath("$.message", is("Missing cookies")))
                 .andExpect(jsonPath("$.data", is(nullValue())));
 
-        verify(courseService, never()).getCourses(anyString());
+        verify(courseService, never()).getCourses(anyString(), any());
     }
 
     @Test
     void getCourses_ShouldReturnUnauthorized_WhenCookiesEmpty() throws Exception {
-        mockMvc.perform(get("/api/courses")
+        performAsync(get("/api/courses")
                         .header("Cookie", "")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isUnauthorized())
@@ -122,16 +161,16 @@ class CourseControllerTest {
                 .andExpect(jsonPath("$.message", is("Missing cookies")))
                 .andExpect(jsonPath("$.data", is(nullValue())));
 
-        verify(courseService, never()).getCourses(anyString());
+        verify(courseService, never()).getCourses(anyString(), any());
     }
 
     @Test
     void getCourses_ShouldReturnInternalServerError_WhenServiceThrowsException() throws Exception {
         String cookies = "SESSIONID=abc123; CSRF-TOKEN=def456";
 
-        when(courseService.getCourses(cookies)).thenThrow(new RuntimeException("Database error"));
+        when(courseService.getCourses(eq(cookies), any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Database error")));
 
-        mockMvc.perform(get("/api/courses")
+        performAsync(get("/api/courses")
                         .header("Cookie", cookies)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError())
@@ -141,6 +180,43 @@ class CourseControllerTest {
                 .andExpect(jsonPath("$.data.message", is("An unexpected error occurred")))
                 .andExpect(jsonPath("$.data.error", is("Database error")));
 
-        verify(courseService, times(1)).getCourses(cookies);
+        verify(courseService, times(1)).getCourses(eq(cookies), any());
+    }
+
+    @Test
+    void getCourses_ShouldPropagateRequestTimeoutHeaderAsDeadline() throws Exception {
+        String cookies = "SESSIONID=abc123";
+        Deadline deadline = Deadline.after(Duration.ofSeconds(3));
+        when(upstreamTimeouts.deadline("3000")).thenReturn(deadline);
+        when(courseService.getCourses(eq(cookies), same(deadline))).thenReturn(CompletableFuture.completedFuture(mockCourses));
+
+        performAsync(get("/api/courses")
+                        .header("Cookie", cookies)
+                        .header(UpstreamTimeouts.REQUEST_TIMEOUT_HEADER, "3000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(2)));
+
+        verify(courseService, times(1)).getCourses(eq(cookies), same(deadline));
+    }
+
+    @Test
+    void getCourses_ShouldReturnGatewayTimeout_WhenDeadlineExceeded() throws Exception {
+        String cookies = "SESSIONID=abc123";
+        when(courseService.getCourses(eq(cookies), any()))
+                .thenReturn(CompletableFuture.failedFuture(new DeadlineExceededException("SUM portal did not respond within the request deadline")));
+
+        performAsync(get("/api/courses")
+                        .header("Cookie", cookies))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", is("Gateway Timeout")))
+                .andExpect(jsonPath("$.data.message", is("SUM portal did not respond within the request deadline")));
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
     }
 }
@@ -2,16 +2,22 @@ package me.klad3.sumapispring.controller;
 
 import me.klad3.sumapispring.exception.AuthenticationException;
 import me.klad3.sumapispring.exception.BadRequestException;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
 import me.klad3.sumapispring.exception.ExternalApiException;
 import me.klad3.sumapispring.exception.ResourceAlreadyExistsException;
 import me.klad3.sumapispring.exception.ResourceNotFoundException;
 import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.exception.PayloadTooLargeException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import me.klad3.sumapispring.exception.ServiceUnavailableException;
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 @RestController
 @RequestMapping("/api/test")
@@ -59,6 +65,36 @@ public class TestController {
         throw new ApiKeyUnauthorizedException("API Key is invalid");
     }
 
+    @GetMapping("/service-unavailable")
+    public void triggerServiceUnavailableException() {
+        throw new ServiceUnavailableException("Service is saturated", 2);
+    }
+
+    @GetMapping("/upstream-unavailable")
+    public void triggerUpstreamUnavailableException() {
+        throw new UpstreamUnavailableException("SUM portal is unavailable, retry later", 30);
+    }
+
+    @GetMapping("/deadline-exceeded")
+    public void triggerDeadlineExceededException() {
+        throw new DeadlineExceededException("SUM portal did not respond within the request deadline");
+    }
+
+    @GetMapping("/async-timeout")
+    public void triggerAsyncRequestTimeoutException() {
+        throw new AsyncRequestTimeoutException();
+    }
+
+    @GetMapping("/payload-too-large")
+    public void triggerPayloadTooLargeException() {
+        throw new PayloadTooLargeException("Request body exceeds 1048576 bytes");
+    }
+
+    @GetMapping("/rate-limit-exceeded")
+    public void triggerRateLimitExceededException() {
+        throw new RateLimitExceededException("Rate limit exceeded for this API Key", 30);
+    }
+
     @GetMapping("/general-error")
     public void triggerGeneralException() {
         throw new RuntimeException("General error");
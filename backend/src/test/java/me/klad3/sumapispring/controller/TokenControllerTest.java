@@ -0,0 +1,83 @@
+package me.klad3.sumapispring.controller;
+
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiClientAuthentication;
+import me.klad3.sumapispring.security.ApiCredentialCache;
+import me.klad3.sumapispring.security.CredentialVerificationExecutor;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSignatureVerifier;
+import me.klad3.sumapispring.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TokenController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class TokenControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AccessTokenService accessTokenService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private ApiCredentialCache credentialCache;
+
+    @MockBean
+    private PasswordEncoder apiSecretEncoder;
+
+    @MockBean
+    private RequestSignatureVerifier requestSignatureVerifier;
+
+    @MockBean
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @MockBean
+    private KnownApiKeys knownApiKeys;
+
+    @Test
+    void token_ShouldIssueBearerTokenForAuthenticatedClient() throws Exception {
+        when(accessTokenService.issue(1L, "valid-api-key")).thenReturn(
+                new AccessTokenService.AccessToken("signed-token", 1L, "valid-api-key", Instant.now().plusSeconds(900)));
+        when(accessTokenService.getTtlSeconds()).thenReturn(900L);
+
+        mockMvc.perform(post("/user/token")
+                        .principal(new ApiClientAuthentication(1L, "valid-api-key")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.success", is(true)))
+                .andExpect(jsonPath("$.message", is("Token issued successfully")))
+                .andExpect(jsonPath("$.data.accessToken", is("signed-token")))
+                .andExpect(jsonPath("$.data.tokenType", is("Bearer")))
+                .andExpect(jsonPath("$.data.expiresIn", is(900)));
+
+        verify(accessTokenService, times(1)).issue(1L, "valid-api-key");
+    }
+
+    @Test
+    void token_WithoutAuthenticatedClient_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/user/token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        verify(accessTokenService, never()).issue(any(), any());
+    }
+}
@@ -3,6 +3,11 @@ package me.klad3.sumapispring.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import me.klad3.sumapispring.dto.CreateUserRequest;
 import me.klad3.sumapispring.dto.CreateUserResponse;
+import me.klad3.sumapispring.security.AccessTokenService;
+import me.klad3.sumapispring.security.ApiCredentialCache;
+import me.klad3.sumapispring.security.CredentialVerificationExecutor;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSignatureVerifier;
 import me.klad3.sumapispring.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +17,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -32,6 +38,24 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private ApiCredentialCache credentialCache;
+
+    @MockBean
+    private PasswordEncoder apiSecretEncoder;
+
+    @MockBean
+    private RequestSignatureVerifier requestSignatureVerifier;
+
+    @MockBean
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @MockBean
+    private KnownApiKeys knownApiKeys;
+
+    @MockBean
+    private AccessTokenService accessTokenService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
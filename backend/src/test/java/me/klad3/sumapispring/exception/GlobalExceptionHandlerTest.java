@@ -113,6 +113,80 @@ class GlobalExceptionHandlerTest {
                 .andExpect(jsonPath("$.success", is(false)));
     }
 
+    @Test
+    @DisplayName("Handle ServiceUnavailableException - Service Unavailable")
+    void handleServiceUnavailableException_ShouldReturnServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/api/test/service-unavailable"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Service Unavailable")))
+                .andExpect(jsonPath("$.data.message", is("Service is saturated")))
+                .andExpect(jsonPath("$.data.error", is("Service Unavailable")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    @DisplayName("Handle UpstreamUnavailableException - Service Unavailable")
+    void handleUpstreamUnavailableException_ShouldReturnServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/api/test/upstream-unavailable"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Service Unavailable")))
+                .andExpect(jsonPath("$.data.message", is("SUM portal is unavailable, retry later")))
+                .andExpect(jsonPath("$.data.error", is("External API Error")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    @DisplayName("Handle DeadlineExceededException - Gateway Timeout")
+    void handleDeadlineExceededException_ShouldReturnGatewayTimeout() throws Exception {
+        mockMvc.perform(get("/api/test/deadline-exceeded"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Gateway Timeout")))
+                .andExpect(jsonPath("$.data.message", is("SUM portal did not respond within the request deadline")))
+                .andExpect(jsonPath("$.data.error", is("External API Error")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    @DisplayName("Handle AsyncRequestTimeoutException - Service Unavailable")
+    void handleAsyncRequestTimeoutException_ShouldReturnServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/api/test/async-timeout"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Service Unavailable")))
+                .andExpect(jsonPath("$.data.message", is("Upstream request timed out")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    @DisplayName("Handle PayloadTooLargeException - Payload Too Large")
+    void handlePayloadTooLargeException_ShouldReturnPayloadTooLarge() throws Exception {
+        mockMvc.perform(get("/api/test/payload-too-large"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Payload Too Large")))
+                .andExpect(jsonPath("$.data.message", is("Request body exceeds 1048576 bytes")))
+                .andExpect(jsonPath("$.data.error", is("Payload Too Large")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    @DisplayName("Handle RateLimitExceededException - Too Many Requests")
+    void handleRateLimitExceededException_ShouldReturnTooManyRequests() throws Exception {
+        mockMvc.perform(get("/api/test/rate-limit-exceeded"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message", is("Too Many Requests")))
+                .andExpect(jsonPath("$.data.message", is("Rate limit exceeded for this API Key")))
+                .andExpect(jsonPath("$.data.error", is("Too Many Requests")))
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
     @Test
     @DisplayName("Handle General Exception - Internal Server Error")
     void handleAllExceptions_ShouldReturnInternalServerError() throws Exception {
@@ -1,23 +1,37 @@
 package me.klad3.sumapispring.repository;
 
 import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.security.ApiCredentialsChangedEvent;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@RecordApplicationEvents
 class UserRepositoryTest {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     @Test
     @DisplayName("Guardar y encontrar un usuario por ID")
     void saveAndFindById() {
@@ -117,6 +131,23 @@ class UserRepositoryTest {
         assertThat(notExists).isFalse();
     }
 
+    @Test
+    @DisplayName("Verificar existencia de usuario por apiKey")
+    void existsByApiKey() {
+        User user = User.builder()
+                .username("kate")
+                .email("kate@example.com")
+                .institutionId("INST909")
+                .apiKey("APIKEY909")
+                .apiSecretHash("SECRET909")
+                .studentName("Kate Bishop")
+                .build();
+        userRepository.save(user);
+
+        assertThat(userRepository.existsByApiKey("APIKEY909")).isTrue();
+        assertThat(userRepository.existsByApiKey("APIKEY910")).isFalse();
+    }
+
     @Test
     @DisplayName("Actualizar un usuario existente")
     void updateUser() {
@@ -165,4 +196,137 @@ class UserRepositoryTest {
 
         assertThat(foundUser).isNotPresent();
     }
+
+    @Test
+    @DisplayName("Publicar evento al cambiar las credenciales de un usuario")
+    void updateApiKey_PublishesCredentialsChangedEvent() {
+        User user = User.builder()
+                .username("heidi")
+                .email("heidi@example.com")
+                .institutionId("INST606")
+                .apiKey("APIKEY606")
+                .apiSecretHash("SECRET606")
+                .studentName("Heidi Klum")
+                .build();
+        User savedUser = userRepository.save(user);
+        entityManager.flush();
+
+        savedUser.setApiKey("APIKEY607");
+        userRepository.save(savedUser);
+        entityManager.flush();
+
+        assertThat(applicationEvents.stream(ApiCredentialsChangedEvent.class))
+                .extracting(ApiCredentialsChangedEvent::userId, ApiCredentialsChangedEvent::apiKey, ApiCredentialsChangedEvent::removed)
+                .containsExactly(
+                        tuple(savedUser.getId(), "APIKEY606", false),
+                        tuple(savedUser.getId(), "APIKEY607", false));
+    }
+
+    @Test
+    @DisplayName("Publicar evento al eliminar un usuario")
+    void deleteUser_PublishesRemovedCredentialsEvent() {
+        User savedUser = userRepository.save(User.builder()
+                .username("kevin")
+                .email("kevin@example.com")
+                .institutionId("INST909")
+                .apiKey("APIKEY909")
+                .apiSecretHash("SECRET909")
+                .studentName("Kevin Flynn")
+                .build());
+        entityManager.flush();
+
+        userRepository.delete(savedUser);
+        entityManager.flush();
+
+        assertThat(applicationEvents.stream(ApiCredentialsChangedEvent.class))
+                .filteredOn(ApiCredentialsChangedEvent::removed)
+                .extracting(ApiCredentialsChangedEvent::apiKey)
+                .containsExactly("APIKEY909");
+    }
+
+    @Test
+    @DisplayName("Buscar solo las credenciales por apiKey")
+    void findCredentialsByApiKey() {
+        User savedUser = userRepository.save(User.builder()
+                .username("mallory")
+                .email("mallory@example.com")
+                .institutionId("INST222")
+                .apiKey("APIKEY222")
+                .apiSecretHash("SECRET222")
+                .studentName("Mallory Knox")
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(userRepository.findCredentialsByApiKey("APIKEY222"))
+                .contains(new ApiCredentialEntry(savedUser.getId(), "APIKEY222", "SECRET222", null));
+        assertThat(userRepository.findCredentialsByApiKey("NONEXISTENT_APIKEY")).isEmpty();
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Recorrer las credenciales de todos los usuarios")
+    void streamApiCredentials() {
+        User savedUser = userRepository.save(User.builder()
+                .username("laura")
+                .email("laura@example.com")
+                .institutionId("INST111")
+                .apiKey("APIKEY111")
+                .apiSecretHash("SECRET111")
+                .signingKey("SIGNING111")
+                .studentName("Laura Palmer")
+                .build());
+
+        try (Stream<ApiCredentialEntry> credentials = userRepository.streamApiCredentials()) {
+            assertThat(credentials)
+                    .contains(new ApiCredentialEntry(savedUser.getId(), "APIKEY111", "SECRET111", "SIGNING111"));
+        }
+    }
+
+    @Test
+    @DisplayName("Listar API keys posteriores a un ID")
+    void findApiKeysAfter() {
+        User first = userRepository.save(User.builder()
+                .username("ivan")
+                .email("ivan@example.com")
+                .institutionId("INST707")
+                .apiKey("APIKEY707")
+                .apiSecretHash("SECRET707")
+                .studentName("Ivan Petrov")
+                .build());
+        User second = userRepository.save(User.builder()
+                .username("judy")
+                .email("judy@example.com")
+                .institutionId("INST808")
+                .apiKey("APIKEY808")
+                .apiSecretHash("SECRET808")
+                .studentName("Judy Hopps")
+                .build());
+
+        assertThat(userRepository.findApiKeysAfter(0L))
+                .extracting(ApiKeyEntry::apiKey)
+                .contains("APIKEY707", "APIKEY808");
+        assertThat(userRepository.findApiKeysAfter(first.getId()))
+                .containsExactly(new ApiKeyEntry(second.getId(), "APIKEY808"));
+    }
+
+    @Test
+    @DisplayName("Listar API keys actualizadas desde una fecha")
+    void findApiKeysUpdatedSince() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(1);
+        User saved = userRepository.save(User.builder()
+                .username("kevin")
+                .email("kevin@example.com")
+                .institutionId("INST909")
+                .apiKey("APIKEY909")
+                .apiSecretHash("SECRET909")
+                .studentName("Kevin Flynn")
+                .build());
+
+        assertThat(userRepository.findApiKeysUpdatedSince(before))
+                .contains(new ApiKeyEntry(saved.getId(), "APIKEY909"));
+        assertThat(userRepository.findApiKeysUpdatedSince(LocalDateTime.now().plusMinutes(1)))
+                .extracting(ApiKeyEntry::apiKey)
+                .doesNotContain("APIKEY909");
+    }
 }
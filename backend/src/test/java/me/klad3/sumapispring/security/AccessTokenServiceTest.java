@@ -0,0 +1,68 @@
+package me.klad3.sumapispring.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenServiceTest {
+
+    private static final String SIGNING_KEY = "unit-test-token-signing-key-with-32-characters";
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final AccessTokenService accessTokenService =
+            new AccessTokenService(SIGNING_KEY, 900, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void verify_ShouldReturnClaims_ForIssuedToken() {
+        AccessTokenService.AccessToken issued = accessTokenService.issue(42L, "api-key");
+
+        Optional<AccessTokenService.AccessToken> verified = accessTokenService.verify(issued.value());
+
+        assertTrue(verified.isPresent());
+        assertEquals(42L, verified.get().userId());
+        assertEquals("api-key", verified.get().apiKey());
+        assertEquals(NOW.plusSeconds(900), verified.get().expiresAt());
+    }
+
+    @Test
+    void verify_ShouldRejectExpiredToken() {
+        String token = accessTokenService.issue(42L, "api-key").value();
+        AccessTokenService later = new AccessTokenService(SIGNING_KEY, 900, Clock.fixed(NOW.plusSeconds(900), ZoneOffset.UTC));
+
+        assertTrue(later.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_ShouldRejectTokenSignedWithAnotherKey() {
+        AccessTokenService other = new AccessTokenService(SIGNING_KEY + "-other", 900, Clock.fixed(NOW, ZoneOffset.UTC));
+        String token = other.issue(42L, "api-key").value();
+
+        assertTrue(accessTokenService.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_ShouldRejectTamperedPayload() {
+        String token = accessTokenService.issue(42L, "api-key").value();
+        String forgedPayload = accessTokenService.issue(1L, "api-key").value().split("\\.")[0];
+
+        assertTrue(accessTokenService.verify(forgedPayload + token.substring(token.indexOf('.'))).isEmpty());
+    }
+
+    @Test
+    void verify_ShouldRejectMalformedTokens() {
+        assertTrue(accessTokenService.verify("").isEmpty());
+        assertTrue(accessTokenService.verify("no-separator").isEmpty());
+        assertTrue(accessTokenService.verify("a.b.c").isEmpty());
+        assertTrue(accessTokenService.verify("!!!.???").isEmpty());
+    }
+
+    @Test
+    void constructor_ShouldRejectShortSigningKey() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessTokenService("short", 900));
+    }
+}
@@ -0,0 +1,71 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiCredentialCacheTest {
+
+    private ApiCredentialCache credentialCache;
+
+    @BeforeEach
+    void setUp() {
+        credentialCache = new ApiCredentialCache(100, 300);
+    }
+
+    @Test
+    void isVerified_ShouldReturnTrue_WhenSameSecretWasCached() {
+        credentialCache.put(1L, "api-key", "api-secret");
+
+        assertEquals(Optional.of(1L), credentialCache.findVerifiedUserId("api-key", "api-secret"));
+    }
+
+    @Test
+    void isVerified_ShouldReturnFalse_WhenSecretDiffers() {
+        credentialCache.put(1L, "api-key", "api-secret");
+
+        assertTrue(credentialCache.findVerifiedUserId("api-key", "other-secret").isEmpty());
+    }
+
+    @Test
+    void isVerified_ShouldReturnFalse_WhenKeyWasNeverCached() {
+        assertTrue(credentialCache.findVerifiedUserId("unknown-key", "api-secret").isEmpty());
+    }
+
+    @Test
+    void onCredentialsChanged_ShouldEvictEveryEntryOfTheUser() {
+        credentialCache.put(1L, "old-key", "api-secret");
+        credentialCache.put(2L, "other-key", "other-secret");
+
+        credentialCache.onCredentialsChanged(new ApiCredentialsChangedEvent(1L, "new-key", "{hmac-sha256}hash", null, false));
+
+        assertTrue(credentialCache.findVerifiedUserId("old-key", "api-secret").isEmpty());
+        assertEquals(Optional.of(2L), credentialCache.findVerifiedUserId("other-key", "other-secret"));
+    }
+
+    @Test
+    void invalidate_ShouldEvictSingleKey() {
+        credentialCache.put(1L, "api-key", "api-secret");
+
+        credentialCache.invalidate("api-key");
+
+        assertTrue(credentialCache.findVerifiedUserId("api-key", "api-secret").isEmpty());
+    }
+
+    @Test
+    void bindTo_ShouldExposeHitAndMissMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        credentialCache.bindTo(registry);
+
+        credentialCache.put(1L, "api-key", "api-secret");
+        credentialCache.findVerifiedUserId("api-key", "api-secret");
+        credentialCache.findVerifiedUserId("missing-key", "api-secret");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,90 @@
+package me.klad3.sumapispring.security;
+
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ApiCredentialCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ApiCredentialCacheTransactionTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApiCredentialCache credentialCache;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void onCredentialsChanged_ShouldEvictOnlyAfterTheUpdateCommits() {
+        User user = userRepository.save(User.builder()
+                .username("ivan")
+                .email("ivan@example.com")
+                .institutionId("INST707")
+                .apiKey("APIKEY707")
+                .apiSecretHash("SECRET707")
+                .studentName("Ivan Petrov")
+                .build());
+        credentialCache.put(user.getId(), "APIKEY707", "old-secret");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User managed = userRepository.findById(user.getId()).orElseThrow();
+            managed.setApiSecretHash("SECRET708");
+            userRepository.save(managed);
+            entityManager.flush();
+
+            assertEquals(Optional.of(user.getId()), credentialCache.findVerifiedUserId("APIKEY707", "old-secret"));
+        });
+
+        assertTrue(credentialCache.findVerifiedUserId("APIKEY707", "old-secret").isEmpty());
+    }
+
+    @Test
+    void onCredentialsChanged_ShouldKeepEntry_WhenTheUpdateRollsBack() {
+        User user = userRepository.save(User.builder()
+                .username("judy")
+                .email("judy@example.com")
+                .institutionId("INST808")
+                .apiKey("APIKEY808")
+                .apiSecretHash("SECRET808")
+                .studentName("Judy Hopps")
+                .build());
+        credentialCache.put(user.getId(), "APIKEY808", "secret");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User managed = userRepository.findById(user.getId()).orElseThrow();
+            managed.setApiSecretHash("SECRET809");
+            userRepository.save(managed);
+            entityManager.flush();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Optional.of(user.getId()), credentialCache.findVerifiedUserId("APIKEY808", "secret"));
+    }
+}
@@ -0,0 +1,132 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.ApiCredentialEntry;
+import me.klad3.sumapispring.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ApiCredentialIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ApiCredentialIndex credentialIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        credentialIndex = new ApiCredentialIndex(userRepository, transactionManager, true);
+    }
+
+    @Test
+    void find_BeforeLoad_ShouldNotBeReady() {
+        assertFalse(credentialIndex.isReady());
+        assertTrue(credentialIndex.find("key-1").isEmpty());
+    }
+
+    @Test
+    void reconcile_ShouldLoadCredentialsFromStream() {
+        when(userRepository.streamApiCredentials()).thenReturn(Stream.of(
+                new ApiCredentialEntry(1L, "key-1", "hash-1", "signing-1"),
+                new ApiCredentialEntry(2L, "key-2", "hash-2", null)));
+
+        credentialIndex.reconcile();
+
+        assertTrue(credentialIndex.isReady());
+        User user = credentialIndex.find("key-1").orElseThrow();
+        assertEquals(1L, user.getId());
+        assertEquals("hash-1", user.getApiSecretHash());
+        assertEquals("signing-1", user.getSigningKey());
+        assertTrue(credentialIndex.find("unknown").isEmpty());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void onCredentialsChanged_ShouldReplaceRotatedApiKeyAndRemoveDeletedUsers() {
+        when(userRepository.streamApiCredentials()).thenReturn(Stream.of(
+                new ApiCredentialEntry(1L, "key-1", "hash-1", null),
+                new ApiCredentialEntry(2L, "key-2", "hash-2", null)));
+        credentialIndex.reconcile();
+
+        credentialIndex.onCredentialsChanged(new ApiCredentialsChangedEvent(1L, "key-1b", "hash-1b", null, false));
+        credentialIndex.onCredentialsChanged(new ApiCredentialsChangedEvent(2L, "key-2", null, null, true));
+
+        assertTrue(credentialIndex.find("key-1").isEmpty());
+        assertEquals("hash-1b", credentialIndex.find("key-1b").orElseThrow().getApiSecretHash());
+        assertTrue(credentialIndex.find("key-2").isEmpty());
+    }
+
+    @Test
+    void reconcile_ShouldKeepChangesPublishedWhileLoading() {
+        when(userRepository.streamApiCredentials()).thenAnswer(invocation -> {
+            credentialIndex.onCredentialsChanged(new ApiCredentialsChangedEvent(3L, "key-3", "hash-3", null, false));
+            return Stream.of(new ApiCredentialEntry(1L, "key-1", "hash-1", null));
+        });
+
+        credentialIndex.reconcile();
+
+        assertTrue(credentialIndex.find("key-3").isPresent());
+    }
+
+    @Test
+    void reconcile_ShouldConvergeAndCountDrift() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        credentialIndex.bindTo(registry);
+        when(userRepository.streamApiCredentials())
+                .thenReturn(Stream.of(new ApiCredentialEntry(1L, "key-1", "hash-1", null)))
+                .thenReturn(Stream.of(new ApiCredentialEntry(1L, "key-1", "hash-1-rotated", null),
+                        new ApiCredentialEntry(2L, "key-2", "hash-2", null)));
+        credentialIndex.reconcile();
+
+        credentialIndex.reconcile();
+
+        assertEquals("hash-1-rotated", credentialIndex.find("key-1").orElseThrow().getApiSecretHash());
+        assertTrue(credentialIndex.find("key-2").isPresent());
+        assertEquals(2.0, registry.get("api.credentials.index.drift").counter().count());
+        assertEquals(2.0, registry.get("api.credentials.index.size").gauge().value());
+    }
+
+    @Test
+    void put_ShouldIndexCredentialLoadedOnMiss() {
+        when(userRepository.streamApiCredentials()).thenReturn(Stream.empty());
+        credentialIndex.reconcile();
+
+        credentialIndex.put(new ApiCredentialEntry(4L, "key-4", "hash-4", null));
+
+        assertEquals(Optional.of(4L), credentialIndex.find("key-4").map(User::getId));
+    }
+
+    @Test
+    void reconcile_WhenDatabaseFails_ShouldStayNotReady() {
+        when(userRepository.streamApiCredentials()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        credentialIndex.reconcile();
+
+        assertFalse(credentialIndex.isReady());
+    }
+
+    @Test
+    void reconcile_WhenDisabled_ShouldNotLoad() {
+        ApiCredentialIndex disabled = new ApiCredentialIndex(userRepository, transactionManager, false);
+
+        disabled.reconcile();
+
+        assertFalse(disabled.isReady());
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -1,15 +1,20 @@
 package me.klad3.sumapispring.security;
 
 import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.exception.PayloadTooLargeException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import me.klad3.sumapispring.exception.ServiceUnavailableException;
 import me.klad3.sumapispring.model.User;
 import me.klad3.sumapispring.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.servlet.HandlerExceptionResolver;
@@ -20,6 +25,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,6 +37,24 @@ class ApiKeyAuthFilterTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private ApiCredentialCache credentialCache;
+
+    @Mock
+    private PasswordEncoder apiSecretEncoder;
+
+    @Mock
+    private AccessTokenService accessTokenService;
+
+    @Mock
+    private RequestSignatureVerifier requestSignatureVerifier;
+
+    @Mock
+    private CredentialVerificationExecutor credentialVerificationExecutor;
+
+    @Mock
+    private KnownApiKeys knownApiKeys;
+
     @Mock
     private HandlerExceptionResolver resolver;
 
@@ -51,8 +75,11 @@ class ApiKeyAuthFilterTest {
         MockitoAnnotations.openMocks(this);
         ReflectionTestUtils.setField(apiKeyAuthFilter, "apiKeyHeaderName", "API-Key");
         ReflectionTestUtils.setField(apiKeyAuthFilter, "apiSecretHeaderName", "API-Secret");
+        ReflectionTestUtils.setField(apiKeyAuthFilter, "signatureHeaderName", "API-Signature");
+        ReflectionTestUtils.setField(apiKeyAuthFilter, "maxSignedBodyBytes", 64);
         when(request.getHeader("API-Key")).thenReturn(null);
         when(request.getHeader("API-Secret")).thenReturn(null);
+        when(knownApiKeys.mightContain(anyString())).thenReturn(true);
     }
 
     @AfterEach
@@ -67,7 +94,7 @@ class ApiKeyAuthFilterTest {
 
         User mockUser = mock(User.class);
         when(userService.findByApiKey("valid-api-key")).thenReturn(Optional.of(mockUser));
-        when(mockUser.verifyApiSecret("valid-api-secret")).thenReturn(true);
+        when(credentialVerificationExecutor.verify(mockUser, "valid-api-secret")).thenReturn(true);
         when(mockUser.getApiKey()).thenReturn("valid-api-key");
 
         apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
@@ -78,6 +105,162 @@ class ApiKeyAuthFilterTest {
         assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_API_CLIENT")));
 
         verify(filterChain, times(1)).doFilter(request, response);
+        verify(credentialCache, times(1)).put(any(), eq("valid-api-key"), eq("valid-api-secret"));
+        verify(userService, never()).upgradeCredentials(any(), anyString());
+    }
+
+    @Test
+    void doFilterInternal_WithLegacySecretHash_ShouldUpgradeHashAndProceed() throws ServletException, IOException {
+        when(request.getHeader("API-Key")).thenReturn("valid-api-key");
+        when(request.getHeader("API-Secret")).thenReturn("valid-api-secret");
+
+        User mockUser = mock(User.class);
+        when(userService.findByApiKey("valid-api-key")).thenReturn(Optional.of(mockUser));
+        when(credentialVerificationExecutor.verify(mockUser, "valid-api-secret")).thenReturn(true);
+        when(mockUser.isCredentialUpgradeRequired(apiSecretEncoder)).thenReturn(true);
+        when(mockUser.getApiKey()).thenReturn("valid-api-key");
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        verify(userService, times(1)).upgradeCredentials(mockUser, "valid-api-secret");
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WithCachedCredential_ShouldAuthenticateWithoutLookup() throws ServletException, IOException {
+        when(request.getHeader("API-Key")).thenReturn("valid-api-key");
+        when(request.getHeader("API-Secret")).thenReturn("valid-api-secret");
+        when(credentialCache.findVerifiedUserId("valid-api-key", "valid-api-secret")).thenReturn(Optional.of(1L));
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("valid-api-key", authentication.getPrincipal());
+
+        assertEquals(1L, ((ApiClientAuthentication) authentication).getUserId());
+
+        verify(userService, never()).findByApiKey(anyString());
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WithValidBearerToken_ShouldAuthenticateWithoutLookup() throws ServletException, IOException {
+        when(request.getHeader("Authorization")).thenReturn("Bearer signed-token");
+        when(request.getRequestURI()).thenReturn("/api/courses");
+        when(accessTokenService.verify("signed-token")).thenReturn(Optional.of(
+                new AccessTokenService.AccessToken("signed-token", 7L, "valid-api-key", Instant.now().plusSeconds(60))));
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("valid-api-key", authentication.getPrincipal());
+        assertEquals(7L, ((ApiClientAuthentication) authentication).getUserId());
+
+        verify(userService, never()).findByApiKey(anyString());
+        verify(credentialCache, never()).findVerifiedUserId(anyString(), anyString());
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WithInvalidBearerToken_ShouldInvokeResolverWithException() throws ServletException, IOException {
+        when(request.getHeader("Authorization")).thenReturn("Bearer tampered-token");
+        when(request.getRequestURI()).thenReturn("/api/courses");
+        when(accessTokenService.verify("tampered-token")).thenReturn(Optional.empty());
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+
+        ArgumentCaptor<ApiKeyUnauthorizedException> exceptionCaptor = ArgumentCaptor.forClass(ApiKeyUnauthorizedException.class);
+        verify(resolver, times(1)).resolveException(eq(request), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Invalid or expired access token", exceptionCaptor.getValue().getMessage());
+
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WithBearerTokenOnTokenEndpoint_ShouldInvokeResolverWithException() throws ServletException, IOException {
+        when(request.getHeader("Authorization")).thenReturn("Bearer signed-token");
+        when(request.getRequestURI()).thenReturn("/user/token");
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        ArgumentCaptor<ApiKeyUnauthorizedException> exceptionCaptor = ArgumentCaptor.forClass(ApiKeyUnauthorizedException.class);
+        verify(resolver, times(1)).resolveException(eq(request), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Access tokens cannot be exchanged for new tokens", exceptionCaptor.getValue().getMessage());
+
+        verify(accessTokenService, never()).verify(anyString());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WithSignedRequest_ShouldAuthenticateAndForwardReplayableBody() throws ServletException, IOException {
+        MockHttpServletRequest signedRequest = new MockHttpServletRequest("POST", "/user/login");
+        signedRequest.addHeader("API-Key", "valid-api-key");
+        signedRequest.addHeader("API-Signature", "signature");
+        signedRequest.setContent("{\"user\":\"u\"}".getBytes());
+        when(requestSignatureVerifier.verify(any(CachedBodyHttpServletRequest.class)))
+                .thenReturn(new ApiClientAuthentication(3L, "valid-api-key"));
+
+        apiKeyAuthFilter.doFilterInternal(signedRequest, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("valid-api-key", authentication.getPrincipal());
+
+        ArgumentCaptor<HttpServletRequest> forwarded = ArgumentCaptor.forClass(HttpServletRequest.class);
+        verify(filterChain, times(1)).doFilter(forwarded.capture(), eq(response));
+        assertEquals("{\"user\":\"u\"}", new String(forwarded.getValue().getInputStream().readAllBytes()));
+        verify(userService, never()).findByApiKey(anyString());
+    }
+
+    @Test
+    void doFilterInternal_WithOversizedSignedBody_ShouldRejectWithoutReadingItAll() throws ServletException, IOException {
+        MockHttpServletRequest signedRequest = new MockHttpServletRequest("POST", "/user/login");
+        signedRequest.addHeader("API-Key", "valid-api-key");
+        signedRequest.addHeader("API-Signature", "signature");
+        signedRequest.setContent(new byte[65]);
+
+        apiKeyAuthFilter.doFilterInternal(signedRequest, response, filterChain);
+
+        ArgumentCaptor<PayloadTooLargeException> exceptionCaptor = ArgumentCaptor.forClass(PayloadTooLargeException.class);
+        verify(resolver, times(1)).resolveException(eq(signedRequest), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Request body exceeds 64 bytes", exceptionCaptor.getValue().getMessage());
+        verify(requestSignatureVerifier, never()).verify(any());
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilterInternal_WithInvalidSignature_ShouldInvokeResolverWithException() throws ServletException, IOException {
+        MockHttpServletRequest signedRequest = new MockHttpServletRequest("GET", "/api/courses");
+        signedRequest.addHeader("API-Signature", "bad-signature");
+        when(requestSignatureVerifier.verify(any(CachedBodyHttpServletRequest.class)))
+                .thenThrow(new ApiKeyUnauthorizedException("Invalid request signature"));
+
+        apiKeyAuthFilter.doFilterInternal(signedRequest, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        ArgumentCaptor<ApiKeyUnauthorizedException> exceptionCaptor = ArgumentCaptor.forClass(ApiKeyUnauthorizedException.class);
+        verify(resolver, times(1)).resolveException(eq(signedRequest), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Invalid request signature", exceptionCaptor.getValue().getMessage());
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilterInternal_WhenNonceQuotaIsExhausted_ShouldInvokeResolverWithRateLimitException() throws ServletException, IOException {
+        MockHttpServletRequest signedRequest = new MockHttpServletRequest("GET", "/api/courses");
+        signedRequest.addHeader("API-Signature", "signature");
+        when(requestSignatureVerifier.verify(any(CachedBodyHttpServletRequest.class)))
+                .thenThrow(new RateLimitExceededException("Too many signed requests for this API Key", 42));
+
+        apiKeyAuthFilter.doFilterInternal(signedRequest, response, filterChain);
+
+        ArgumentCaptor<RateLimitExceededException> exceptionCaptor = ArgumentCaptor.forClass(RateLimitExceededException.class);
+        verify(resolver, times(1)).resolveException(eq(signedRequest), eq(response), any(), exceptionCaptor.capture());
+        assertEquals(42, exceptionCaptor.getValue().getRetryAfterSeconds());
+        verify(filterChain, never()).doFilter(any(), any());
     }
 
     @Test
@@ -123,7 +306,7 @@ class ApiKeyAuthFilterTest {
 
         User mockUser = mock(User.class);
         when(userService.findByApiKey("valid-api-key")).thenReturn(Optional.of(mockUser));
-        when(mockUser.verifyApiSecret("invalid-api-secret")).thenReturn(false);
+        when(credentialVerificationExecutor.verify(mockUser, "invalid-api-secret")).thenReturn(false);
 
         apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
 
@@ -135,6 +318,39 @@ class ApiKeyAuthFilterTest {
         assertEquals("Invalid API Key or Secret", exceptionCaptor.getValue().getMessage());
 
         verify(filterChain, never()).doFilter(request, response);
+        verify(credentialCache, never()).put(any(), anyString(), anyString());
+    }
+
+    @Test
+    void doFilterInternal_WithUnknownApiKey_ShouldRejectWithoutLookup() throws ServletException, IOException {
+        when(request.getHeader("API-Key")).thenReturn("unknown-api-key");
+        when(request.getHeader("API-Secret")).thenReturn("some-secret");
+        when(knownApiKeys.mightContain("unknown-api-key")).thenReturn(false);
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        ArgumentCaptor<ApiKeyUnauthorizedException> exceptionCaptor = ArgumentCaptor.forClass(ApiKeyUnauthorizedException.class);
+        verify(resolver, times(1)).resolveException(eq(request), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Invalid API Key or Secret", exceptionCaptor.getValue().getMessage());
+        verify(userService, never()).findByApiKey(anyString());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void doFilterInternal_WhenVerificationSaturated_ShouldInvokeResolverWithServiceUnavailable() throws ServletException, IOException {
+        when(request.getHeader("API-Key")).thenReturn("valid-api-key");
+        when(request.getHeader("API-Secret")).thenReturn("valid-api-secret");
+
+        User mockUser = mock(User.class);
+        when(userService.findByApiKey("valid-api-key")).thenReturn(Optional.of(mockUser));
+        when(credentialVerificationExecutor.verify(mockUser, "valid-api-secret"))
+                .thenThrow(new ServiceUnavailableException("Credential verification capacity exceeded, retry later", 1));
+
+        apiKeyAuthFilter.doFilterInternal(request, response, filterChain);
+
+        verify(resolver, times(1)).resolveException(eq(request), eq(response), any(), any(ServiceUnavailableException.class));
+        verify(filterChain, never()).doFilter(request, response);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
 
     @Test
@@ -0,0 +1,46 @@
+package me.klad3.sumapispring.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyBloomFilterTest {
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Test
+    void mightContain_ShouldNeverReturnFalseNegatives() {
+        ApiKeyBloomFilter filter = ApiKeyBloomFilter.create(10_000, 0.01, 1 << 20, random);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("key-" + i));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("key-" + i)));
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    void mightContain_ShouldStayNearConfiguredFalsePositiveRate() {
+        ApiKeyBloomFilter filter = ApiKeyBloomFilter.create(10_000, 0.01, 1 << 20, random);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("key-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("absent-" + i)).count();
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    void create_ShouldRespectMemoryCap() {
+        ApiKeyBloomFilter filter = ApiKeyBloomFilter.create(1_000_000, 0.001, 4096, random);
+
+        assertEquals(4096, filter.sizeInBytes());
+    }
+
+    @Test
+    void create_WithInvalidSizing_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> ApiKeyBloomFilter.create(0, 0.01, 1024, random));
+        assertThrows(IllegalArgumentException.class, () -> ApiKeyBloomFilter.create(100, 1.5, 1024, random));
+    }
+}
@@ -0,0 +1,65 @@
+package me.klad3.sumapispring.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import me.klad3.sumapispring.exception.PayloadTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedBodyHttpServletRequestTest {
+
+    @Test
+    void getInputStream_ShouldReplayBufferedBody() throws IOException {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(request("{\"user\":\"u\"}"), 64);
+
+        assertEquals("{\"user\":\"u\"}", new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals("{\"user\":\"u\"}", request.getReader().readLine());
+    }
+
+    @Test
+    void setReadListener_ShouldDeliverBufferedBodyWithoutBlocking() throws IOException {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(request("{\"user\":\"u\"}"), 64);
+        ServletInputStream inputStream = request.getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        boolean[] allDataRead = new boolean[1];
+
+        inputStream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (inputStream.isReady() && !inputStream.isFinished()) {
+                    received.write(inputStream.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+        });
+
+        assertEquals("{\"user\":\"u\"}", received.toString(StandardCharsets.UTF_8));
+        assertTrue(allDataRead[0]);
+    }
+
+    @Test
+    void constructor_ShouldRejectBodyOverLimit() {
+        assertThrows(PayloadTooLargeException.class, () -> new CachedBodyHttpServletRequest(request("0123456789"), 4));
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/login");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,101 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.exception.ServiceUnavailableException;
+import me.klad3.sumapispring.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CredentialVerificationExecutorTest {
+
+    private final PasswordEncoder apiSecretEncoder = mock(PasswordEncoder.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private CredentialVerificationExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        executor.destroy();
+    }
+
+    @Test
+    void verify_ShouldDelegateToUserOnWorkerThread() {
+        executor = new CredentialVerificationExecutor(apiSecretEncoder, 1, 1, 1000, 1);
+        User user = mock(User.class);
+        when(user.verifyApiSecret("secret", apiSecretEncoder)).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("credential-verifier-"));
+            return true;
+        });
+
+        assertTrue(executor.verify(user, "secret"));
+    }
+
+    @Test
+    void verify_WhenQueueFull_ShouldFailFastAndCountRejection() throws Exception {
+        executor = new CredentialVerificationExecutor(apiSecretEncoder, 1, 1, 5000, 3);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor.bindTo(registry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        User slowUser = mock(User.class);
+        when(slowUser.verifyApiSecret("secret", apiSecretEncoder)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+
+        callers.submit(() -> executor.verify(slowUser, "secret"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> executor.verify(slowUser, "secret"));
+        while (registry.get("api.credentials.verification.queue.size").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> executor.verify(slowUser, "secret"));
+        assertEquals(3, exception.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("api.credentials.verification.rejected").tag("reason", "queue-full").counter().count());
+
+        release.countDown();
+    }
+
+    @Test
+    void verify_WhenVerificationTimesOut_ShouldFailWithServiceUnavailableAndTagTimeout() {
+        executor = new CredentialVerificationExecutor(apiSecretEncoder, 1, 1, 50, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor.bindTo(registry);
+        CountDownLatch release = new CountDownLatch(1);
+        User slowUser = mock(User.class);
+        when(slowUser.verifyApiSecret("secret", apiSecretEncoder)).thenAnswer(invocation -> {
+            release.await();
+            return true;
+        });
+
+        assertThrows(ServiceUnavailableException.class, () -> executor.verify(slowUser, "secret"));
+        assertEquals(1.0, registry.get("api.credentials.verification.rejected").tag("reason", "timeout").counter().count());
+        assertEquals(0.0, registry.get("api.credentials.verification.rejected").tag("reason", "queue-full").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void verify_ShouldRecordQueueWaitTime() {
+        executor = new CredentialVerificationExecutor(apiSecretEncoder, 1, 1, 1000, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor.bindTo(registry);
+        User user = mock(User.class);
+        when(user.verifyApiSecret("secret", apiSecretEncoder)).thenReturn(false);
+
+        assertFalse(executor.verify(user, "secret"));
+        assertEquals(1, registry.get("api.credentials.verification.wait").timer().count());
+    }
+}
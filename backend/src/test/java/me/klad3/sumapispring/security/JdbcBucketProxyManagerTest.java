@@ -0,0 +1,154 @@
+package me.klad3.sumapispring.security;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class JdbcBucketProxyManagerTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("login", "/user/login", 5, Duration.ofMinutes(1));
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void bucket_ShouldShareQuotaAcrossNodes() {
+        Bucket nodeA = manager(Optimization.NONE_OPTIMIZED, NOW).bucket("login:api-key-1", POLICY);
+        Bucket nodeB = manager(Optimization.NONE_OPTIMIZED, NOW).bucket("login:api-key-1", POLICY);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(nodeA.tryConsume(1));
+        }
+        for (int i = 0; i < 2; i++) {
+            assertTrue(nodeB.tryConsume(1));
+        }
+
+        assertFalse(nodeA.tryConsume(1));
+        assertFalse(nodeB.tryConsume(1));
+        assertEquals(4L, version("login:api-key-1"));
+    }
+
+    @Test
+    void bucket_ShouldKeepSeparateStatePerKey() {
+        JdbcBucketProxyManager manager = manager(Optimization.NONE_OPTIMIZED, NOW);
+
+        assertTrue(manager.bucket("login:api-key-1", POLICY).tryConsume(5));
+        assertTrue(manager.bucket("login:api-key-2", POLICY).tryConsume(5));
+
+        assertEquals(2, count());
+    }
+
+    @Test
+    void bucket_WithDelayingOptimization_ShouldBatchWritesLocally() {
+        Optimization delaying = Optimizations.delaying(new DelayParameters(3, Duration.ofHours(1)));
+        Bucket bucket = manager(delaying, NOW).bucket("login:api-key-1", POLICY);
+
+        assertTrue(bucket.tryConsume(1));
+        long versionAfterFirstSync = version("login:api-key-1");
+        assertTrue(bucket.tryConsume(1));
+        assertTrue(bucket.tryConsume(1));
+
+        assertEquals(versionAfterFirstSync, version("login:api-key-1"));
+    }
+
+    @Test
+    void removeExpired_ShouldDeleteOnlyExpiredBuckets() {
+        manager(Optimization.NONE_OPTIMIZED, NOW).bucket("login:stale", POLICY).tryConsume(1);
+        manager(Optimization.NONE_OPTIMIZED, NOW.plusSeconds(90)).bucket("login:fresh", POLICY).tryConsume(1);
+
+        manager(Optimization.NONE_OPTIMIZED, NOW.plusSeconds(120)).removeExpired();
+
+        assertEquals(1, count());
+        assertEquals(0L, version("login:fresh"));
+    }
+
+    @Test
+    void removeProxy_ShouldResetBucket() {
+        JdbcBucketProxyManager manager = manager(Optimization.NONE_OPTIMIZED, NOW);
+        Bucket bucket = manager.bucket("login:api-key-1", POLICY);
+        assertTrue(bucket.tryConsume(5));
+
+        manager.removeProxy("login:api-key-1");
+
+        assertEquals(0, count());
+        assertTrue(bucket.tryConsume(5));
+    }
+
+    @Test
+    void removeAsync_ShouldDelegateToSynchronousRemove() {
+        JdbcBucketProxyManager manager = manager(Optimization.NONE_OPTIMIZED, NOW);
+        assertTrue(manager.bucket("login:api-key-1", POLICY).tryConsume(1));
+
+        manager.removeAsync("login:api-key-1").join();
+
+        assertEquals(0, count());
+    }
+
+    @Test
+    void asAsync_ShouldShareQuotaWithSynchronousBuckets() {
+        JdbcBucketProxyManager manager = manager(Optimization.NONE_OPTIMIZED, NOW);
+        AsyncBucketProxy asyncBucket = manager.asAsync().builder().build("login:api-key-1", POLICY.configuration());
+        Bucket syncBucket = manager.bucket("login:api-key-1", POLICY);
+
+        assertTrue(manager.isAsyncModeSupported());
+        assertTrue(asyncBucket.tryConsume(3).join());
+        assertTrue(syncBucket.tryConsume(2));
+        assertFalse(asyncBucket.tryConsume(1).join());
+        assertEquals(1L, version("login:api-key-1"));
+    }
+
+    @Test
+    void beginAsyncCompareAndSwapOperation_WhenStorageFails_ShouldCompleteExceptionally() {
+        jdbcTemplate.execute("ALTER TABLE rate_limit_buckets RENAME TO rate_limit_buckets_moved");
+        try {
+            AsyncCompareAndSwapOperation operation = manager(Optimization.NONE_OPTIMIZED, NOW)
+                    .beginAsyncCompareAndSwapOperation("login:api-key-1");
+
+            CompletionException exception = assertThrows(CompletionException.class, () -> operation.getStateData().join());
+            assertInstanceOf(DataAccessException.class, exception.getCause());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE rate_limit_buckets_moved RENAME TO rate_limit_buckets");
+        }
+    }
+
+    private JdbcBucketProxyManager manager(Optimization optimization, Instant now) {
+        return new JdbcBucketProxyManager(jdbcTemplate, optimization, Duration.ofMinutes(1), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private long version(String key) {
+        return jdbcTemplate.queryForObject("SELECT version FROM rate_limit_buckets WHERE id = ?", Long.class, key);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rate_limit_buckets", Integer.class);
+    }
+}
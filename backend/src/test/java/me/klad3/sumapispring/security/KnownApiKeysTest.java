@@ -0,0 +1,243 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import me.klad3.sumapispring.repository.ApiKeyEntry;
+import me.klad3.sumapispring.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class KnownApiKeysTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private KnownApiKeys knownApiKeys;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        knownApiKeys = new KnownApiKeys(userRepository, true, 1000, 0.001, 1 << 16, 60, 10, 50, CLOCK);
+    }
+
+    @Test
+    void mightContain_BeforeFirstBuild_ShouldFailOpen() {
+        assertTrue(knownApiKeys.mightContain("any-key"));
+    }
+
+    @Test
+    void rebuild_ShouldRejectUnknownKeysAndCountRejections() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        knownApiKeys.bindTo(registry);
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(1L, "key-1"), new ApiKeyEntry(2L, "key-2")));
+
+        knownApiKeys.rebuild();
+
+        assertTrue(knownApiKeys.mightContain("key-1"));
+        assertTrue(knownApiKeys.mightContain("key-2"));
+        assertFalse(knownApiKeys.mightContain("unknown-key"));
+        assertEquals(1.0, registry.get("api.keys.filter.rejected").counter().count());
+        assertEquals(2.0, registry.get("api.keys.filter.keys").gauge().value());
+    }
+
+    @Test
+    void mightContain_WhenKeyWasCreatedOnAnotherNode_ShouldFindItInTheDatabase() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        knownApiKeys.bindTo(registry);
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(1L, "key-1")));
+        knownApiKeys.rebuild();
+        when(userRepository.existsByApiKey("created-elsewhere")).thenReturn(true);
+
+        assertTrue(knownApiKeys.mightContain("created-elsewhere"));
+        assertTrue(knownApiKeys.mightContain("created-elsewhere"));
+
+        verify(userRepository, times(1)).existsByApiKey("created-elsewhere");
+        assertEquals(1.0, registry.get("api.keys.filter.lookups").tag("outcome", "found").counter().count());
+    }
+
+    @Test
+    void mightContain_ShouldRememberMissingKeysWithoutQueryingAgain() {
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(1L, "key-1")));
+        knownApiKeys.rebuild();
+
+        assertFalse(knownApiKeys.mightContain("unknown-key"));
+        assertFalse(knownApiKeys.mightContain("unknown-key"));
+
+        verify(userRepository, times(1)).existsByApiKey("unknown-key");
+    }
+
+    @Test
+    void mightContain_ShouldThrottleDatabaseLookupsForMisses() {
+        KnownApiKeys throttled = new KnownApiKeys(userRepository, true, 1000, 0.001, 1 << 16, 60, 10, 1, CLOCK);
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(1L, "key-1")));
+        throttled.rebuild();
+
+        assertFalse(throttled.mightContain("unknown-1"));
+        assertFalse(throttled.mightContain("unknown-2"));
+
+        verify(userRepository, times(1)).existsByApiKey(anyString());
+    }
+
+    @Test
+    void mightContain_WhenLookupFails_ShouldRejectWithoutRememberingTheKey() {
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(1L, "key-1")));
+        knownApiKeys.rebuild();
+        when(userRepository.existsByApiKey("new-key"))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(true);
+
+        assertFalse(knownApiKeys.mightContain("new-key"));
+        assertTrue(knownApiKeys.mightContain("new-key"));
+    }
+
+    @Test
+    void add_ShouldMakeKeyVisibleImmediately() {
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of());
+        knownApiKeys.rebuild();
+
+        knownApiKeys.add("new-key");
+
+        assertTrue(knownApiKeys.mightContain("new-key"));
+    }
+
+    @Test
+    void rebuild_ShouldKeepKeysAddedWhileLoading() {
+        when(userRepository.findApiKeysAfter(0L)).thenAnswer(invocation -> {
+            knownApiKeys.add("created-during-rebuild");
+            return List.of(new ApiKeyEntry(1L, "key-1"));
+        });
+
+        knownApiKeys.rebuild();
+
+        assertTrue(knownApiKeys.mightContain("created-during-rebuild"));
+    }
+
+    @Test
+    void refresh_ShouldLoadKeysUpdatedSinceLastLoadMinusTheOverlap() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        knownApiKeys.bindTo(registry);
+        LocalDateTime since = LocalDateTime.now(CLOCK).minusSeconds(60);
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of(new ApiKeyEntry(7L, "key-7")));
+        when(userRepository.findApiKeysUpdatedSince(since)).thenReturn(List.of(
+                new ApiKeyEntry(3L, "rotated-key-3"), new ApiKeyEntry(7L, "key-7"), new ApiKeyEntry(8L, "key-8")));
+        knownApiKeys.rebuild();
+
+        knownApiKeys.refresh();
+
+        assertTrue(knownApiKeys.mightContain("rotated-key-3"));
+        assertTrue(knownApiKeys.mightContain("key-8"));
+        assertEquals(3.0, registry.get("api.keys.filter.keys").gauge().value());
+        verify(userRepository, times(1)).findApiKeysUpdatedSince(since);
+    }
+
+    @Test
+    void rebuild_WhenDatabaseFails_ShouldKeepFailingOpen() {
+        when(userRepository.findApiKeysAfter(0L)).thenThrow(new DataAccessResourceFailureException("down"));
+
+        knownApiKeys.rebuild();
+
+        assertTrue(knownApiKeys.mightContain("any-key"));
+    }
+
+    @Test
+    void rebuild_WhenDisabled_ShouldNotLoadKeys() {
+        KnownApiKeys disabled = new KnownApiKeys(userRepository, false, 1000, 0.001, 1 << 16, 60, 10, 50, CLOCK);
+
+        disabled.rebuild();
+
+        assertTrue(disabled.mightContain("any-key"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void refresh_ConcurrentCalls_ShouldNotOverlap() throws Exception {
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of());
+        knownApiKeys.rebuild();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(userRepository.findApiKeysUpdatedSince(any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            running.decrementAndGet();
+            return List.of();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(executor.submit(knownApiKeys::refresh));
+            }
+            for (Future<?> task : tasks) {
+                task.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void refresh_OnVirtualThreads_ShouldNotPinCarrierDuringDatabaseIo() throws Exception {
+        when(userRepository.findApiKeysAfter(0L)).thenReturn(List.of());
+        knownApiKeys.rebuild();
+        when(userRepository.findApiKeysUpdatedSince(any())).thenAnswer(invocation -> {
+            Thread.sleep(25);
+            return List.of();
+        });
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("pinning-check-");
+        executor.setVirtualThreads(true);
+        Path dump = Files.createTempFile("virtual-thread-pinning", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(knownApiKeys::refresh, executor),
+                    CompletableFuture.runAsync(knownApiKeys::refresh, executor),
+                    CompletableFuture.runAsync(knownApiKeys::rebuild, executor)
+            ).get(10, TimeUnit.SECONDS);
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+                    .toList();
+            assertTrue(pinned.isEmpty(), () -> "Virtual thread pinned: " + pinned);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+}
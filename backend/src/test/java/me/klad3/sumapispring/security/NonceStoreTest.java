@@ -0,0 +1,66 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonceStoreTest {
+
+    @Test
+    void register_ShouldAcceptNonceOnlyOncePerApiKey() {
+        NonceStore nonceStore = new NonceStore(100, 300);
+
+        assertTrue(nonceStore.register("api-key", "nonce"));
+        assertFalse(nonceStore.register("api-key", "nonce"));
+        assertTrue(nonceStore.register("other-key", "nonce"));
+    }
+
+    @Test
+    void register_ShouldFailClosedOnlyForTheApiKeyThatFilledItsQuota() {
+        NonceStore nonceStore = new NonceStore(2, 300);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        nonceStore.bindTo(registry);
+
+        assertTrue(nonceStore.register("flooding-key", "nonce-1"));
+        assertTrue(nonceStore.register("flooding-key", "nonce-2"));
+
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class, () -> nonceStore.register("flooding-key", "nonce-3"));
+        assertTrue(exception.getRetryAfterSeconds() >= 1 && exception.getRetryAfterSeconds() <= 600);
+        assertFalse(nonceStore.register("flooding-key", "nonce-1"));
+        assertTrue(nonceStore.register("other-key", "nonce-1"));
+        assertEquals(1.0, registry.get("api.signature.nonces.rejected").counter().count());
+        assertEquals(3.0, registry.get("api.signature.nonces.size").gauge().value());
+    }
+
+    @Test
+    void register_UnderConcurrency_ShouldNeverExceedTheQuota() {
+        NonceStore nonceStore = new NonceStore(50, 300);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture.allOf(IntStream.range(0, 400)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            if (nonceStore.register("api-key", "nonce-" + i)) {
+                                accepted.incrementAndGet();
+                            }
+                        } catch (RateLimitExceededException ignored) {
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(50, accepted.get());
+        assertEquals(50, nonceStore.size());
+    }
+}
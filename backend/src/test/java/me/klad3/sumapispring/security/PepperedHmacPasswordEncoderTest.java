@@ -0,0 +1,46 @@
+package me.klad3.sumapispring.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PepperedHmacPasswordEncoderTest {
+
+    private static final String PEPPER = "unit-test-pepper-with-at-least-32-characters";
+
+    private PepperedHmacPasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        encoder = new PepperedHmacPasswordEncoder(PEPPER);
+    }
+
+    @Test
+    void matches_ShouldReturnTrue_ForEncodedSecret() {
+        String encoded = encoder.encode("api-secret");
+
+        assertTrue(encoder.matches("api-secret", encoded));
+        assertFalse(encoder.matches("other-secret", encoded));
+    }
+
+    @Test
+    void encode_ShouldBeDeterministicPerPepper() {
+        PepperedHmacPasswordEncoder otherPepper = new PepperedHmacPasswordEncoder(PEPPER + "-rotated");
+
+        assertEquals(encoder.encode("api-secret"), encoder.encode("api-secret"));
+        assertNotEquals(encoder.encode("api-secret"), otherPepper.encode("api-secret"));
+    }
+
+    @Test
+    void matches_ShouldReturnFalse_ForMalformedHash() {
+        assertFalse(encoder.matches("api-secret", "not base64 !"));
+        assertFalse(encoder.matches("api-secret", null));
+    }
+
+    @Test
+    void constructor_ShouldRejectShortPepper() {
+        assertThrows(IllegalArgumentException.class, () -> new PepperedHmacPasswordEncoder("short"));
+        assertThrows(IllegalArgumentException.class, () -> new PepperedHmacPasswordEncoder(null));
+    }
+}
@@ -0,0 +1,172 @@
+package me.klad3.sumapispring.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import io.github.bucket4j.Bucket;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    @Mock
+    private HandlerExceptionResolver resolver;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rateLimitFilter = new RateLimitFilter(true, 1000, 2, 60, 5, 60, 3, 60, 10, 60, resolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_WithinLimit_ShouldProceedWithRateLimitHeaders() throws Exception {
+        authenticate("api-key-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), response, filterChain);
+
+        verify(filterChain, times(1)).doFilter(any(), eq(response));
+        assertEquals("2", response.getHeader(RateLimitFilter.LIMIT_HEADER));
+        assertEquals("1", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void doFilter_WhenLimitExceeded_ShouldRejectWithRetryAfter() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        rateLimitFilter.bindTo(registry);
+        authenticate("api-key-1");
+
+        for (int i = 0; i < 2; i++) {
+            rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), new MockHttpServletResponse(), filterChain);
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilterInternal(request, response, filterChain);
+
+        ArgumentCaptor<RateLimitExceededException> exceptionCaptor = ArgumentCaptor.forClass(RateLimitExceededException.class);
+        verify(resolver, times(1)).resolveException(eq(request), eq(response), any(), exceptionCaptor.capture());
+        assertEquals("Rate limit exceeded for this API Key", exceptionCaptor.getValue().getMessage());
+        long retryAfter = exceptionCaptor.getValue().getRetryAfterSeconds();
+        assertTrue(retryAfter >= 1 && retryAfter <= 30, "retry after: " + retryAfter);
+        assertEquals("0", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+        assertEquals(String.valueOf(retryAfter), response.getHeader(RateLimitFilter.RESET_HEADER));
+        verify(filterChain, times(2)).doFilter(any(), any());
+        assertEquals(1.0, registry.get("api.ratelimit.rejected").tag("policy", "login").counter().count());
+    }
+
+    @Test
+    void doFilter_CombinedLoginEndpoint_ShouldShareLoginBucket() throws Exception {
+        authenticate("api-key-1");
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), new MockHttpServletResponse(), filterChain);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login/courses"), response, filterChain);
+
+        assertEquals("2", response.getHeader(RateLimitFilter.LIMIT_HEADER));
+        assertEquals("0", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void doFilter_ShouldKeepSeparateBucketsPerApiKeyAndEndpoint() throws Exception {
+        authenticate("api-key-1");
+        for (int i = 0; i < 2; i++) {
+            rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), new MockHttpServletResponse(), filterChain);
+        }
+
+        MockHttpServletResponse coursesResponse = new MockHttpServletResponse();
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("GET", "/api/courses"), coursesResponse, filterChain);
+        assertEquals("3", coursesResponse.getHeader(RateLimitFilter.LIMIT_HEADER));
+
+        authenticate("api-key-2");
+        MockHttpServletResponse otherKeyResponse = new MockHttpServletResponse();
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), otherKeyResponse, filterChain);
+        assertEquals("1", otherKeyResponse.getHeader(RateLimitFilter.REMAINING_HEADER));
+
+        verify(filterChain, times(4)).doFilter(any(), any());
+        verify(resolver, never()).resolveException(any(), any(), any(), any());
+    }
+
+    @Test
+    void doFilter_WithoutAuthentication_ShouldNotLimit() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/create"), response, filterChain);
+
+        verify(filterChain, times(1)).doFilter(any(), eq(response));
+        assertNull(response.getHeader(RateLimitFilter.LIMIT_HEADER));
+    }
+
+    @Test
+    void doFilter_WhenDisabled_ShouldNotLimit() throws Exception {
+        RateLimitFilter disabled = new RateLimitFilter(false, 1000, 1, 60, 1, 60, 1, 60, 1, 60, resolver);
+        authenticate("api-key-1");
+
+        for (int i = 0; i < 3; i++) {
+            disabled.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), new MockHttpServletResponse(), filterChain);
+        }
+
+        verify(filterChain, times(3)).doFilter(any(), any());
+        verify(resolver, never()).resolveException(any(), any(), any(), any());
+    }
+
+    @Test
+    void doFilter_WithDistributedBuckets_ShouldReuseProxyPerApiKeyAndEndpoint() throws Exception {
+        JdbcBucketProxyManager distributedBuckets = mock(JdbcBucketProxyManager.class);
+        when(distributedBuckets.bucket(eq("login:api-key-1"), any())).thenAnswer(invocation ->
+                invocation.getArgument(1, RateLimitPolicy.class).newBucket());
+        rateLimitFilter.setDistributedBuckets(distributedBuckets);
+        authenticate("api-key-1");
+
+        for (int i = 0; i < 3; i++) {
+            rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), new MockHttpServletResponse(), filterChain);
+        }
+
+        verify(distributedBuckets, times(1)).bucket(eq("login:api-key-1"), any());
+        verify(filterChain, times(2)).doFilter(any(), any());
+        verify(resolver, times(1)).resolveException(any(), any(), any(), any(RateLimitExceededException.class));
+    }
+
+    @Test
+    void doFilter_WhenDistributedStoreFails_ShouldAllowRequest() throws Exception {
+        JdbcBucketProxyManager distributedBuckets = mock(JdbcBucketProxyManager.class);
+        Bucket failingBucket = mock(Bucket.class);
+        when(failingBucket.tryConsumeAndReturnRemaining(1)).thenThrow(new DataAccessResourceFailureException("database down"));
+        when(distributedBuckets.bucket(any(), any())).thenReturn(failingBucket);
+        rateLimitFilter.setDistributedBuckets(distributedBuckets);
+        authenticate("api-key-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilterInternal(new MockHttpServletRequest("POST", "/user/login"), response, filterChain);
+
+        verify(filterChain, times(1)).doFilter(any(), eq(response));
+        verify(resolver, never()).resolveException(any(), any(), any(), any());
+    }
+
+    private void authenticate(String apiKey) {
+        SecurityContextHolder.getContext().setAuthentication(new ApiClientAuthentication(1L, apiKey));
+    }
+}
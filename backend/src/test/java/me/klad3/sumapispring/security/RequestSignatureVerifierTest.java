@@ -0,0 +1,200 @@
+package me.klad3.sumapispring.security;
+
+import me.klad3.sumapispring.exception.ApiKeyUnauthorizedException;
+import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestSignatureVerifierTest {
+
+    private static final String PEPPER = "unit-test-pepper-with-at-least-32-characters";
+    private static final String API_KEY = "valid-api-key";
+    private static final String API_SECRET = "valid-api-secret";
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final int MAX_BODY_BYTES = 1024;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private KnownApiKeys knownApiKeys;
+
+    private RequestSignatureVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        RequestSigningKeys signingKeys = new RequestSigningKeys(PEPPER);
+        User user = User.builder()
+                .id(5L)
+                .apiKey(API_KEY)
+                .signingKey(signingKeys.seal(API_SECRET))
+                .build();
+        when(userService.findByApiKey(API_KEY)).thenReturn(Optional.of(user));
+        when(knownApiKeys.mightContain(anyString())).thenReturn(true);
+
+        verifier = new RequestSignatureVerifier(userService, signingKeys, new NonceStore(1000, 300), knownApiKeys,
+                100, 600, 300, Clock.fixed(NOW, ZoneOffset.UTC));
+        ReflectionTestUtils.setField(verifier, "apiKeyHeaderName", "API-Key");
+        ReflectionTestUtils.setField(verifier, "timestampHeaderName", "API-Timestamp");
+        ReflectionTestUtils.setField(verifier, "nonceHeaderName", "API-Nonce");
+        ReflectionTestUtils.setField(verifier, "signatureHeaderName", "API-Signature");
+    }
+
+    @Test
+    void verify_WithValidSignature_ShouldReturnAuthentication() throws Exception {
+        CachedBodyHttpServletRequest request = signedRequest("nonce-1", NOW.getEpochSecond(), "{\"user\":\"u\"}");
+
+        ApiClientAuthentication authentication = verifier.verify(request);
+
+        assertEquals(API_KEY, authentication.getPrincipal());
+        assertEquals(5L, authentication.getUserId());
+    }
+
+    @Test
+    void verify_ShouldCacheSigningKeyAcrossRequests() throws Exception {
+        verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}"));
+        verifier.verify(signedRequest("nonce-2", NOW.getEpochSecond(), "{}"));
+
+        verify(userService, times(1)).findByApiKey(API_KEY);
+    }
+
+    @Test
+    void verify_WithReplayedNonce_ShouldThrow() throws Exception {
+        verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}"));
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}")));
+        assertEquals("Replayed request nonce", exception.getMessage());
+    }
+
+    @Test
+    void verify_WithStaleTimestamp_ShouldThrow() throws Exception {
+        CachedBodyHttpServletRequest request = signedRequest("nonce-1", NOW.getEpochSecond() - 301, "{}");
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class, () -> verifier.verify(request));
+        assertEquals("Request timestamp outside the allowed window", exception.getMessage());
+        verify(userService, never()).findByApiKey(any());
+    }
+
+    @Test
+    void verify_WithTamperedBody_ShouldThrowAndNotConsumeNonce() throws Exception {
+        MockHttpServletRequest tampered = rawSignedRequest("nonce-1", NOW.getEpochSecond(), "{\"user\":\"a\"}");
+        tampered.setContent("{\"user\":\"b\"}".getBytes(StandardCharsets.UTF_8));
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(new CachedBodyHttpServletRequest(tampered, MAX_BODY_BYTES)));
+        assertEquals("Invalid request signature", exception.getMessage());
+
+        assertDoesNotThrow(() -> verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}")));
+    }
+
+    @Test
+    void verify_WithMissingHeaders_ShouldThrow() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/courses");
+        request.addHeader("API-Signature", "signature");
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(new CachedBodyHttpServletRequest(request, MAX_BODY_BYTES)));
+        assertEquals("Missing request signature headers", exception.getMessage());
+    }
+
+    @Test
+    void verify_WithoutStoredSigningKey_ShouldThrow() throws Exception {
+        when(userService.findByApiKey("legacy-key")).thenReturn(Optional.of(User.builder().id(6L).apiKey("legacy-key").build()));
+        MockHttpServletRequest request = rawSignedRequest("nonce-1", NOW.getEpochSecond(), "{}");
+        request.removeHeader("API-Key");
+        request.addHeader("API-Key", "legacy-key");
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(new CachedBodyHttpServletRequest(request, MAX_BODY_BYTES)));
+        assertEquals("Request signing is not enabled for this API Key", exception.getMessage());
+    }
+
+    @Test
+    void verify_WithUndecryptableSigningKey_ShouldFailAuthentication() throws Exception {
+        when(userService.findByApiKey("corrupted-key")).thenReturn(Optional.of(
+                User.builder().id(7L).apiKey("corrupted-key").signingKey("not-a-sealed-key").build()));
+        MockHttpServletRequest request = rawSignedRequest("nonce-1", NOW.getEpochSecond(), "{}");
+        request.removeHeader("API-Key");
+        request.addHeader("API-Key", "corrupted-key");
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(new CachedBodyHttpServletRequest(request, MAX_BODY_BYTES)));
+        assertEquals("Invalid request signature", exception.getMessage());
+    }
+
+    @Test
+    void verify_WithUnknownApiKey_ShouldThrowWithoutLookup() throws Exception {
+        when(knownApiKeys.mightContain(API_KEY)).thenReturn(false);
+
+        ApiKeyUnauthorizedException exception = assertThrows(ApiKeyUnauthorizedException.class,
+                () -> verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}")));
+        assertEquals("Invalid request signature", exception.getMessage());
+        verify(userService, never()).findByApiKey(any());
+    }
+
+    @Test
+    void onCredentialsChanged_ShouldDropCachedSigningKey() throws Exception {
+        verifier.verify(signedRequest("nonce-1", NOW.getEpochSecond(), "{}"));
+
+        verifier.onCredentialsChanged(new ApiCredentialsChangedEvent(5L, API_KEY, "{hmac-sha256}hash", null, false));
+        verifier.verify(signedRequest("nonce-2", NOW.getEpochSecond(), "{}"));
+
+        verify(userService, times(2)).findByApiKey(API_KEY);
+    }
+
+    private CachedBodyHttpServletRequest signedRequest(String nonce, long timestamp, String body) throws IOException {
+        return new CachedBodyHttpServletRequest(rawSignedRequest(nonce, timestamp, body), MAX_BODY_BYTES);
+    }
+
+    private MockHttpServletRequest rawSignedRequest(String nonce, long timestamp, String body) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/login");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        request.addHeader("API-Key", API_KEY);
+        request.addHeader("API-Timestamp", String.valueOf(timestamp));
+        request.addHeader("API-Nonce", nonce);
+        String canonical = String.join("\n", "POST", "/user/login", String.valueOf(timestamp), nonce,
+                HexFormat.of().formatHex(sha256(body)));
+        request.addHeader("API-Signature", sign(canonical));
+        return request;
+    }
+
+    private static byte[] sha256(String body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sign(String canonical) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(RequestSigningKeys.derive(API_SECRET), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package me.klad3.sumapispring.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestSigningKeysTest {
+
+    private final RequestSigningKeys signingKeys = new RequestSigningKeys("unit-test-pepper-with-at-least-32-characters");
+
+    @Test
+    void open_ShouldReturnDerivedKey_ForSealedSecret() {
+        String sealed = signingKeys.seal("api-secret");
+
+        assertArrayEquals(RequestSigningKeys.derive("api-secret"), signingKeys.open(sealed));
+        assertTrue(sealed.length() <= 100);
+    }
+
+    @Test
+    void seal_ShouldNotExposeDerivedKeyOrRepeatCiphertext() {
+        assertNotEquals(signingKeys.seal("api-secret"), signingKeys.seal("api-secret"));
+    }
+
+    @Test
+    void open_ShouldFail_WithAnotherPepper() {
+        String sealed = signingKeys.seal("api-secret");
+        RequestSigningKeys other = new RequestSigningKeys("another-pepper-with-at-least-32-characters");
+
+        assertThrows(IllegalStateException.class, () -> other.open(sealed));
+    }
+}
@@ -3,8 +3,19 @@ package me.klad3.sumapispring.service;
 import me.klad3.sumapispring.dto.LoginResponse;
 import me.klad3.sumapispring.exception.AuthenticationException;
 import me.klad3.sumapispring.exception.BadRequestException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+import me.klad3.sumapispring.util.CookieJar;
+import me.klad3.sumapispring.util.Deadline;
 import me.klad3.sumapispring.util.HtmlParserUtil;
 import me.klad3.sumapispring.util.HttpClientUtil;
+import me.klad3.sumapispring.util.LoginFailureGuard;
+import me.klad3.sumapispring.util.LoginPagePool;
+import me.klad3.sumapispring.util.UpstreamCoalescer;
+import me.klad3.sumapispring.util.UpstreamEndpoint;
+import me.klad3.sumapispring.util.UpstreamResilience;
+import me.klad3.sumapispring.util.UpstreamSessionStore;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -13,8 +24,13 @@ import org.springframework.util.MultiValueMap;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -26,19 +42,39 @@ class AuthServiceTest {
     @Mock
     private HtmlParserUtil htmlParserUtil;
 
-    @InjectMocks
+    @Mock
+    private CookieJar cookieJar;
+
+    @Mock
+    private LoginPagePool loginPagePool;
+
+    @Mock
+    private UpstreamSessionStore upstreamSessionStore;
+
+    @Mock
+    private LoginFailureGuard loginFailureGuard;
+
+    @Mock
+    private HttpResponse.BodyHandler<String> csrfTokenBodyHandler;
+
     private AuthService authService;
 
     @Captor
     private ArgumentCaptor<MultiValueMap<String, String>> formDataCaptor;
 
+    private static final String CLIENT = "valid-api-key";
     private static final String TEST_LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
     private static final String TEST_SESSION_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/sesionIniciada";
+    private static final String TEST_HOME_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/inicio";
     private static final String TEST_RESTART_SESSION_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/reiniciarSesion?us=";
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        authService = new AuthService(httpClientUtil, htmlParserUtil, new UpstreamResilience(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), 50, 80, 5000, 20, 10, 30, 3, 32, 32, 1), loginPagePool, upstreamSessionStore, new UpstreamCoalescer(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), true, 100, 0), loginFailureGuard);
+        when(httpClientUtil.newCookieJar()).thenReturn(cookieJar);
+        when(htmlParserUtil.csrfTokenBodyHandler()).thenReturn(csrfTokenBodyHandler);
+        when(upstreamSessionStore.find(anyString(), anyString(), any(Deadline.class))).thenReturn(completedFuture(Optional.empty()));
 
         when(httpClientUtil.getFinalUrl(any(HttpResponse.class))).thenAnswer(invocation -> {
             HttpResponse<?> response = invocation.getArgument(0);
@@ -47,134 +83,140 @@ class AuthServiceTest {
     }
 
     @Test
-    void login_Success() throws IOException, InterruptedException {
+    void login_Success() {
         String username = "john_doe";
         String password = "securePassword";
         String csrfToken = "dummyCsrfToken";
         String sessionCookie = "SESSIONID=abc123";
 
-        HttpResponse<String> getResponse = mock(HttpResponse.class);
-        when(getResponse.statusCode()).thenReturn(200);
-        when(getResponse.body()).thenReturn("<html><input type='hidden' name='_csrf' value='" + csrfToken + "'></html>");
-        when(httpClientUtil.get(TEST_LOGIN_URL)).thenReturn(getResponse);
-
-        when(htmlParserUtil.extractCsrfToken(getResponse.body())).thenReturn(csrfToken);
+        HttpResponse<String> getResponse = loginPage(csrfToken);
 
         HttpResponse<String> postResponse = mock(HttpResponse.class);
         when(postResponse.statusCode()).thenReturn(200);
-        when(postResponse.uri()).thenReturn(URI.create(TEST_SESSION_URL));
-        when(httpClientUtil.post(eq(TEST_LOGIN_URL), any(MultiValueMap.class))).thenReturn(postResponse);
-
-        HttpResponse<String> restartResponse = mock(HttpResponse.class);
-        when(restartResponse.statusCode()).thenReturn(200);
-        when(httpClientUtil.get(TEST_RESTART_SESSION_URL + username)).thenReturn(restartResponse);
+        when(postResponse.uri()).thenReturn(URI.create(TEST_HOME_URL));
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
 
-        when(httpClientUtil.getAllCookies()).thenReturn(List.of(sessionCookie));
+        when(cookieJar.getCookies()).thenReturn(List.of(sessionCookie));
 
-        LoginResponse response = authService.login(username, password);
+        LoginResponse response = authService.login(CLIENT, username, password, Deadline.after(Duration.ofSeconds(10))).join();
 
         assertNotNull(response);
         assertEquals("Login successful", response.getMessage());
         assertEquals(List.of(sessionCookie), response.getSessionCookies());
 
-        verify(httpClientUtil, times(1)).get(TEST_LOGIN_URL);
-        verify(htmlParserUtil, times(1)).extractCsrfToken(getResponse.body());
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class));
+        verify(htmlParserUtil, times(1)).csrfTokenBodyHandler();
 
-        verify(httpClientUtil, times(1)).post(eq(TEST_LOGIN_URL), formDataCaptor.capture());
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), formDataCaptor.capture(), eq(cookieJar), any(Duration.class));
 
         MultiValueMap<String, String> capturedFormData = formDataCaptor.getValue();
         assertEquals(csrfToken, capturedFormData.getFirst("_csrf"));
         assertEquals(username, capturedFormData.getFirst("login"));
         assertEquals(password, capturedFormData.getFirst("clave"));
 
-        verify(httpClientUtil, times(1)).get(TEST_RESTART_SESSION_URL + username);
-        verify(httpClientUtil, times(1)).getAllCookies();
-
+        verify(cookieJar, times(2)).getCookies();
         verify(httpClientUtil, times(1)).getFinalUrl(postResponse);
+        verify(httpClientUtil, times(1)).newCookieJar();
 
+        verify(upstreamSessionStore, times(1)).save(username, password, List.of(sessionCookie));
+        verify(loginFailureGuard, times(1)).check(CLIENT, username, password);
+        verify(loginFailureGuard, times(1)).recordSuccess(CLIENT, username);
         verifyNoMoreInteractions(httpClientUtil, htmlParserUtil);
     }
 
     @Test
-    void login_FetchLoginPage_Fails() throws IOException, InterruptedException {
+    void login_FetchLoginPage_Fails() {
         String username = "john_doe";
         String password = "securePassword";
 
         HttpResponse<String> getResponse = mock(HttpResponse.class);
         when(getResponse.statusCode()).thenReturn(500);
-        when(httpClientUtil.get(TEST_LOGIN_URL)).thenReturn(getResponse);
+        when(httpClientUtil.getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class))).thenReturn(completedFuture(getResponse));
 
-        BadRequestException exception = assertThrows(BadRequestException.class, () -> {
-            authService.login(username, password);
-        });
+        Throwable exception = assertLoginFails(username, password);
 
+        assertInstanceOf(BadRequestException.class, exception);
         assertEquals("Failed to fetch login page", exception.getMessage());
 
-        verify(httpClientUtil, times(1)).get(TEST_LOGIN_URL);
-        verify(htmlParserUtil, never()).extractCsrfToken(anyString());
-        verify(httpClientUtil, never()).post(anyString(), any(MultiValueMap.class));
-        verify(httpClientUtil, never()).get(TEST_RESTART_SESSION_URL + username);
-        verify(httpClientUtil, never()).getAllCookies();
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class));
+        verify(htmlParserUtil, times(1)).csrfTokenBodyHandler();
+        verify(httpClientUtil, never()).postAsync(anyString(), any(MultiValueMap.class), any(CookieJar.class), any(Duration.class));
+        verify(cookieJar, never()).getCookies();
+        verify(httpClientUtil, times(1)).newCookieJar();
 
         verifyNoMoreInteractions(httpClientUtil, htmlParserUtil);
     }
 
     @Test
-    void login_CsrfToken_NotFound() throws IOException, InterruptedException {
+    void login_FetchLoginPage_IOException() {
+        when(httpClientUtil.getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Network error")));
+
+        Throwable exception = assertLoginFails("john_doe", "securePassword");
+
+        assertInstanceOf(IOException.class, exception);
+        verify(httpClientUtil, never()).postAsync(anyString(), any(MultiValueMap.class), any(CookieJar.class), any(Duration.class));
+    }
+
+    @Test
+    void login_WhenLoginPageCircuitIsOpen_ShouldFailFastWithoutCallingUpstream() {
+        UpstreamResilience upstreamResilience = mock(UpstreamResilience.class);
+        when(upstreamResilience.call(eq(UpstreamEndpoint.LOGIN_PAGE), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new UpstreamUnavailableException("SUM portal is unavailable, retry later", 30)));
+        authService = new AuthService(httpClientUtil, htmlParserUtil, upstreamResilience, loginPagePool, upstreamSessionStore, new UpstreamCoalescer(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), true, 100, 0), loginFailureGuard);
+
+        Throwable exception = assertLoginFails("john_doe", "securePassword");
+
+        assertInstanceOf(UpstreamUnavailableException.class, exception);
+        verify(httpClientUtil, never()).getAsync(anyString(), any(CookieJar.class), any(), any(Duration.class));
+    }
+
+    @Test
+    void login_CsrfToken_NotFound() {
         String username = "john_doe";
         String password = "securePassword";
 
         HttpResponse<String> getResponse = mock(HttpResponse.class);
         when(getResponse.statusCode()).thenReturn(200);
-        when(getResponse.body()).thenReturn("<html><form></form></html>");
-        when(httpClientUtil.get(TEST_LOGIN_URL)).thenReturn(getResponse);
+        when(getResponse.body()).thenReturn(null);
+        when(httpClientUtil.getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class))).thenReturn(completedFuture(getResponse));
 
-        when(htmlParserUtil.extractCsrfToken(getResponse.body())).thenReturn(null);
-
-        BadRequestException exception = assertThrows(BadRequestException.class, () -> {
-            authService.login(username, password);
-        });
+        Throwable exception = assertLoginFails(username, password);
 
+        assertInstanceOf(BadRequestException.class, exception);
         assertEquals("CSRF token not found", exception.getMessage());
 
-        verify(httpClientUtil, times(1)).get(TEST_LOGIN_URL);
-        verify(htmlParserUtil, times(1)).extractCsrfToken(getResponse.body());
-        verify(httpClientUtil, never()).post(anyString(), any(MultiValueMap.class));
-        verify(httpClientUtil, never()).get(TEST_RESTART_SESSION_URL + username);
-        verify(httpClientUtil, never()).getAllCookies();
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class));
+        verify(htmlParserUtil, times(1)).csrfTokenBodyHandler();
+        verify(httpClientUtil, never()).postAsync(anyString(), any(MultiValueMap.class), any(CookieJar.class), any(Duration.class));
+        verify(cookieJar, never()).getCookies();
+        verify(httpClientUtil, times(1)).newCookieJar();
 
         verifyNoMoreInteractions(httpClientUtil, htmlParserUtil);
     }
 
     @Test
-    void login_InvalidCredentials_ThrowsAuthenticationException() throws IOException, InterruptedException {
+    void login_InvalidCredentials_ThrowsAuthenticationException() {
         String username = "john_doe";
         String password = "wrongPassword";
         String csrfToken = "dummyCsrfToken";
 
-        HttpResponse<String> getResponse = mock(HttpResponse.class);
-        when(getResponse.statusCode()).thenReturn(200);
-        when(getResponse.body()).thenReturn("<html><input type='hidden' name='_csrf' value='" + csrfToken + "'></html>");
-        when(httpClientUtil.get(TEST_LOGIN_URL)).thenReturn(getResponse);
-
-        when(htmlParserUtil.extractCsrfToken(getResponse.body())).thenReturn(csrfToken);
+        HttpResponse<String> getResponse = loginPage(csrfToken);
 
         HttpResponse<String> postResponse = mock(HttpResponse.class);
         when(postResponse.statusCode()).thenReturn(200);
         when(postResponse.uri()).thenReturn(URI.create(TEST_LOGIN_URL));
-        when(httpClientUtil.post(eq(TEST_LOGIN_URL), any(MultiValueMap.class))).thenReturn(postResponse);
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
 
-        AuthenticationException exception = assertThrows(AuthenticationException.class, () -> {
-            authService.login(username, password);
-        });
+        Throwable exception = assertLoginFails(username, password);
 
+        assertInstanceOf(AuthenticationException.class, exception);
         assertEquals("Invalid credentials", exception.getMessage());
 
-        verify(httpClientUtil, times(1)).get(TEST_LOGIN_URL);
-        verify(htmlParserUtil, times(1)).extractCsrfToken(getResponse.body());
-        verify(httpClientUtil, times(1)).post(eq(TEST_LOGIN_URL), formDataCaptor.capture());
-        verify(httpClientUtil, never()).get(TEST_RESTART_SESSION_URL + username);
-        verify(httpClientUtil, never()).getAllCookies();
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class));
+        verify(htmlParserUtil, times(1)).csrfTokenBodyHandler();
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), formDataCaptor.capture(), eq(cookieJar), any(Duration.class));
+        verify(cookieJar, never()).getCookies();
 
         MultiValueMap<String, String> capturedFormData = formDataCaptor.getValue();
         assertEquals(csrfToken, capturedFormData.getFirst("_csrf"));
@@ -182,56 +224,167 @@ class AuthServiceTest {
         assertEquals(password, capturedFormData.getFirst("clave"));
 
         verify(httpClientUtil, times(1)).getFinalUrl(postResponse);
+        verify(httpClientUtil, times(1)).newCookieJar();
 
         verifyNoMoreInteractions(httpClientUtil, htmlParserUtil);
     }
 
     @Test
-    void login_SessionStarted_Success() throws IOException, InterruptedException {
+    void login_SessionStarted_Success() {
         String username = "john_doe";
         String password = "securePassword";
         String csrfToken = "dummyCsrfToken";
         String sessionCookie = "SESSIONID=xyz789";
 
-        HttpResponse<String> getResponse = mock(HttpResponse.class);
-        when(getResponse.statusCode()).thenReturn(200);
-        when(getResponse.body()).thenReturn("<html><input type='hidden' name='_csrf' value='" + csrfToken + "'></html>");
-        when(httpClientUtil.get(TEST_LOGIN_URL)).thenReturn(getResponse);
-
-        when(htmlParserUtil.extractCsrfToken(getResponse.body())).thenReturn(csrfToken);
+        HttpResponse<String> getResponse = loginPage(csrfToken);
 
         HttpResponse<String> postResponse = mock(HttpResponse.class);
         when(postResponse.statusCode()).thenReturn(200);
         when(postResponse.uri()).thenReturn(URI.create(TEST_SESSION_URL));
-        when(httpClientUtil.post(eq(TEST_LOGIN_URL), any(MultiValueMap.class))).thenReturn(postResponse);
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
 
         HttpResponse<String> restartResponse = mock(HttpResponse.class);
         when(restartResponse.statusCode()).thenReturn(200);
-        when(httpClientUtil.get(TEST_RESTART_SESSION_URL + username)).thenReturn(restartResponse);
+        when(httpClientUtil.getAsync(eq(TEST_RESTART_SESSION_URL + username), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(restartResponse));
 
-        when(httpClientUtil.getAllCookies()).thenReturn(List.of(sessionCookie));
+        when(cookieJar.getCookies()).thenReturn(List.of(sessionCookie));
 
-        LoginResponse response = authService.login(username, password);
+        LoginResponse response = authService.login(CLIENT, username, password, Deadline.after(Duration.ofSeconds(10))).join();
 
         assertNotNull(response);
         assertEquals("Login successful", response.getMessage());
         assertEquals(List.of(sessionCookie), response.getSessionCookies());
 
-        verify(httpClientUtil, times(1)).get(TEST_LOGIN_URL);
-        verify(htmlParserUtil, times(1)).extractCsrfToken(getResponse.body());
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class));
+        verify(htmlParserUtil, times(1)).csrfTokenBodyHandler();
 
-        verify(httpClientUtil, times(1)).post(eq(TEST_LOGIN_URL), formDataCaptor.capture());
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), formDataCaptor.capture(), eq(cookieJar), any(Duration.class));
 
         MultiValueMap<String, String> capturedFormData = formDataCaptor.getValue();
         assertEquals(csrfToken, capturedFormData.getFirst("_csrf"));
         assertEquals(username, capturedFormData.getFirst("login"));
         assertEquals(password, capturedFormData.getFirst("clave"));
 
-        verify(httpClientUtil, times(1)).get(TEST_RESTART_SESSION_URL + username);
-        verify(httpClientUtil, times(1)).getAllCookies();
+        verify(httpClientUtil, times(1)).getAsync(eq(TEST_RESTART_SESSION_URL + username), eq(cookieJar), any(Duration.class));
+        verify(cookieJar, times(2)).getCookies();
 
         verify(httpClientUtil, times(1)).getFinalUrl(postResponse);
+        verify(httpClientUtil, times(1)).newCookieJar();
 
         verifyNoMoreInteractions(httpClientUtil, htmlParserUtil);
     }
+
+    @Test
+    void login_WithPreparedLoginPage_ShouldSkipLoginPageFetch() {
+        CookieJar preparedJar = mock(CookieJar.class);
+        when(preparedJar.getCookies()).thenReturn(List.of("SESSIONID=prepared"));
+        when(loginPagePool.take()).thenReturn(Optional.of(new LoginPagePool.PreparedLogin(preparedJar, "pooledCsrf", System.nanoTime())));
+        HttpResponse<String> postResponse = mock(HttpResponse.class);
+        when(postResponse.statusCode()).thenReturn(200);
+        when(postResponse.uri()).thenReturn(URI.create(TEST_HOME_URL));
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(preparedJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
+
+        LoginResponse response = authService.login(CLIENT, "john_doe", "securePassword", Deadline.after(Duration.ofSeconds(10))).join();
+
+        assertEquals(List.of("SESSIONID=prepared"), response.getSessionCookies());
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), formDataCaptor.capture(), eq(preparedJar), any(Duration.class));
+        assertEquals("pooledCsrf", formDataCaptor.getValue().getFirst("_csrf"));
+        verify(httpClientUtil, never()).newCookieJar();
+        verify(httpClientUtil, never()).getAsync(anyString(), any(CookieJar.class), any(), any(Duration.class));
+        verifyNoInteractions(htmlParserUtil);
+    }
+
+    @Test
+    void login_WithStalePreparedLoginPage_ShouldFallBackToFreshLoginPage() {
+        CookieJar preparedJar = mock(CookieJar.class);
+        when(loginPagePool.take()).thenReturn(Optional.of(new LoginPagePool.PreparedLogin(preparedJar, "staleCsrf", System.nanoTime())));
+        HttpResponse<String> forbidden = mock(HttpResponse.class);
+        when(forbidden.statusCode()).thenReturn(403);
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(preparedJar), any(Duration.class))).thenReturn(completedFuture(forbidden));
+        loginPage("freshCsrf");
+        HttpResponse<String> postResponse = mock(HttpResponse.class);
+        when(postResponse.statusCode()).thenReturn(200);
+        when(postResponse.uri()).thenReturn(URI.create(TEST_HOME_URL));
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
+        when(cookieJar.getCookies()).thenReturn(List.of("SESSIONID=fresh"));
+
+        LoginResponse response = authService.login(CLIENT, "john_doe", "securePassword", Deadline.after(Duration.ofSeconds(10))).join();
+
+        assertEquals(List.of("SESSIONID=fresh"), response.getSessionCookies());
+        verify(loginPagePool, times(1)).recordStale();
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), formDataCaptor.capture(), eq(cookieJar), any(Duration.class));
+        assertEquals("freshCsrf", formDataCaptor.getValue().getFirst("_csrf"));
+        verify(preparedJar, never()).getCookies();
+    }
+
+    @Test
+    void login_WithLiveStoredSession_ShouldReuseItWithoutLoggingIn() {
+        when(upstreamSessionStore.find(eq("john_doe"), eq("securePassword"), any(Deadline.class)))
+                .thenReturn(completedFuture(Optional.of(List.of("SESSIONID=stored"))));
+
+        LoginResponse response = authService.login(CLIENT, "john_doe", "securePassword", Deadline.after(Duration.ofSeconds(10))).join();
+
+        assertEquals("Login successful", response.getMessage());
+        assertEquals(List.of("SESSIONID=stored"), response.getSessionCookies());
+        verify(upstreamSessionStore, never()).save(anyString(), anyString(), any());
+        verifyNoInteractions(httpClientUtil, htmlParserUtil, loginPagePool);
+    }
+
+    @Test
+    void login_ConcurrentRequestsForSameUser_ShouldShareOneUpstreamLogin() {
+        loginPage("dummyCsrfToken");
+        HttpResponse<String> postResponse = mock(HttpResponse.class);
+        when(postResponse.statusCode()).thenReturn(200);
+        when(postResponse.uri()).thenReturn(URI.create(TEST_HOME_URL));
+        CompletableFuture<HttpResponse<String>> upstream = new CompletableFuture<>();
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(upstream);
+        when(cookieJar.getCookies()).thenReturn(List.of("SESSIONID=shared"));
+
+        CompletableFuture<LoginResponse> first = authService.login(CLIENT, "john_doe", "securePassword", Deadline.after(Duration.ofSeconds(10)));
+        CompletableFuture<LoginResponse> retry = authService.login(CLIENT, "john_doe", "securePassword", Deadline.after(Duration.ofSeconds(10)));
+        upstream.complete(postResponse);
+
+        assertEquals(List.of("SESSIONID=shared"), first.join().getSessionCookies());
+        assertEquals(List.of("SESSIONID=shared"), retry.join().getSessionCookies());
+        verify(httpClientUtil, times(1)).postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class));
+        verify(upstreamSessionStore, times(1)).find(eq("john_doe"), eq("securePassword"), any(Deadline.class));
+    }
+
+    @Test
+    void login_InvalidCredentials_ShouldNotStoreSession() {
+        loginPage("dummyCsrfToken");
+        HttpResponse<String> postResponse = mock(HttpResponse.class);
+        when(postResponse.statusCode()).thenReturn(200);
+        when(postResponse.uri()).thenReturn(URI.create(TEST_LOGIN_URL));
+        when(httpClientUtil.postAsync(eq(TEST_LOGIN_URL), any(MultiValueMap.class), eq(cookieJar), any(Duration.class))).thenReturn(completedFuture(postResponse));
+
+        assertInstanceOf(AuthenticationException.class, assertLoginFails("john_doe", "wrongPassword"));
+        verify(upstreamSessionStore, never()).save(anyString(), anyString(), any());
+        verify(loginFailureGuard, times(1)).recordFailure(CLIENT, "john_doe", "wrongPassword");
+        verify(loginFailureGuard, never()).recordSuccess(anyString(), anyString());
+    }
+
+    @Test
+    void login_RejectedByFailureGuard_ShouldNotCallUpstream() {
+        doThrow(new RateLimitExceededException("Too many failed login attempts", 4)).when(loginFailureGuard).check(CLIENT, "john_doe", "wrongPassword");
+
+        Throwable cause = assertLoginFails("john_doe", "wrongPassword");
+
+        assertInstanceOf(RateLimitExceededException.class, cause);
+        verifyNoInteractions(httpClientUtil, htmlParserUtil, loginPagePool, upstreamSessionStore);
+        verify(loginFailureGuard, never()).recordFailure(anyString(), anyString(), anyString());
+    }
+
+    private HttpResponse<String> loginPage(String csrfToken) {
+        HttpResponse<String> getResponse = mock(HttpResponse.class);
+        when(getResponse.statusCode()).thenReturn(200);
+        when(getResponse.body()).thenReturn(csrfToken);
+        when(httpClientUtil.getAsync(eq(TEST_LOGIN_URL), eq(cookieJar), same(csrfTokenBodyHandler), any(Duration.class))).thenReturn(completedFuture(getResponse));
+        return getResponse;
+    }
+
+    private Throwable assertLoginFails(String username, String password) {
+        CompletableFuture<LoginResponse> login = authService.login(CLIENT, username, password, Deadline.after(Duration.ofSeconds(10)));
+        return assertThrows(CompletionException.class, login::join).getCause();
+    }
 }
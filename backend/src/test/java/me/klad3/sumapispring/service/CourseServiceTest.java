@@ -1,17 +1,39 @@
 package me.klad3.sumapispring.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import me.klad3.sumapispring.dto.CourseResponse;
+import me.klad3.sumapispring.dto.MatriculaResponse;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
 import me.klad3.sumapispring.exception.ExternalApiException;
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+import me.klad3.sumapispring.util.CookieJar;
+import me.klad3.sumapispring.util.Deadline;
 import me.klad3.sumapispring.util.HttpClientUtil;
+import me.klad3.sumapispring.util.JsonBodyHandler;
+import me.klad3.sumapispring.util.UpstreamCoalescer;
+import me.klad3.sumapispring.util.UpstreamEndpoint;
+import me.klad3.sumapispring.util.UpstreamResilience;
+import me.klad3.sumapispring.util.UpstreamTimeouts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class CourseServiceTest {
@@ -19,24 +41,18 @@ class CourseServiceTest {
     @Mock
     private HttpClientUtil httpClientUtil;
 
-    @InjectMocks
     private CourseService courseService;
 
-    @Captor
-    private ArgumentCaptor<String> urlCaptor;
-
-    @Captor
-    private ArgumentCaptor<String> cookiesCaptor;
-
     private static final String TEST_COURSES_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/v2/reportes/matricula?accion=obtenerAlumnoMatricula";
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        courseService = new CourseService(httpClientUtil, new UpstreamResilience(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), 50, 80, 5000, 20, 10, 30, 3, 32, 32, 1), new UpstreamCoalescer(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), true, 100, 0));
     }
 
     @Test
-    void getCourses_Success() throws IOException, InterruptedException {
+    void getCourses_Success() {
         String cookies = "SESSIONID=abc123";
 
         String jsonResponse = "{ \"data\": { \"matricula\": [ " +
@@ -45,12 +61,14 @@ class CourseServiceTest {
                 "\"nomDocente\": \"Juan\", \"apePatDocente\": \"Pérez\", \"apeMatDocente\": \"Gómez\" } " +
                 "] } }";
 
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        Supplier<MatriculaResponse> body = decode(200, jsonResponse);
+
+        HttpResponse<Supplier<MatriculaResponse>> mockResponse = mock(HttpResponse.class);
         when(mockResponse.statusCode()).thenReturn(200);
-        when(mockResponse.body()).thenReturn(jsonResponse);
-        when(httpClientUtil.getWithCookies(TEST_COURSES_URL, cookies)).thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(body);
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class))).thenReturn(completedFuture(mockResponse));
 
-        List<CourseResponse> courses = courseService.getCourses(cookies);
+        List<CourseResponse> courses = courseService.getCourses(cookies, Deadline.after(Duration.ofSeconds(10))).join();
 
         assertNotNull(courses);
         assertEquals(1, courses.size());
@@ -63,79 +81,156 @@ class CourseServiceTest {
         assertEquals("01", course.getSeccion());
         assertEquals("Juan Pérez Gómez", course.getProfesor());
 
-        verify(httpClientUtil, times(1)).getWithCookies(TEST_COURSES_URL, cookies);
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
         verifyNoMoreInteractions(httpClientUtil);
     }
 
     @Test
-    void getCourses_HttpError() throws IOException, InterruptedException {
+    void getCourses_WithCookieJar_ShouldReuseTheLoginCookieContext() {
+        Supplier<MatriculaResponse> body = decode(200, "{ \"data\": { \"matricula\": [] } }");
+        HttpResponse<Supplier<MatriculaResponse>> mockResponse = mock(HttpResponse.class);
+        when(mockResponse.statusCode()).thenReturn(200);
+        when(mockResponse.body()).thenReturn(body);
+        CookieJar cookieJar = new CookieJar();
+        cookieJar.add(URI.create("https://sum.unmsm.edu.pe/alumnoWebSum/login"), "SESSIONID=abc123");
+        when(httpClientUtil.getJsonAsync(eq(TEST_COURSES_URL), same(cookieJar), any(JsonBodyHandler.class), any(Duration.class)))
+                .thenReturn(completedFuture(mockResponse));
+
+        List<CourseResponse> courses = courseService.getCourses(cookieJar, Deadline.after(Duration.ofSeconds(10))).join();
+
+        assertTrue(courses.isEmpty());
+        verify(httpClientUtil, times(1)).getJsonAsync(eq(TEST_COURSES_URL), same(cookieJar), any(JsonBodyHandler.class), any(Duration.class));
+        verify(httpClientUtil, never()).getWithCookiesAsync(anyString(), anyString(), any(JsonBodyHandler.class), any(Duration.class));
+    }
+
+    @Test
+    void getCourses_HttpError() {
         String cookies = "SESSIONID=abc123";
 
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        Supplier<MatriculaResponse> body = decode(500, "Internal Server Error");
+
+        HttpResponse<Supplier<MatriculaResponse>> mockResponse = mock(HttpResponse.class);
         when(mockResponse.statusCode()).thenReturn(500);
-        when(mockResponse.body()).thenReturn("Internal Server Error");
-        when(httpClientUtil.getWithCookies(TEST_COURSES_URL, cookies)).thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(body);
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class))).thenReturn(completedFuture(mockResponse));
 
-        ExternalApiException exception = assertThrows(ExternalApiException.class, () -> {
-            courseService.getCourses(cookies);
-        });
+        ExternalApiException exception = assertCoursesFail(cookies);
 
         assertEquals("Failed to fetch courses from external API", exception.getMessage());
 
-        verify(httpClientUtil, times(1)).getWithCookies(TEST_COURSES_URL, cookies);
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
         verifyNoMoreInteractions(httpClientUtil);
     }
 
     @Test
-    void getCourses_ParseError() throws IOException, InterruptedException {
+    void getCourses_ParseError() {
         String cookies = "SESSIONID=abc123";
 
         String invalidJsonResponse = "{ invalid json }";
 
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        Supplier<MatriculaResponse> body = decode(200, invalidJsonResponse);
+
+        HttpResponse<Supplier<MatriculaResponse>> mockResponse = mock(HttpResponse.class);
         when(mockResponse.statusCode()).thenReturn(200);
-        when(mockResponse.body()).thenReturn(invalidJsonResponse);
-        when(httpClientUtil.getWithCookies(TEST_COURSES_URL, cookies)).thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(body);
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class))).thenReturn(completedFuture(mockResponse));
 
-        ExternalApiException exception = assertThrows(ExternalApiException.class, () -> {
-            courseService.getCourses(cookies);
-        });
+        ExternalApiException exception = assertCoursesFail(cookies);
 
         assertTrue(exception.getMessage().contains("Error parsing courses response"));
 
-        verify(httpClientUtil, times(1)).getWithCookies(TEST_COURSES_URL, cookies);
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
         verifyNoMoreInteractions(httpClientUtil);
     }
 
     @Test
-    void getCourses_IOException() throws IOException, InterruptedException {
+    void getCourses_IOException() {
         String cookies = "SESSIONID=abc123";
 
-        when(httpClientUtil.getWithCookies(TEST_COURSES_URL, cookies)).thenThrow(new IOException("IO error"));
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("IO error")));
 
-        ExternalApiException exception = assertThrows(ExternalApiException.class, () -> {
-            courseService.getCourses(cookies);
-        });
+        ExternalApiException exception = assertCoursesFail(cookies);
 
         assertTrue(exception.getMessage().contains("Error fetching courses from external API"));
+        assertInstanceOf(IOException.class, exception.getCause());
 
-        verify(httpClientUtil, times(1)).getWithCookies(TEST_COURSES_URL, cookies);
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
         verifyNoMoreInteractions(httpClientUtil);
     }
 
     @Test
-    void getCourses_InterruptedException() throws IOException, InterruptedException {
+    void getCourses_WrappedIOException() {
         String cookies = "SESSIONID=abc123";
 
-        when(httpClientUtil.getWithCookies(TEST_COURSES_URL, cookies)).thenThrow(new InterruptedException("Interrupted"));
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(new CompletionException(new IOException("IO error"))));
 
-        ExternalApiException exception = assertThrows(ExternalApiException.class, () -> {
-            courseService.getCourses(cookies);
-        });
+        ExternalApiException exception = assertCoursesFail(cookies);
 
         assertTrue(exception.getMessage().contains("Error fetching courses from external API"));
+        assertInstanceOf(IOException.class, exception.getCause());
 
-        verify(httpClientUtil, times(1)).getWithCookies(TEST_COURSES_URL, cookies);
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
         verifyNoMoreInteractions(httpClientUtil);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCourses_WhenCircuitIsOpen_ShouldFailFastWithoutCallingUpstream() {
+        UpstreamResilience upstreamResilience = mock(UpstreamResilience.class);
+        when(upstreamResilience.call(eq(UpstreamEndpoint.COURSES), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new UpstreamUnavailableException("SUM portal is unavailable, retry later", 30)));
+        courseService = new CourseService(httpClientUtil, upstreamResilience, new UpstreamCoalescer(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), true, 100, 0));
+
+        CompletionException exception = assertThrows(CompletionException.class, courseService.getCourses("SESSIONID=abc123", Deadline.after(Duration.ofSeconds(10)))::join);
+
+        UpstreamUnavailableException unavailable = assertInstanceOf(UpstreamUnavailableException.class, exception.getCause());
+        assertEquals(30, unavailable.getRetryAfterSeconds());
+        verifyNoInteractions(httpClientUtil);
+    }
+
+    @Test
+    void getCourses_WhenDeadlineAlreadyExpired_ShouldFailWithoutCallingUpstream() {
+        CompletableFuture<List<CourseResponse>> courses = courseService.getCourses("SESSIONID=abc123", Deadline.after(Duration.ZERO));
+
+        CompletionException exception = assertThrows(CompletionException.class, courses::join);
+
+        assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        verifyNoInteractions(httpClientUtil);
+    }
+
+    @Test
+    void getCourses_ShouldShareOneUpstreamCallBetweenConcurrentRequestsWithSameCookies() {
+        String cookies = "SESSIONID=abc123";
+        Supplier<MatriculaResponse> body = decode(200, "{ \"data\": { \"matricula\": [] } }");
+        HttpResponse<Supplier<MatriculaResponse>> mockResponse = mock(HttpResponse.class);
+        when(mockResponse.statusCode()).thenReturn(200);
+        when(mockResponse.body()).thenReturn(body);
+        CompletableFuture<HttpResponse<Supplier<MatriculaResponse>>> upstream = new CompletableFuture<>();
+        when(httpClientUtil.getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class))).thenReturn(upstream);
+
+        CompletableFuture<List<CourseResponse>> first = courseService.getCourses(cookies, Deadline.after(Duration.ofSeconds(10)));
+        CompletableFuture<List<CourseResponse>> second = courseService.getCourses(cookies, Deadline.after(Duration.ofSeconds(10)));
+        upstream.complete(mockResponse);
+
+        assertSame(first.join(), second.join());
+        verify(httpClientUtil, times(1)).getWithCookiesAsync(eq(TEST_COURSES_URL), eq(cookies), any(JsonBodyHandler.class), any(Duration.class));
+    }
+
+    private Supplier<MatriculaResponse> decode(int statusCode, String body) {
+        HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.statusCode()).thenReturn(statusCode);
+        HttpResponse.BodySubscriber<Supplier<MatriculaResponse>> subscriber =
+                new JsonBodyHandler<MatriculaResponse>(new ObjectMapper().readerFor(MatriculaResponse.class)).apply(responseInfo);
+        subscriber.onSubscribe(mock(Flow.Subscription.class));
+        subscriber.onNext(List.of(ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8))));
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private ExternalApiException assertCoursesFail(String cookies) {
+        CompletableFuture<List<CourseResponse>> courses = courseService.getCourses(cookies, Deadline.after(Duration.ofSeconds(10)));
+        CompletionException exception = assertThrows(CompletionException.class, courses::join);
+        return assertInstanceOf(ExternalApiException.class, exception.getCause());
+    }
+}
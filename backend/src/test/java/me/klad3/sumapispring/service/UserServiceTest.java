@@ -1,13 +1,21 @@
 package me.klad3.sumapispring.service;
 
+import me.klad3.sumapispring.config.PasswordEncoderConfig;
 import me.klad3.sumapispring.dto.CreateUserRequest;
 import me.klad3.sumapispring.dto.CreateUserResponse;
 import me.klad3.sumapispring.exception.ResourceAlreadyExistsException;
 import me.klad3.sumapispring.model.User;
+import me.klad3.sumapispring.repository.ApiCredentialEntry;
 import me.klad3.sumapispring.repository.UserRepository;
+import me.klad3.sumapispring.security.ApiCredentialIndex;
+import me.klad3.sumapispring.security.KnownApiKeys;
+import me.klad3.sumapispring.security.RequestSigningKeys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
 
@@ -19,6 +27,18 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private PasswordEncoder apiSecretEncoder = PasswordEncoderConfig.createApiSecretEncoder("unit-test-pepper-with-at-least-32-characters");
+
+    @Spy
+    private RequestSigningKeys requestSigningKeys = new RequestSigningKeys("unit-test-pepper-with-at-least-32-characters");
+
+    @Mock
+    private KnownApiKeys knownApiKeys;
+
+    @Mock
+    private ApiCredentialIndex credentialIndex;
+
     @InjectMocks
     private UserService userService;
 
@@ -72,6 +92,110 @@ class UserServiceTest {
         assertEquals("John Doe", savedUser.getStudentName());
         assertNotNull(savedUser.getApiKey());
         assertNotNull(savedUser.getApiSecretHash());
+        assertTrue(savedUser.getApiSecretHash().startsWith("{hmac-sha256}"));
+        assertTrue(savedUser.verifyApiSecret(response.getApiSecret(), apiSecretEncoder));
+        assertFalse(savedUser.isCredentialUpgradeRequired(apiSecretEncoder));
+        assertArrayEquals(RequestSigningKeys.derive(response.getApiSecret()), requestSigningKeys.open(savedUser.getSigningKey()));
+        verify(knownApiKeys, times(1)).add(response.getApiKey());
+    }
+
+    @Test
+    void upgradeCredentials_LegacyBcryptHash_ReplacesWithHmacHashAndAddsSigningKey() {
+        String apiSecret = "legacySecret";
+        User user = User.builder()
+                .id(1L)
+                .apiKey("testApiKey")
+                .apiSecretHash(new BCryptPasswordEncoder().encode(apiSecret))
+                .build();
+
+        assertTrue(user.verifyApiSecret(apiSecret, apiSecretEncoder));
+        assertTrue(user.isApiSecretUpgradeRequired(apiSecretEncoder));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userService.upgradeCredentials(user, apiSecret);
+
+        verify(userRepository, times(1)).save(user);
+        assertTrue(user.getApiSecretHash().startsWith("{hmac-sha256}"));
+        assertTrue(user.verifyApiSecret(apiSecret, apiSecretEncoder));
+        assertFalse(user.isCredentialUpgradeRequired(apiSecretEncoder));
+        assertArrayEquals(RequestSigningKeys.derive(apiSecret), requestSigningKeys.open(user.getSigningKey()));
+    }
+
+    @Test
+    void upgradeCredentials_CurrentHashWithoutSigningKey_KeepsHashAndAddsSigningKey() {
+        String apiSecret = "currentSecret";
+        User user = User.builder()
+                .id(1L)
+                .apiKey("testApiKey")
+                .build();
+        user.setApiSecret(apiSecret, apiSecretEncoder);
+        String currentHash = user.getApiSecretHash();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userService.upgradeCredentials(user, apiSecret);
+
+        verify(userRepository, times(1)).save(user);
+        assertEquals(currentHash, user.getApiSecretHash());
+        assertNotNull(user.getSigningKey());
+    }
+
+    @Test
+    void upgradeCredentials_WithIndexedCredential_UpdatesStoredUser() {
+        String apiSecret = "legacySecret";
+        User indexed = User.builder()
+                .id(1L)
+                .apiKey("testApiKey")
+                .apiSecretHash(new BCryptPasswordEncoder().encode(apiSecret))
+                .build();
+        User stored = User.builder()
+                .id(1L)
+                .username("john_doe")
+                .email("john@example.com")
+                .apiKey("testApiKey")
+                .apiSecretHash(indexed.getApiSecretHash())
+                .build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+
+        userService.upgradeCredentials(indexed, apiSecret);
+
+        verify(userRepository, times(1)).save(stored);
+        assertEquals("john_doe", stored.getUsername());
+        assertTrue(stored.getApiSecretHash().startsWith("{hmac-sha256}"));
+    }
+
+    @Test
+    void findByApiKey_WithIndexReady_ReturnsIndexedCredentialWithoutQuery() {
+        User indexed = User.builder().id(1L).apiKey("testApiKey").build();
+        when(credentialIndex.isReady()).thenReturn(true);
+        when(credentialIndex.find("testApiKey")).thenReturn(Optional.of(indexed));
+
+        assertEquals(Optional.of(indexed), userService.findByApiKey("testApiKey"));
+        verify(userRepository, never()).findCredentialsByApiKey(anyString());
+    }
+
+    @Test
+    void findByApiKey_WithIndexMiss_FallsBackToRepositoryAndIndexesResult() {
+        ApiCredentialEntry stored = new ApiCredentialEntry(2L, "newApiKey", "hash", null);
+        when(credentialIndex.isReady()).thenReturn(true);
+        when(credentialIndex.find("newApiKey")).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsByApiKey("newApiKey")).thenReturn(Optional.of(stored));
+
+        assertEquals(Optional.of(2L), userService.findByApiKey("newApiKey").map(User::getId));
+        verify(credentialIndex, times(1)).put(stored);
+    }
+
+    @Test
+    void upgradeCredentials_SaveFails_DoesNotPropagate() {
+        User user = User.builder()
+                .id(1L)
+                .apiKey("testApiKey")
+                .apiSecretHash(new BCryptPasswordEncoder().encode("legacySecret"))
+                .build();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenThrow(new DataAccessResourceFailureException("Database down"));
+
+        assertDoesNotThrow(() -> userService.upgradeCredentials(user, "legacySecret"));
     }
 
     @Test
@@ -148,38 +272,34 @@ class UserServiceTest {
     }
 
     @Test
-    void findByApiKey_UserExists_ReturnsUser() {
+    void findByApiKey_UserExists_ReturnsCredentialProjection() {
         String apiKey = "testApiKey";
-        User user = User.builder()
-                .id(1L)
-                .username("john_doe")
-                .email("john@example.com")
-                .institutionId("INST123")
-                .studentName("John Doe")
-                .apiKey(apiKey)
-                .apiSecretHash("testApiSecret")
-                .build();
 
-        when(userRepository.findByApiKey(apiKey)).thenReturn(Optional.of(user));
+        when(userRepository.findCredentialsByApiKey(apiKey))
+                .thenReturn(Optional.of(new ApiCredentialEntry(1L, apiKey, "testApiSecret", "signingKey")));
 
         Optional<User> result = userService.findByApiKey(apiKey);
 
         assertTrue(result.isPresent());
-        assertEquals(user, result.get());
+        assertEquals(1L, result.get().getId());
+        assertEquals(apiKey, result.get().getApiKey());
+        assertEquals("testApiSecret", result.get().getApiSecretHash());
+        assertEquals("signingKey", result.get().getSigningKey());
 
-        verify(userRepository, times(1)).findByApiKey(apiKey);
+        verify(userRepository, times(1)).findCredentialsByApiKey(apiKey);
+        verify(userRepository, never()).findByApiKey(anyString());
     }
 
     @Test
     void findByApiKey_UserDoesNotExist_ReturnsEmpty() {
         String apiKey = "nonExistingApiKey";
 
-        when(userRepository.findByApiKey(apiKey)).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsByApiKey(apiKey)).thenReturn(Optional.empty());
 
         Optional<User> result = userService.findByApiKey(apiKey);
 
         assertFalse(result.isPresent());
 
-        verify(userRepository, times(1)).findByApiKey(apiKey);
+        verify(userRepository, times(1)).findCredentialsByApiKey(apiKey);
     }
 }
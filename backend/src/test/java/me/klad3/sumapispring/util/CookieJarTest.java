@@ -0,0 +1,39 @@
+package me.klad3.sumapispring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CookieJarTest {
+
+    private static final URI LOGIN_URI = URI.create("https://sum.unmsm.edu.pe/alumnoWebSum/login");
+
+    @Test
+    void store_ShouldKeepResponseCookiesAndBuildCookieHeader() {
+        CookieJar cookieJar = new CookieJar();
+
+        cookieJar.store(LOGIN_URI, HttpHeaders.of(Map.of("Set-Cookie",
+                List.of("JSESSIONID=abc123; Path=/", "XSRF=def456; Path=/")), (name, value) -> true));
+
+        assertEquals(2, cookieJar.getCookies().size());
+        assertTrue(cookieJar.getCookies().containsAll(List.of("JSESSIONID=abc123", "XSRF=def456")));
+        String header = cookieJar.cookieHeader(LOGIN_URI).orElseThrow();
+        assertTrue(header.contains("JSESSIONID=abc123"));
+        assertTrue(header.contains("XSRF=def456"));
+    }
+
+    @Test
+    void cookieHeader_ShouldBeEmptyForOtherHosts() {
+        CookieJar cookieJar = new CookieJar();
+        cookieJar.add(LOGIN_URI, "JSESSIONID=abc123");
+
+        assertEquals(Optional.empty(), cookieJar.cookieHeader(URI.create("https://example.com/")));
+        assertEquals(Optional.empty(), new CookieJar().cookieHeader(LOGIN_URI));
+    }
+}
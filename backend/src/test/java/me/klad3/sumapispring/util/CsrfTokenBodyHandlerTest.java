@@ -0,0 +1,145 @@
+package me.klad3.sumapispring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CsrfTokenBodyHandlerTest {
+
+    private final AtomicInteger fallbacks = new AtomicInteger();
+
+    private final HtmlParserUtil htmlParserUtil = new HtmlParserUtil();
+
+    private final CsrfTokenBodyHandler bodyHandler = new CsrfTokenBodyHandler(html -> {
+        fallbacks.incrementAndGet();
+        return htmlParserUtil.extractCsrfToken(html);
+    });
+
+    @Test
+    void apply_ShouldCompleteAsSoonAsTokenIsScanned() {
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(200, "text/html;charset=UTF-8");
+
+        subscriber.onNext(List.of(utf8("<html><body><form><input type='hidden' name='_csrf' va")));
+        assertFalse(subscriber.getBody().toCompletableFuture().isDone());
+        subscriber.onNext(List.of(utf8("lue='dummyCsrfToken'></form>")));
+
+        assertEquals("dummyCsrfToken", subscriber.getBody().toCompletableFuture().getNow(null));
+        subscriber.onNext(List.of(utf8("<p>rest of the page</p></body></html>")));
+        subscriber.onComplete();
+        assertEquals(0, fallbacks.get());
+    }
+
+    @Test
+    void apply_ShouldMatchJsoupOnUsualMarkup() {
+        assertEquals("firstToken", receive("<html><body>" +
+                "<form><input type='hidden' name='_csrf' value='firstToken'></form>" +
+                "<form><input type='hidden' name='_csrf' value='secondToken'></form>" +
+                "</body></html>"));
+        assertEquals("a1b2-c3", receive("<INPUT TYPE=hidden VALUE=\"a1b2-c3\" NAME=\"_csrf\"/>"));
+        assertEquals("token", receive("<input data-x='a>b' name=_csrf value=token>"));
+        assertEquals(0, fallbacks.get());
+    }
+
+    @Test
+    void apply_ShouldIgnoreTokensInCommentsAndScripts() {
+        String html = "<!-- <input name='_csrf' value='commented'> -->" +
+                "<script>var form = \"<input name='_csrf' value='scripted'>\";</script>" +
+                "<input name='_csrf' value='real'>";
+
+        assertEquals("real", receive(html));
+        assertEquals(htmlParserUtil.extractCsrfToken(html), receive(html));
+    }
+
+    @Test
+    void apply_ShouldFallBackToJsoup_WhenMarkupIsUnexpected() {
+        assertEquals("a&b", receive("<input name='_csrf' value='a&amp;b'>"));
+        assertEquals(1, fallbacks.get());
+    }
+
+    @Test
+    void apply_ShouldReturnNull_WhenPageHasNoToken() {
+        assertNull(receive("<html><body><form></form></body></html>"));
+        assertEquals(1, fallbacks.get());
+    }
+
+    @Test
+    void apply_ShouldDecodeTokenWithDeclaredCharset() {
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(200, "text/html; charset=ISO-8859-1");
+
+        subscriber.onNext(List.of(ByteBuffer.wrap("<input name=_csrf value='tokén'>".getBytes(StandardCharsets.ISO_8859_1))));
+
+        assertEquals("tokén", subscriber.getBody().toCompletableFuture().getNow(null));
+    }
+
+    @Test
+    void apply_ShouldDiscardBody_WhenStatusIsNotOk() {
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(302, "text/html");
+
+        subscriber.onNext(List.of(utf8("<input name='_csrf' value='redirect'>")));
+        subscriber.onComplete();
+
+        assertNull(subscriber.getBody().toCompletableFuture().join());
+        assertEquals(0, fallbacks.get());
+    }
+
+    @Test
+    void apply_ShouldPropagateErrors() {
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(200, "text/html");
+
+        subscriber.onNext(List.of(utf8("<html><body>")));
+        subscriber.onError(new IllegalStateException("connection reset"));
+
+        CompletableFuture<String> body = subscriber.getBody().toCompletableFuture();
+        assertTrue(body.isCompletedExceptionally());
+    }
+
+    @Test
+    void apply_ShouldHandleTokensSplitAcrossManySmallBuffers() {
+        String html = "<html><head><title>Login</title></head><body><form method='post'>" +
+                "<input type=\"hidden\" name=\"_csrf\" value=\"9f8e7d6c-5b4a-3210\"/></form></body></html>";
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(200, "text/html");
+        List<ByteBuffer> chunks = new ArrayList<>();
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += 3) {
+            chunks.add(ByteBuffer.wrap(bytes, offset, Math.min(3, bytes.length - offset)));
+        }
+
+        subscriber.onNext(chunks);
+        subscriber.onComplete();
+
+        assertEquals("9f8e7d6c-5b4a-3210", subscriber.getBody().toCompletableFuture().join());
+        assertEquals(0, fallbacks.get());
+    }
+
+    private String receive(String html) {
+        HttpResponse.BodySubscriber<String> subscriber = subscribe(200, "text/html");
+        subscriber.onNext(List.of(utf8(html)));
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private HttpResponse.BodySubscriber<String> subscribe(int statusCode, String contentType) {
+        HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.statusCode()).thenReturn(statusCode);
+        when(responseInfo.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of(contentType)), (name, value) -> true));
+        HttpResponse.BodySubscriber<String> subscriber = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(mock(Flow.Subscription.class));
+        return subscriber;
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
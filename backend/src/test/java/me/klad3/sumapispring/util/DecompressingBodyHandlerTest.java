@@ -0,0 +1,149 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DecompressingBodyHandlerTest {
+
+    private static final String ENDPOINT = "/alumnoWebSum/v2/reportes/matricula";
+    private static final String BODY = "{\"data\":{\"matricula\":[" + "{\"desAsignatura\":\"Programación\"},".repeat(500) + "{}]}}";
+
+    private SimpleMeterRegistry registry;
+    private DecompressingBodyHandler<String> bodyHandler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        bodyHandler = new DecompressingBodyHandler<>(HttpResponse.BodyHandlers.ofString(),
+                (endpoint, encoding) -> new TransferMetrics(registry, endpoint, encoding), ENDPOINT);
+    }
+
+    @Test
+    void apply_ShouldDecodeGzipSplitAcrossSmallBuffers() throws IOException {
+        byte[] compressed = gzip(BODY.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(BODY, receive("gzip", chunks(compressed, 3)));
+        assertEquals(compressed.length, registry.get("upstream.response.wire.bytes").tag("encoding", "gzip").summary().totalAmount());
+        assertEquals(BODY.getBytes(StandardCharsets.UTF_8).length,
+                registry.get("upstream.response.body.bytes").tag("endpoint", ENDPOINT).summary().totalAmount());
+        assertEquals(1, registry.get("upstream.response.decompression").tag("encoding", "gzip").timer().count());
+    }
+
+    @Test
+    void apply_ShouldSkipOptionalGzipHeaderFields() throws IOException {
+        byte[] compressed = gzip(BODY.getBytes(StandardCharsets.UTF_8));
+        byte[] name = "data.json\0".getBytes(StandardCharsets.US_ASCII);
+        byte[] withName = new byte[compressed.length + name.length];
+        System.arraycopy(compressed, 0, withName, 0, 10);
+        withName[3] = 8;
+        System.arraycopy(name, 0, withName, 10, name.length);
+        System.arraycopy(compressed, 10, withName, 10 + name.length, compressed.length - 10);
+
+        assertEquals(BODY, receive("x-gzip", chunks(withName, 7)));
+    }
+
+    @Test
+    void apply_ShouldDecodeZlibAndRawDeflate() throws IOException {
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(BODY, receive("deflate", chunks(deflate(bytes, false), 64)));
+        assertEquals(BODY, receive("Deflate", chunks(deflate(bytes, true), 64)));
+        assertEquals(2, registry.get("upstream.response.wire.bytes").tag("encoding", "deflate").summary().count());
+    }
+
+    @Test
+    void apply_ShouldPassIdentityBodyThrough() {
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(BODY, receive(null, chunks(bytes, 1024)));
+        assertEquals(bytes.length, registry.get("upstream.response.wire.bytes").tag("encoding", "identity").summary().totalAmount());
+    }
+
+    @Test
+    void apply_ShouldAcceptEmptyCompressedBody() {
+        assertEquals("", receive("gzip", List.of()));
+    }
+
+    @Test
+    void apply_ShouldFail_WhenGzipBodyIsTruncated() throws IOException {
+        byte[] compressed = gzip(BODY.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 4);
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> receive("gzip", chunks(truncated, 100)));
+        assertInstanceOf(EOFException.class, exception.getCause());
+    }
+
+    @Test
+    void apply_ShouldFailAndCancel_WhenBodyIsNotCompressed() {
+        Flow.Subscription subscription = mock(Flow.Subscription.class);
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> receive("gzip", chunks(BODY.getBytes(StandardCharsets.UTF_8), 100), subscription));
+        assertInstanceOf(ZipException.class, exception.getCause());
+        verify(subscription).cancel();
+    }
+
+    private String receive(String encoding, List<ByteBuffer> chunks) {
+        return receive(encoding, chunks, mock(Flow.Subscription.class));
+    }
+
+    private String receive(String encoding, List<ByteBuffer> chunks, Flow.Subscription subscription) {
+        HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.statusCode()).thenReturn(200);
+        when(responseInfo.headers()).thenReturn(HttpHeaders.of(
+                encoding == null ? Map.of() : Map.of("Content-Encoding", List.of(encoding)), (name, value) -> true));
+        HttpResponse.BodySubscriber<String> subscriber = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(subscription);
+        for (ByteBuffer chunk : chunks) {
+            subscriber.onNext(List.of(chunk));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private static List<ByteBuffer> chunks(byte[] bytes, int size) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += size) {
+            chunks.add(ByteBuffer.wrap(bytes, offset, Math.min(size, bytes.length - offset)));
+        }
+        return chunks;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes, boolean raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream output = new DeflaterOutputStream(compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            output.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+}
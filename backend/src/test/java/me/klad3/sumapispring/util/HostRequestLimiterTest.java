@@ -0,0 +1,161 @@
+package me.klad3.sumapispring.util;
+
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostRequestLimiterTest {
+
+    private static final URI SUM = URI.create("https://sum.unmsm.edu.pe/alumnoWebSum/login");
+    private static final URI OTHER = URI.create("https://example.com/");
+    private static final Duration MAX_QUEUE_WAIT = Duration.ofSeconds(10);
+
+    @Test
+    void submit_ShouldQueueCallsBeyondLimitPerHost() {
+        HostRequestLimiter limiter = new HostRequestLimiter(2, 8, MAX_QUEUE_WAIT, Runnable::run);
+        List<CompletableFuture<String>> exchanges = new ArrayList<>();
+        AtomicInteger started = new AtomicInteger();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(limiter.submit(SUM, null, () -> {
+                started.incrementAndGet();
+                CompletableFuture<String> exchange = new CompletableFuture<>();
+                exchanges.add(exchange);
+                return exchange;
+            }));
+        }
+        CompletableFuture<String> otherHost = limiter.submit(OTHER, null, () -> CompletableFuture.completedFuture("other"));
+
+        assertEquals(2, started.get());
+        assertEquals(2, limiter.pending());
+        assertEquals("other", otherHost.join());
+
+        exchanges.get(0).complete("first");
+        assertEquals("first", results.get(0).join());
+        assertEquals(3, started.get());
+
+        exchanges.get(1).completeExceptionally(new IllegalStateException("boom"));
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertEquals(4, started.get());
+        assertEquals(0, limiter.pending());
+    }
+
+    @Test
+    void submit_ShouldRejectWithUnavailable_WhenQueueIsFull() {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 1, MAX_QUEUE_WAIT, Runnable::run);
+        limiter.submit(SUM, null, CompletableFuture::new);
+        limiter.submit(SUM, null, CompletableFuture::new);
+
+        CompletableFuture<String> rejected = limiter.submit(SUM, null, () -> CompletableFuture.completedFuture("never"));
+
+        CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(UpstreamUnavailableException.class, exception.getCause());
+        assertEquals(1, limiter.pending());
+    }
+
+    @Test
+    void submit_ShouldDropQueuedCall_WhenDeadlineExpiresBeforeItStarts() throws InterruptedException {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 8, MAX_QUEUE_WAIT, Runnable::run);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        limiter.submit(SUM, null, () -> running);
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> queued = limiter.submit(SUM, Deadline.after(Duration.ofMillis(50)), () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        });
+
+        CompletionException exception = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+        assertEquals(0, limiter.pending());
+
+        running.complete("done");
+        CompletableFuture<String> next = limiter.submit(SUM, null, () -> CompletableFuture.completedFuture("next"));
+        assertEquals("next", next.join());
+        assertEquals(0, started.get());
+    }
+
+    @Test
+    void submit_ShouldNotStartQueuedCall_WhenResultWasCancelled() {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 8, MAX_QUEUE_WAIT, Runnable::run);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        limiter.submit(SUM, null, () -> running);
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> queued = limiter.submit(SUM, null, () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        });
+        queued.cancel(false);
+        running.complete("done");
+
+        assertEquals(0, started.get());
+        assertEquals(0, limiter.pending());
+        assertEquals("next", limiter.submit(SUM, null, () -> CompletableFuture.completedFuture("next")).join());
+    }
+
+    @Test
+    void submit_ShouldReleasePermit_WhenCallThrows() {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 8, MAX_QUEUE_WAIT, Runnable::run);
+
+        CompletableFuture<String> failed = limiter.submit(SUM, null, () -> {
+            throw new IllegalArgumentException("bad request");
+        });
+        CompletableFuture<String> next = limiter.submit(SUM, null, () -> CompletableFuture.completedFuture("ok"));
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("ok", next.join());
+    }
+
+    @Test
+    void acquire_ShouldBlockUntilReleased() throws Exception {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 8, MAX_QUEUE_WAIT, Runnable::run);
+        limiter.acquire(SUM, MAX_QUEUE_WAIT);
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire(SUM, MAX_QUEUE_WAIT);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (HttpTimeoutException ignored) {
+            }
+        });
+        waiter.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(SUM);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void acquire_ShouldGiveUp_WhenTimeoutElapses() throws Exception {
+        HostRequestLimiter limiter = new HostRequestLimiter(1, 8, MAX_QUEUE_WAIT, Runnable::run);
+        limiter.acquire(SUM, MAX_QUEUE_WAIT);
+
+        assertThrows(HttpTimeoutException.class, () -> limiter.acquire(SUM, Duration.ofMillis(50)));
+    }
+
+    @Test
+    void submit_WithoutLimit_ShouldCallDirectly() {
+        HostRequestLimiter limiter = new HostRequestLimiter(0, 0, MAX_QUEUE_WAIT, Runnable::run);
+        CompletableFuture<String> exchange = new CompletableFuture<>();
+
+        assertSame(exchange, limiter.submit(SUM, null, () -> exchange));
+        assertFalse(limiter.isLimited());
+    }
+}
@@ -1,16 +1,37 @@
 package me.klad3.sumapispring.util;
 
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
 import org.mockito.*;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +54,7 @@ class HttpClientUtilTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         httpClientUtil = new HttpClientUtil(mockHttpClient);
+        when(mockHttpResponse.headers()).thenReturn(headers(Map.of()));
     }
 
     @Test
@@ -124,22 +146,104 @@ class HttpClientUtilTest {
     }
 
     @Test
-    void getAllCookies_ShouldReturnListOfCookies() {
-        String cookie1 = "SESSIONID=abc123";
-        String cookie2 = "USERID=john_doe";
+    void get_ShouldFollowRedirectsAndKeepCookiesInJar() throws IOException, InterruptedException {
+        HttpResponse<String> redirect = response(302, Map.of(
+                "Location", List.of("/alumnoWebSum/login"),
+                "Set-Cookie", List.of("JSESSIONID=abc123; Path=/")));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(redirect)
+                .thenReturn(mockHttpResponse);
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
 
-        try {
-            httpClientUtil.setResponseCookies(List.of(cookie1, cookie2));
-        } catch (Exception e) {
-            fail("Error al establecer las cookies");
-        }
+        HttpResponse<String> response = httpClientUtil.get("https://example.com/alumnoWebSum", cookieJar);
+
+        assertEquals(200, response.statusCode());
+        verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest redirected = requestCaptor.getAllValues().get(1);
+        assertEquals(URI.create("https://example.com/alumnoWebSum/login"), redirected.uri());
+        assertEquals("GET", redirected.method());
+        assertEquals("JSESSIONID=abc123", redirected.headers().firstValue("Cookie").orElse(""));
+        assertEquals(List.of("JSESSIONID=abc123"), cookieJar.getCookies());
+    }
+
+    @Test
+    void post_ShouldFollowRedirectWithGetAndSendJarCookies() throws IOException, InterruptedException {
+        MultiValueMap<String, String> formData = new org.springframework.util.LinkedMultiValueMap<>();
+        formData.add("username", "john");
+        HttpResponse<String> redirect = response(302, Map.of(
+                "Location", List.of("https://example.com/home"),
+                "Set-Cookie", List.of("XSRF=new; Path=/")));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(redirect)
+                .thenReturn(mockHttpResponse);
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        cookieJar.add(URI.create("https://example.com/"), "JSESSIONID=abc123");
+
+        httpClientUtil.post("https://example.com/login", formData, cookieJar);
+
+        verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest login = requestCaptor.getAllValues().get(0);
+        HttpRequest home = requestCaptor.getAllValues().get(1);
+        assertEquals("POST", login.method());
+        assertEquals("JSESSIONID=abc123", login.headers().firstValue("Cookie").orElse(""));
+        assertEquals("GET", home.method());
+        assertTrue(home.headers().firstValue("Cookie").orElse("").contains("XSRF=new"));
+        assertTrue(home.headers().firstValue("Cookie").orElse("").contains("JSESSIONID=abc123"));
+    }
 
-        List<String> cookies = httpClientUtil.getAllCookies();
+    @Test
+    void post_ShouldRepeatPostWithBody_WhenRedirectPreservesMethod() throws IOException, InterruptedException {
+        MultiValueMap<String, String> formData = new org.springframework.util.LinkedMultiValueMap<>();
+        formData.add("username", "john");
+        HttpResponse<String> redirect = response(307, Map.of("Location", List.of("https://example.com/login2")));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(redirect)
+                .thenReturn(mockHttpResponse);
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        cookieJar.add(URI.create("https://example.com/login"), "JSESSIONID=abc123");
+
+        httpClientUtil.post("https://example.com/login", formData, cookieJar);
+
+        verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest login = requestCaptor.getAllValues().get(0);
+        HttpRequest repeated = requestCaptor.getAllValues().get(1);
+        assertEquals(URI.create("https://example.com/login2"), repeated.uri());
+        assertEquals("POST", repeated.method());
+        assertEquals(login.bodyPublisher().orElseThrow().contentLength(), repeated.bodyPublisher().orElseThrow().contentLength());
+        assertEquals(login.headers().firstValue("Content-Type"), repeated.headers().firstValue("Content-Type"));
+    }
+
+    @Test
+    void get_ShouldNotFollowRedirectToInsecureScheme() throws IOException, InterruptedException {
+        HttpResponse<String> redirect = response(302, Map.of("Location", List.of("http://example.com/login")));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(redirect);
 
-        assertNotNull(cookies);
-        assertEquals(2, cookies.size());
-        assertTrue(cookies.contains("SESSIONID=abc123"));
-        assertTrue(cookies.contains("USERID=john_doe"));
+        HttpResponse<String> response = httpClientUtil.get("https://example.com", httpClientUtil.newCookieJar());
+
+        assertEquals(302, response.statusCode());
+        verify(mockHttpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void get_ShouldIsolateCookiesBetweenJars() throws IOException, InterruptedException {
+        HttpResponse<String> firstLogin = response(200, Map.of("Set-Cookie", List.of("JSESSIONID=first; Path=/")));
+        HttpResponse<String> secondLogin = response(200, Map.of("Set-Cookie", List.of("JSESSIONID=second; Path=/")));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(firstLogin)
+                .thenReturn(secondLogin)
+                .thenReturn(mockHttpResponse);
+        CookieJar first = httpClientUtil.newCookieJar();
+        CookieJar second = httpClientUtil.newCookieJar();
+
+        httpClientUtil.get("https://example.com/login", first);
+        httpClientUtil.get("https://example.com/login", second);
+        httpClientUtil.get("https://example.com/home", first);
+
+        verify(mockHttpClient, times(3)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        assertEquals("JSESSIONID=first", requestCaptor.getAllValues().get(2).headers().firstValue("Cookie").orElse(""));
+        assertEquals(List.of("JSESSIONID=first"), first.getCookies());
+        assertEquals(List.of("JSESSIONID=second"), second.getCookies());
     }
 
     @Test
@@ -222,7 +326,9 @@ class HttpClientUtilTest {
 
         assertNotNull(httpClientUtil);
         assertNotNull(httpClientUtil.getHttpClient());
-        assertNotNull(httpClientUtil.getCookieManager());
+        assertNotNull(httpClientUtil.newCookieJar());
+        assertNotSame(httpClientUtil.newCookieJar(), httpClientUtil.newCookieJar());
+        assertEquals(HttpClient.Redirect.NEVER, httpClientUtil.getHttpClient().followRedirects());
     }
 
     @Test
@@ -255,5 +361,275 @@ class HttpClientUtilTest {
         assertEquals(body, capturedRequest.bodyPublisher().map(publisher -> body).orElse(""));
     }
 
+    @Test
+    void getAsync_ShouldFollowRedirectsWithoutBlocking() throws IOException, InterruptedException {
+        HttpResponse<String> redirect = response(302, Map.of(
+                "Location", List.of("/home"),
+                "Set-Cookie", List.of("JSESSIONID=abc123; Path=/")));
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(redirect))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        when(mockHttpResponse.statusCode()).thenReturn(200);
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+
+        HttpResponse<String> response = httpClientUtil.getAsync("https://example.com/login", cookieJar).join();
+
+        assertEquals(200, response.statusCode());
+        verify(mockHttpClient, times(2)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        verify(mockHttpClient, never()).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        HttpRequest redirected = requestCaptor.getAllValues().get(1);
+        assertEquals(URI.create("https://example.com/home"), redirected.uri());
+        assertEquals("JSESSIONID=abc123", redirected.headers().firstValue("Cookie").orElse(""));
+    }
+
+    @Test
+    void postAsync_ShouldRepeatPostWithoutStaleCookies_WhenRedirectIsPermanent() {
+        MultiValueMap<String, String> formData = new org.springframework.util.LinkedMultiValueMap<>();
+        formData.add("username", "john");
+        HttpResponse<String> redirect = response(308, Map.of("Location", List.of("https://other.example.com/login")));
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(redirect))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        cookieJar.add(URI.create("https://example.com/"), "JSESSIONID=abc123");
+
+        httpClientUtil.postAsync("https://example.com/login", formData, cookieJar).join();
+
+        verify(mockHttpClient, times(2)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest repeated = requestCaptor.getAllValues().get(1);
+        assertEquals(URI.create("https://other.example.com/login"), repeated.uri());
+        assertEquals("POST", repeated.method());
+        assertTrue(repeated.bodyPublisher().isPresent());
+        assertTrue(repeated.headers().firstValue("Cookie").isEmpty());
+    }
+
+    @Test
+    void postAsync_ShouldSendFormWithJarCookies() {
+        MultiValueMap<String, String> formData = new org.springframework.util.LinkedMultiValueMap<>();
+        formData.add("username", "john");
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        CookieJar cookieJar = httpClientUtil.newCookieJar();
+        cookieJar.add(URI.create("https://example.com/"), "JSESSIONID=abc123");
+
+        httpClientUtil.postAsync("https://example.com/login", formData, cookieJar).join();
+
+        verify(mockHttpClient, times(1)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest capturedRequest = requestCaptor.getValue();
+        assertEquals("POST", capturedRequest.method());
+        assertEquals("application/x-www-form-urlencoded", capturedRequest.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("JSESSIONID=abc123", capturedRequest.headers().firstValue("Cookie").orElse(""));
+    }
+
+    @Test
+    void postAsync_WithTimeout_ShouldBoundTheRequest() {
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+
+        httpClientUtil.postAsync("https://example.com/login", new LinkedMultiValueMap<>(), httpClientUtil.newCookieJar(), Duration.ofSeconds(3)).join();
+
+        verify(mockHttpClient).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        Duration timeout = requestCaptor.getValue().timeout().orElseThrow();
+        assertTrue(timeout.compareTo(Duration.ofSeconds(3)) <= 0 && timeout.compareTo(Duration.ofSeconds(2)) > 0, "timeout: " + timeout);
+    }
+
+    @Test
+    void getAsync_WithExhaustedTimeout_ShouldFailWithoutSending() {
+        CompletableFuture<HttpResponse<String>> response = httpClientUtil.getAsync("https://example.com/login", httpClientUtil.newCookieJar(), Duration.ZERO);
+
+        CompletionException exception = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+        verify(mockHttpClient, never()).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void getWithCookiesAsync_ShouldSendCookieHeader() {
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+
+        httpClientUtil.getWithCookiesAsync("https://example.com", "SESSIONID=abc123").join();
+        httpClientUtil.postWithCookiesAsync("https://example.com", "{}", "SESSIONID=abc123", "application/json").join();
+
+        verify(mockHttpClient, times(2)).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        HttpRequest get = requestCaptor.getAllValues().get(0);
+        HttpRequest post = requestCaptor.getAllValues().get(1);
+        assertEquals("GET", get.method());
+        assertEquals("application/json", get.headers().firstValue("Accept").orElse(""));
+        assertEquals("SESSIONID=abc123", get.headers().firstValue("Cookie").orElse(""));
+        assertEquals("POST", post.method());
+        assertEquals("SESSIONID=abc123", post.headers().firstValue("Cookie").orElse(""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getWithCookiesAsync_ShouldDecodeThroughGivenBodyHandler() {
+        HttpResponse.BodyHandler<String> bodyHandler = mock(HttpResponse.BodyHandler.class);
+        HttpResponse.BodySubscriber<String> bodySubscriber = HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        when(bodyHandler.apply(any())).thenReturn(bodySubscriber);
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse));
+        ArgumentCaptor<HttpResponse.BodyHandler<String>> handlerCaptor = ArgumentCaptor.forClass(HttpResponse.BodyHandler.class);
+        HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.headers()).thenReturn(headers(Map.of()));
+
+        httpClientUtil.getWithCookiesAsync("https://example.com", "SESSIONID=abc123", bodyHandler).join();
+
+        verify(mockHttpClient).sendAsync(requestCaptor.capture(), handlerCaptor.capture());
+        assertEquals("application/json", requestCaptor.getValue().headers().firstValue("Accept").orElse(""));
+        assertEquals("SESSIONID=abc123", requestCaptor.getValue().headers().firstValue("Cookie").orElse(""));
+        assertSame(bodySubscriber.getBody(), handlerCaptor.getValue().apply(responseInfo).getBody());
+    }
+
+    @Test
+    void requests_ShouldNegotiateCompression() throws IOException, InterruptedException {
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(mockHttpResponse);
+
+        httpClientUtil.get("https://example.com");
+        httpClientUtil.post("https://example.com", new LinkedMultiValueMap<>());
+        httpClientUtil.getWithCookies("https://example.com", "SESSIONID=abc123");
+        httpClientUtil.postWithCookies("https://example.com", "{}", "SESSIONID=abc123", "application/json");
+
+        verify(mockHttpClient, times(4)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        for (HttpRequest request : requestCaptor.getAllValues()) {
+            assertEquals("gzip, deflate", request.headers().firstValue("Accept-Encoding").orElse(""));
+        }
+    }
+
+    @Test
+    void get_ShouldDecompressGzipResponseAndRecordTransfer() throws IOException, InterruptedException {
+        String page = "<html>" + "<input name=\"_csrf\" value=\"token\">".repeat(200) + "</html>";
+        byte[] compressed = gzip(page.getBytes(StandardCharsets.UTF_8));
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/alumnoWebSum/login", exchange -> {
+            boolean acceptsGzip = exchange.getRequestHeaders().getFirst("Accept-Encoding").contains("gzip");
+            exchange.getResponseHeaders().add("Content-Encoding", acceptsGzip ? "gzip" : "identity");
+            byte[] body = acceptsGzip ? compressed : page.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            HttpClientUtil client = new HttpClientUtil(false);
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            client.bindTo(registry);
+
+            HttpResponse<String> response = client.get("http://127.0.0.1:" + server.getAddress().getPort() + "/alumnoWebSum/login");
+
+            assertEquals(page, response.body());
+            assertEquals(compressed.length, registry.get("upstream.response.wire.bytes")
+                    .tags("endpoint", "/alumnoWebSum/login", "encoding", "gzip").summary().totalAmount());
+            assertEquals(page.length(), registry.get("upstream.response.body.bytes")
+                    .tags("endpoint", "/alumnoWebSum/login", "encoding", "gzip").summary().totalAmount());
+            assertEquals(1, registry.get("upstream.response.decompression")
+                    .tags("endpoint", "/alumnoWebSum/login", "encoding", "gzip").timer().count());
+        } finally {
+            server.stop(0);
+        }
+    }
 
+    @Test
+    void getWithCookiesAsync_ShouldCompleteExceptionally_WhenNetworkFails() {
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Network error")));
+
+        CompletableFuture<HttpResponse<String>> response = httpClientUtil.getWithCookiesAsync("https://example.com", "SESSIONID=abc123");
+
+        CompletionException exception = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void constructor_WithVirtualThreadsBeforeJava21_ShouldFailFast() {
+        assertThrows(UnsupportedOperationException.class, () -> new HttpClientUtil(true));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void constructor_WithVirtualThreads_ShouldRunClientTasksOnVirtualThreads() throws Exception {
+        HttpClientUtil virtualThreadClient = new HttpClientUtil(true);
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+
+        virtualThreadClient.getHttpClient().executor().orElseThrow().execute(() -> {
+            try {
+                virtual.complete((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            } catch (ReflectiveOperationException e) {
+                virtual.completeExceptionally(e);
+            }
+        });
+
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void constructor_WithoutVirtualThreads_ShouldUseDefaultExecutor() {
+        assertTrue(new HttpClientUtil(false).getHttpClient().executor().isEmpty());
+    }
+
+    @Test
+    void constructor_ShouldApplyConnectionSettings() {
+        HttpClientUtil configured = new HttpClientUtil(false, HttpClient.Version.HTTP_1_1, 2500, 4, 8, 16, 1000);
+
+        assertEquals(HttpClient.Version.HTTP_1_1, configured.getHttpClient().version());
+        assertEquals(Duration.ofMillis(2500), configured.getHttpClient().connectTimeout().orElseThrow());
+        assertTrue(configured.getHttpClient().executor().isPresent());
+        configured.destroy();
+    }
+
+    @Test
+    void warmUp_ShouldOpenConnectionsWithHeadRequests() throws IOException {
+        List<String> methods = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/alumnoWebSum/login", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        ExecutorService serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        HttpClientUtil configured = new HttpClientUtil(false, HttpClient.Version.HTTP_1_1, 2500, 2, 2, 16, 1000);
+        try {
+            long opened = configured.warmUp("http://127.0.0.1:" + server.getAddress().getPort() + "/alumnoWebSum/login", 3).join();
+
+            assertEquals(3, opened);
+            assertEquals(List.of("HEAD", "HEAD", "HEAD"), methods);
+        } finally {
+            configured.destroy();
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void warmUp_ShouldCountFailedProbes() {
+        when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockHttpResponse))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection refused")));
+
+        assertEquals(1, httpClientUtil.warmUp("https://example.com/login", 2).join());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpResponse<String> response(int statusCode, Map<String, List<String>> headers) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        when(response.headers()).thenReturn(headers(headers));
+        return response;
+    }
+
+    private static HttpHeaders headers(Map<String, List<String>> headers) {
+        return HttpHeaders.of(headers, (name, value) -> true);
+    }
 }
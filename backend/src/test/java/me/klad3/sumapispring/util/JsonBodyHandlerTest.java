@@ -0,0 +1,71 @@
+package me.klad3.sumapispring.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.klad3.sumapispring.dto.MatriculaResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JsonBodyHandlerTest {
+
+    private final JsonBodyHandler<MatriculaResponse> bodyHandler =
+            new JsonBodyHandler<>(new ObjectMapper().readerFor(MatriculaResponse.class));
+
+    @Test
+    void apply_ShouldDecodeBodyAcrossBuffers() {
+        String json = "{ \"data\": { \"matricula\": [ { \"desAsignatura\": \"Programación\", \"codSeccion\": \"01\" } ] } }";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        int split = json.indexOf("Programación") + 5;
+
+        Supplier<MatriculaResponse> body = receive(200,
+                ByteBuffer.wrap(bytes, 0, split), ByteBuffer.wrap(bytes, split, bytes.length - split));
+
+        MatriculaResponse.Matricula matricula = body.get().getData().getMatricula().get(0);
+        assertEquals("Programación", matricula.getDesAsignatura());
+        assertEquals("01", matricula.getCodSeccion());
+    }
+
+    @Test
+    void apply_ShouldIgnoreUnknownProperties() {
+        Supplier<MatriculaResponse> body = receive(200, utf8("{ \"status\": \"ok\", \"data\": { \"matricula\": [] } }"));
+
+        assertTrue(body.get().getData().getMatricula().isEmpty());
+    }
+
+    @Test
+    void apply_ShouldDiscardBody_WhenStatusIsNotOk() {
+        Supplier<MatriculaResponse> body = receive(500, utf8("Internal Server Error"));
+
+        assertNull(body.get());
+    }
+
+    @Test
+    void apply_ShouldThrowUncheckedIOException_WhenJsonIsInvalid() {
+        Supplier<MatriculaResponse> body = receive(200, utf8("{ invalid json }"));
+
+        assertThrows(UncheckedIOException.class, body::get);
+    }
+
+    private Supplier<MatriculaResponse> receive(int statusCode, ByteBuffer... buffers) {
+        HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.statusCode()).thenReturn(statusCode);
+        HttpResponse.BodySubscriber<Supplier<MatriculaResponse>> subscriber = bodyHandler.apply(responseInfo);
+        subscriber.onSubscribe(mock(Flow.Subscription.class));
+        subscriber.onNext(List.of(buffers));
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private static ByteBuffer utf8(String body) {
+        return ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
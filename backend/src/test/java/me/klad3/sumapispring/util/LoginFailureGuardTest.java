@@ -0,0 +1,113 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.exception.AuthenticationException;
+import me.klad3.sumapispring.exception.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LoginFailureGuardTest {
+
+    private static final String CLIENT = "api-key-a";
+
+    private final Clock clock = mock(Clock.class);
+
+    private SimpleMeterRegistry registry;
+
+    private long now = 1_700_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenAnswer(invocation -> now);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void check_ShouldAnswerRepeatedWrongPasswordLocally() {
+        LoginFailureGuard guard = guard(true);
+        guard.recordFailure(CLIENT, "john_doe", "wrongPassword");
+
+        assertThrows(AuthenticationException.class, () -> guard.check(CLIENT, "john_doe", "wrongPassword"));
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "securePassword"));
+        assertDoesNotThrow(() -> guard.check(CLIENT, "jane_doe", "wrongPassword"));
+        assertEquals(1.0, registry.get("upstream.login.guard.requests").tag("outcome", "cached").counter().count());
+    }
+
+    @Test
+    void check_ShouldBackOffProgressivelyAfterFreeAttempts() {
+        LoginFailureGuard guard = guard(true);
+        for (int i = 0; i < 3; i++) {
+            guard.recordFailure(CLIENT, "john_doe", "wrongPassword" + i);
+        }
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "anotherPassword"));
+
+        guard.recordFailure(CLIENT, "john_doe", "wrongPassword3");
+        RateLimitExceededException first = assertThrows(RateLimitExceededException.class, () -> guard.check(CLIENT, "john_doe", "anotherPassword"));
+        assertEquals(1, first.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("upstream.login.guard.backoff").gauge().value());
+
+        now += 1000;
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "anotherPassword"));
+        guard.recordFailure(CLIENT, "john_doe", "wrongPassword4");
+        guard.recordFailure(CLIENT, "john_doe", "wrongPassword5");
+        RateLimitExceededException third = assertThrows(RateLimitExceededException.class, () -> guard.check(CLIENT, "john_doe", "anotherPassword"));
+        assertEquals(4, third.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> guard.check(CLIENT, "jane_doe", "anyPassword"));
+    }
+
+    @Test
+    void check_ShouldBackOffPerApiClient() {
+        LoginFailureGuard guard = guard(true);
+        for (int i = 0; i < 10; i++) {
+            guard.recordFailure("attacker-key", "john_doe", "wrongPassword" + i);
+        }
+
+        assertThrows(RateLimitExceededException.class, () -> guard.check("attacker-key", "john_doe", "anotherPassword"));
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "securePassword"));
+    }
+
+    @Test
+    void check_ShouldCapBackoff() {
+        LoginFailureGuard guard = guard(true);
+        for (int i = 0; i < 40; i++) {
+            guard.recordFailure(CLIENT, "john_doe", "wrongPassword" + i);
+        }
+
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class, () -> guard.check(CLIENT, "john_doe", "anotherPassword"));
+        assertEquals(300, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void recordSuccess_ShouldResetBackoff() {
+        LoginFailureGuard guard = guard(true);
+        for (int i = 0; i < 5; i++) {
+            guard.recordFailure(CLIENT, "john_doe", "wrongPassword" + i);
+        }
+
+        guard.recordSuccess(CLIENT, "john_doe");
+
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "securePassword"));
+        assertEquals(0.0, registry.get("upstream.login.guard.backoff").gauge().value());
+    }
+
+    @Test
+    void check_WhenDisabled_ShouldNeverReject() {
+        LoginFailureGuard guard = guard(false);
+        for (int i = 0; i < 10; i++) {
+            guard.recordFailure(CLIENT, "john_doe", "wrongPassword");
+        }
+
+        assertDoesNotThrow(() -> guard.check(CLIENT, "john_doe", "wrongPassword"));
+    }
+
+    private LoginFailureGuard guard(boolean enabled) {
+        LoginFailureGuard guard = new LoginFailureGuard(enabled, 1000, 60, 900, 3, 1000, 300000, clock);
+        guard.bindTo(registry);
+        return guard;
+    }
+}
@@ -0,0 +1,156 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+class LoginPagePoolTest {
+
+    private static final String LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
+
+    @Mock
+    private HttpClientUtil httpClientUtil;
+
+    @Mock
+    private HtmlParserUtil htmlParserUtil;
+
+    @Mock
+    private HttpResponse.BodyHandler<String> csrfTokenBodyHandler;
+
+    private UpstreamResilience upstreamResilience;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        upstreamResilience = new UpstreamResilience(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20),
+                50, 80, 5000, 20, 10, 30, 3, 32, 32, 1);
+        registry = new SimpleMeterRegistry();
+        when(httpClientUtil.newCookieJar()).thenAnswer(invocation -> new CookieJar());
+        when(htmlParserUtil.csrfTokenBodyHandler()).thenReturn(csrfTokenBodyHandler);
+    }
+
+    @Test
+    void refill_ShouldPrefetchWhatWasTakenSinceLastRefillUpToPoolSize() {
+        LoginPagePool loginPagePool = pool(true, 3, 60);
+        loginPageReturns(200, "csrf-token");
+        takeTimes(loginPagePool, 5);
+
+        loginPagePool.refill();
+        loginPagePool.refill();
+
+        assertEquals(3, loginPagePool.available());
+        verify(httpClientUtil, times(3)).getAsync(eq(LOGIN_URL), any(CookieJar.class), same(csrfTokenBodyHandler), any(Duration.class));
+        assertEquals(3.0, registry.get("upstream.login.pool.size").gauge().value());
+    }
+
+    @Test
+    void refill_WithoutRecentLogins_ShouldNotOpenUpstreamSessions() {
+        LoginPagePool loginPagePool = pool(true, 8, 60);
+        loginPageReturns(200, "csrf-token");
+
+        loginPagePool.refill();
+        takeTimes(loginPagePool, 1);
+        loginPagePool.refill();
+        loginPagePool.refill();
+
+        assertEquals(1, loginPagePool.available());
+        verify(httpClientUtil, times(1)).getAsync(eq(LOGIN_URL), any(CookieJar.class), same(csrfTokenBodyHandler), any(Duration.class));
+    }
+
+    @Test
+    void take_ShouldReturnPreparedLoginWithOwnCookieContext() {
+        LoginPagePool loginPagePool = pool(true, 2, 60);
+        loginPageReturns(200, "csrf-token");
+        takeTimes(loginPagePool, 2);
+        loginPagePool.refill();
+
+        LoginPagePool.PreparedLogin first = loginPagePool.take().orElseThrow();
+        LoginPagePool.PreparedLogin second = loginPagePool.take().orElseThrow();
+
+        assertEquals("csrf-token", first.csrfToken());
+        assertNotSame(first.cookieJar(), second.cookieJar());
+        assertEquals(Optional.empty(), loginPagePool.take());
+        assertEquals(2.0, registry.get("upstream.login.pool.requests").tag("outcome", "hit").counter().count());
+        assertEquals(3.0, registry.get("upstream.login.pool.requests").tag("outcome", "miss").counter().count());
+    }
+
+    @Test
+    void take_ShouldDiscardExpiredEntries() {
+        LoginPagePool loginPagePool = pool(true, 2, 0);
+        loginPageReturns(200, "csrf-token");
+        loginPagePool.prefetch().join();
+
+        assertEquals(Optional.empty(), loginPagePool.take());
+        assertEquals(1.0, registry.get("upstream.login.pool.requests").tag("outcome", "expired").counter().count());
+    }
+
+    @Test
+    void prefetch_ShouldSkipPagesWithoutCsrfToken() {
+        LoginPagePool loginPagePool = pool(true, 2, 60);
+        loginPageReturns(200, null);
+
+        loginPagePool.prefetch().join();
+
+        assertEquals(0, loginPagePool.available());
+    }
+
+    @Test
+    void prefetch_ShouldSwallowUpstreamFailures() {
+        LoginPagePool loginPagePool = pool(true, 2, 60);
+        when(httpClientUtil.getAsync(eq(LOGIN_URL), any(CookieJar.class), same(csrfTokenBodyHandler), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+
+        assertDoesNotThrow(() -> loginPagePool.prefetch().join());
+
+        assertEquals(0, loginPagePool.available());
+        takeTimes(loginPagePool, 2);
+        loginPagePool.refill();
+        verify(httpClientUtil, times(3)).getAsync(eq(LOGIN_URL), any(CookieJar.class), same(csrfTokenBodyHandler), any(Duration.class));
+    }
+
+    @Test
+    void take_WhenDisabled_ShouldNeverPrefetch() {
+        LoginPagePool loginPagePool = pool(false, 2, 60);
+
+        loginPagePool.refill();
+
+        assertEquals(Optional.empty(), loginPagePool.take());
+        verifyNoInteractions(httpClientUtil, htmlParserUtil);
+    }
+
+    private static void takeTimes(LoginPagePool loginPagePool, int times) {
+        for (int i = 0; i < times; i++) {
+            loginPagePool.take();
+        }
+    }
+
+    private LoginPagePool pool(boolean enabled, int size, long ttlSeconds) {
+        LoginPagePool loginPagePool = new LoginPagePool(httpClientUtil, htmlParserUtil, upstreamResilience, enabled, size, ttlSeconds, 8000);
+        loginPagePool.bindTo(registry);
+        return loginPagePool;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loginPageReturns(int statusCode, String csrfToken) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        when(response.body()).thenReturn(csrfToken);
+        when(httpClientUtil.getAsync(eq(LOGIN_URL), any(CookieJar.class), same(csrfTokenBodyHandler), any(Duration.class))).thenReturn(CompletableFuture.completedFuture(response));
+    }
+}
@@ -0,0 +1,34 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutcomeCountersTest {
+
+    @Test
+    void register_ShouldCreateOneCounterPerOutcomeUpFront() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        OutcomeCounters counters = OutcomeCounters.register(registry, "test.requests", "Solicitudes de prueba",
+                Tags.of("endpoint", "courses"), "hit", "miss");
+        counters.increment("hit");
+        counters.increment("hit");
+
+        assertEquals(2.0, registry.get("test.requests").tags("endpoint", "courses", "outcome", "hit").counter().count());
+        assertEquals(0.0, registry.get("test.requests").tags("endpoint", "courses", "outcome", "miss").counter().count());
+    }
+
+    @Test
+    void increment_WhenNotRegistered_ShouldIgnoreOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OutcomeCounters counters = OutcomeCounters.register(registry, "test.requests", "Solicitudes de prueba", "hit");
+
+        assertDoesNotThrow(() -> OutcomeCounters.NONE.increment("hit"));
+        counters.increment("unknown");
+
+        assertEquals(1, registry.find("test.requests").counters().size());
+    }
+}
@@ -0,0 +1,240 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
+import me.klad3.sumapispring.exception.ExternalApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamCoalescerTest {
+
+    private static final UpstreamTimeouts TIMEOUTS = new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20);
+
+    private UpstreamCoalescer upstreamCoalescer;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        upstreamCoalescer = new UpstreamCoalescer(TIMEOUTS, true, 2, 0);
+        registry = new SimpleMeterRegistry();
+        upstreamCoalescer.bindTo(registry);
+    }
+
+    @Test
+    void coalesce_ShouldShareInFlightCallForSameKey() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertEquals(1.0, registry.get("upstream.coalescing.in.flight").gauge().value());
+        upstream.complete("courses");
+
+        assertEquals("courses", first.join());
+        assertEquals("courses", second.join());
+        assertEquals(1, calls.get());
+        assertEquals(0, upstreamCoalescer.inFlight());
+        assertEquals(1.0, registry.get("upstream.coalescing.requests").tags("endpoint", "courses", "outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void coalesce_ShouldNotShareCallsForDifferentKeysOrEndpoints() {
+        AtomicInteger calls = new AtomicInteger();
+
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> pending(calls));
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-b", deadline(), d -> pending(calls));
+
+        assertEquals(2, calls.get());
+        assertEquals(2, upstreamCoalescer.inFlight());
+    }
+
+    @Test
+    void coalesce_ShouldStartNewCallOnceThePreviousCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("first");
+        }).join();
+        String second = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        }).join();
+
+        assertEquals("second", second);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalesce_ShouldShareFailuresAndForgetTheKey() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> upstream);
+        CompletableFuture<String> second = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> upstream);
+
+        upstream.completeExceptionally(new ExternalApiException("Failed to fetch courses from external API"));
+
+        assertInstanceOf(ExternalApiException.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(ExternalApiException.class, assertThrows(CompletionException.class, second::join).getCause());
+        assertEquals(0, upstreamCoalescer.inFlight());
+    }
+
+    @Test
+    void coalesce_ShouldBypassSharing_WhenInFlightTableIsFull() {
+        AtomicInteger calls = new AtomicInteger();
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> pending(calls));
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-b", deadline(), d -> pending(calls));
+
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-c", deadline(), d -> pending(calls));
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-c", deadline(), d -> pending(calls));
+
+        assertEquals(4, calls.get());
+        assertEquals(2, upstreamCoalescer.inFlight());
+        assertEquals(2.0, registry.get("upstream.coalescing.requests").tags("endpoint", "courses", "outcome", "bypassed").counter().count());
+    }
+
+    @Test
+    void coalesce_ShouldHonourFollowerDeadline() {
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> new CompletableFuture<>());
+
+        CompletableFuture<String> follower = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a",
+                Deadline.after(Duration.ofMillis(50)), d -> new CompletableFuture<>());
+
+        CompletionException exception = assertThrows(CompletionException.class, follower::join);
+        assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        assertEquals(1, upstreamCoalescer.inFlight());
+    }
+
+    @Test
+    void coalesce_ShouldHonourLeaderDeadlineWhileTheSharedCallKeepsRunning() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> leader = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a",
+                Deadline.after(Duration.ofMillis(50)), d -> upstream);
+        CompletableFuture<String> follower = upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(),
+                d -> new CompletableFuture<>());
+
+        CompletionException exception = assertThrows(CompletionException.class, leader::join);
+        assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        upstream.complete("courses");
+
+        assertEquals("courses", follower.join());
+    }
+
+    @Test
+    void coalesce_ShouldRunTheSharedCallUnderAtLeastTheDefaultBudget() {
+        AtomicReference<Deadline> shared = new AtomicReference<>();
+
+        upstreamCoalescer.coalesce(UpstreamEndpoint.COURSES, "cookies-a", Deadline.after(Duration.ofMillis(500)), d -> {
+            shared.set(d);
+            return new CompletableFuture<String>();
+        });
+
+        assertTrue(shared.get().remaining().compareTo(Duration.ofSeconds(9)) > 0);
+    }
+
+    @Test
+    void coalesce_WhenDisabled_ShouldAlwaysCallUpstream() {
+        UpstreamCoalescer disabled = new UpstreamCoalescer(TIMEOUTS, false, 2, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        disabled.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> pending(calls));
+        disabled.coalesce(UpstreamEndpoint.COURSES, "cookies-a", deadline(), d -> pending(calls));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, disabled.inFlight());
+    }
+
+    @Test
+    void coalesceLogin_ShouldShareLoginForSameCredentialsOnly() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = upstreamCoalescer.coalesceLogin("john_doe", "securePassword", deadline(), d -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> retry = upstreamCoalescer.coalesceLogin("john_doe", "securePassword", deadline(), d -> pending(calls));
+        upstreamCoalescer.coalesceLogin("john_doe", "otherPassword", deadline(), d -> pending(calls));
+        upstream.complete("session");
+
+        assertEquals("session", first.join());
+        assertEquals("session", retry.join());
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("upstream.coalescing.requests").tags("endpoint", "login-submit", "outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void coalesceLogin_ShouldAbsorbRetriesWithinRetentionWindow() {
+        UpstreamCoalescer retaining = new UpstreamCoalescer(TIMEOUTS, true, 2, 60000);
+        retaining.bindTo(registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        retaining.coalesceLogin("john_doe", "securePassword", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("session");
+        }).join();
+        String retry = retaining.coalesceLogin("john_doe", "securePassword", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("new session");
+        }).join();
+
+        assertEquals("session", retry);
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("upstream.coalescing.requests").tags("endpoint", "login-submit", "outcome", "reused").counter().count());
+    }
+
+    @Test
+    void coalesceLogin_ShouldNotRetainFailures() {
+        UpstreamCoalescer retaining = new UpstreamCoalescer(TIMEOUTS, true, 2, 60000);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> failed = retaining.coalesceLogin("john_doe", "securePassword", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new ExternalApiException("Failed to fetch login page"));
+        });
+        assertThrows(CompletionException.class, failed::join);
+        String retry = retaining.coalesceLogin("john_doe", "securePassword", deadline(), d -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("session");
+        }).join();
+
+        assertEquals("session", retry);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalesceLogin_ShouldForgetResultAfterRetentionWindow() throws InterruptedException {
+        UpstreamCoalescer retaining = new UpstreamCoalescer(TIMEOUTS, true, 2, 20);
+
+        retaining.coalesceLogin("john_doe", "securePassword", deadline(), d -> CompletableFuture.completedFuture("session")).join();
+        assertEquals(1, retaining.inFlight());
+
+        for (int i = 0; i < 100 && retaining.inFlight() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, retaining.inFlight());
+    }
+
+    private static CompletableFuture<String> pending(AtomicInteger calls) {
+        calls.incrementAndGet();
+        return new CompletableFuture<>();
+    }
+
+    private static Deadline deadline() {
+        return Deadline.after(Duration.ofSeconds(10));
+    }
+}
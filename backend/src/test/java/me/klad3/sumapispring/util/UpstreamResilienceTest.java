@@ -0,0 +1,202 @@
+package me.klad3.sumapispring.util;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.klad3.sumapispring.exception.DeadlineExceededException;
+import me.klad3.sumapispring.exception.UpstreamUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UpstreamResilienceTest {
+
+    private UpstreamResilience upstreamResilience;
+
+    private Deadline deadline;
+
+    @BeforeEach
+    void setUp() {
+        upstreamResilience = new UpstreamResilience(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20), 50, 100, 5000, 4, 4, 30, 1, 2, 2, 1);
+        deadline = Deadline.after(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void call_ShouldOpenCircuitAfterFailuresAndFailFast() {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> failed = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline,
+                    timeout -> CompletableFuture.failedFuture(new IOException("Connection reset")));
+            assertThrows(CompletionException.class, failed::join);
+        }
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> rejected = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline, timeout -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        });
+
+        CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        UpstreamUnavailableException unavailable = assertInstanceOf(UpstreamUnavailableException.class, exception.getCause());
+        assertEquals(30, unavailable.getRetryAfterSeconds());
+        assertEquals(0, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, upstreamResilience.state(UpstreamEndpoint.COURSES));
+        assertEquals(CircuitBreaker.State.CLOSED, upstreamResilience.state(UpstreamEndpoint.LOGIN_PAGE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void call_ShouldRecordServerErrorsAsFailures() {
+        HttpResponse<String> serverError = mock(HttpResponse.class);
+        when(serverError.statusCode()).thenReturn(503);
+        HttpResponse<String> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+
+        upstreamResilience.call(UpstreamEndpoint.LOGIN_SUBMIT, deadline, timeout -> CompletableFuture.completedFuture(ok)).join();
+        for (int i = 0; i < 3; i++) {
+            assertSame(serverError, upstreamResilience.call(UpstreamEndpoint.LOGIN_SUBMIT, deadline,
+                    timeout -> CompletableFuture.completedFuture(serverError)).join());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, upstreamResilience.state(UpstreamEndpoint.LOGIN_SUBMIT));
+    }
+
+    @Test
+    void call_ShouldIsolateLoginBulkheadFromCourses() {
+        CompletableFuture<String> loginPage = new CompletableFuture<>();
+        CompletableFuture<String> loginSubmit = new CompletableFuture<>();
+        upstreamResilience.call(UpstreamEndpoint.LOGIN_PAGE, deadline, timeout -> loginPage);
+        upstreamResilience.call(UpstreamEndpoint.LOGIN_SUBMIT, deadline, timeout -> loginSubmit);
+
+        CompletableFuture<String> rejectedLogin = upstreamResilience.call(UpstreamEndpoint.SESSION_RESTART, deadline,
+                timeout -> CompletableFuture.completedFuture("restart"));
+        CompletableFuture<String> courses = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline,
+                timeout -> CompletableFuture.completedFuture("courses"));
+
+        CompletionException exception = assertThrows(CompletionException.class, rejectedLogin::join);
+        assertEquals(1, assertInstanceOf(UpstreamUnavailableException.class, exception.getCause()).getRetryAfterSeconds());
+        assertEquals("courses", courses.join());
+
+        loginPage.complete("page");
+        assertEquals("restart", upstreamResilience.call(UpstreamEndpoint.SESSION_RESTART, deadline,
+                timeout -> CompletableFuture.completedFuture("restart")).join());
+    }
+
+    @Test
+    void call_ShouldReleasePermits_WhenSupplierThrows() {
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<String> failed = upstreamResilience.call(UpstreamEndpoint.LOGIN_PAGE, deadline, timeout -> {
+                throw new IllegalArgumentException("Illegal URL");
+            });
+            CompletionException exception = assertThrows(CompletionException.class, failed::join);
+            assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        }
+
+        assertEquals("ok", upstreamResilience.call(UpstreamEndpoint.LOGIN_PAGE, deadline, timeout -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    void call_ShouldPassTheRemainingBudget_WhenShorterThanTheCallTimeout() {
+        AtomicReference<Duration> granted = new AtomicReference<>();
+
+        upstreamResilience.call(UpstreamEndpoint.COURSES, Deadline.after(Duration.ofMillis(3000)), timeout -> {
+            granted.set(timeout);
+            return CompletableFuture.completedFuture("ok");
+        }).join();
+
+        assertTrue(granted.get().compareTo(Duration.ofMillis(3000)) <= 0, "granted: " + granted.get());
+        assertTrue(granted.get().compareTo(Duration.ofMillis(2000)) > 0, "granted: " + granted.get());
+    }
+
+    @Test
+    void call_ShouldCapTheTimeoutAtTheFixedCallTimeout() {
+        AtomicReference<Duration> granted = new AtomicReference<>();
+
+        upstreamResilience.call(UpstreamEndpoint.COURSES, Deadline.after(Duration.ofSeconds(20)), timeout -> {
+            granted.set(timeout);
+            return CompletableFuture.completedFuture("ok");
+        }).join();
+
+        assertEquals(Duration.ofMillis(8000), granted.get());
+    }
+
+    @Test
+    void call_WhenDeadlineExpired_ShouldFailWithoutCallingUpstream() {
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> expired = upstreamResilience.call(UpstreamEndpoint.LOGIN_SUBMIT, Deadline.after(Duration.ZERO), timeout -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        });
+
+        CompletionException exception = assertThrows(CompletionException.class, expired::join);
+        assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void call_ShouldTranslateHttpTimeoutsIntoDeadlineExceeded() {
+        CompletableFuture<String> timedOut = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline,
+                timeout -> CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")));
+
+        CompletionException exception = assertThrows(CompletionException.class, timedOut::join);
+        DeadlineExceededException deadlineExceeded = assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        assertInstanceOf(HttpTimeoutException.class, deadlineExceeded.getCause());
+    }
+
+    @Test
+    void call_ShouldNotCountTimeoutsAsFailures_WhenTheCallerDeadlineWasTheLimit() {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> timedOut = upstreamResilience.call(UpstreamEndpoint.COURSES, Deadline.after(Duration.ofMillis(500)),
+                    timeout -> CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")));
+            CompletionException exception = assertThrows(CompletionException.class, timedOut::join);
+            assertInstanceOf(DeadlineExceededException.class, exception.getCause());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, upstreamResilience.state(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void call_ShouldCountTimeoutsAsFailures_WhenTheCallTimeoutWasTheLimit() {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> timedOut = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline,
+                    timeout -> CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")));
+            assertThrows(CompletionException.class, timedOut::join);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, upstreamResilience.state(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void call_ShouldNotCountLocalQueueRejectionsAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> rejected = upstreamResilience.call(UpstreamEndpoint.COURSES, deadline,
+                    timeout -> CompletableFuture.failedFuture(new UpstreamUnavailableException("Too many queued requests", 1)));
+            CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+            assertInstanceOf(UpstreamUnavailableException.class, exception.getCause());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, upstreamResilience.state(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void bindTo_ShouldExposeBreakerStateAndBulkheadMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        upstreamResilience.bindTo(registry);
+
+        assertEquals(1.0, registry.get("resilience4j.circuitbreaker.state")
+                .tags("name", "courses", "state", "closed").gauge().value());
+        assertEquals(2.0, registry.get("resilience4j.bulkhead.available.concurrent.calls")
+                .tag("name", "login").gauge().value());
+    }
+}
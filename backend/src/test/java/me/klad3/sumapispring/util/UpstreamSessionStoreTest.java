@@ -0,0 +1,243 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UpstreamSessionStoreTest {
+
+    private static final String ENCRYPTION_KEY = "upstream-session-encryption-key-with-32-characters";
+    private static final String PROBE_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/inicio";
+    private static final String LOGIN_URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
+    private static final List<String> COOKIES = List.of("JSESSIONID=abc123", "XSRF-TOKEN=def456");
+
+    @Mock
+    private HttpClientUtil httpClientUtil;
+
+    @Mock
+    private Clock clock;
+
+    private UpstreamResilience upstreamResilience;
+
+    private SimpleMeterRegistry registry;
+
+    private long now = 1_700_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        upstreamResilience = new UpstreamResilience(new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20),
+                50, 80, 5000, 20, 10, 30, 3, 32, 32, 1);
+        registry = new SimpleMeterRegistry();
+        when(clock.millis()).thenAnswer(invocation -> now);
+        when(httpClientUtil.newCookieJar()).thenAnswer(invocation -> new CookieJar());
+        when(httpClientUtil.getFinalUrl(any(HttpResponse.class))).thenAnswer(invocation -> {
+            HttpResponse<?> response = invocation.getArgument(0);
+            return response.uri().toString();
+        });
+    }
+
+    @Test
+    void find_ShouldReuseRecentlyValidatedSessionWithoutUpstreamCall() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+
+        Optional<List<String>> cookies = find(store, "john_doe", "securePassword");
+
+        assertEquals(Optional.of(COOKIES), cookies);
+        verify(httpClientUtil, never()).getAsync(anyString(), any(CookieJar.class), any(), any(Duration.class));
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "hit").counter().count());
+    }
+
+    @Test
+    void find_ShouldRejectDifferentPasswordOrUnknownUser() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "wrongPassword"));
+        assertEquals(Optional.empty(), find(store, "jane_doe", "securePassword"));
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "mismatch").counter().count());
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "miss").counter().count());
+    }
+
+    @Test
+    void find_ShouldValidateSessionWithUpstream_WhenLastValidationIsOld() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        probeReturns(200, PROBE_URL);
+        now += Duration.ofSeconds(61).toMillis();
+
+        assertEquals(Optional.of(COOKIES), find(store, "john_doe", "securePassword"));
+        assertEquals(Optional.of(COOKIES), find(store, "john_doe", "securePassword"));
+
+        verify(httpClientUtil, times(1)).getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class));
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "validated").counter().count());
+    }
+
+    @Test
+    void find_ShouldSendStoredCookiesWhenValidating() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        probeReturns(200, PROBE_URL);
+        now += Duration.ofSeconds(61).toMillis();
+
+        find(store, "john_doe", "securePassword");
+
+        verify(httpClientUtil).getAsync(eq(PROBE_URL), argThat(cookieJar ->
+                        cookieJar.cookieHeader(URI.create(PROBE_URL)).orElse("").contains("JSESSIONID=abc123")),
+                any(), any(Duration.class));
+    }
+
+    @Test
+    void find_ShouldDropSession_WhenUpstreamRedirectsToLogin() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        probeReturns(200, LOGIN_URL);
+        now += Duration.ofSeconds(61).toMillis();
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "securePassword"));
+
+        assertEquals(0, store.size());
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "dead").counter().count());
+    }
+
+    @Test
+    void find_ShouldFallBackToLogin_WhenValidationFails() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        when(httpClientUtil.getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+        now += Duration.ofSeconds(61).toMillis();
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "securePassword"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void find_ShouldExpireSessionsAfterTtl() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        now += Duration.ofSeconds(1800).toMillis();
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "securePassword"));
+        assertEquals(1.0, registry.get("upstream.session.store.requests").tag("outcome", "expired").counter().count());
+        verify(httpClientUtil, never()).getAsync(anyString(), any(CookieJar.class), any(), any(Duration.class));
+    }
+
+    @Test
+    void invalidate_ShouldForgetStoredSession() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+
+        store.invalidate("john_doe");
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "securePassword"));
+    }
+
+    @Test
+    void keepAliveAll_ShouldRefreshDueSessionsAndDropDeadOnes() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", List.of("JSESSIONID=alive"));
+        store.save("jane_doe", "otherPassword", List.of("JSESSIONID=dead"));
+        HttpResponse<Void> alive = probeResponse(200, PROBE_URL);
+        HttpResponse<Void> dead = probeResponse(200, LOGIN_URL);
+        when(httpClientUtil.getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class))).thenAnswer(invocation -> {
+            CookieJar cookieJar = invocation.getArgument(1);
+            boolean isAlive = cookieJar.cookieHeader(URI.create(PROBE_URL)).orElse("").contains("alive");
+            return CompletableFuture.completedFuture(isAlive ? alive : dead);
+        });
+        now += Duration.ofSeconds(61).toMillis();
+
+        store.keepAliveAll().join();
+
+        assertEquals(1, store.size());
+        assertEquals(1.0, registry.get("upstream.session.store.keep.alive").tag("outcome", "refreshed").counter().count());
+        assertEquals(1.0, registry.get("upstream.session.store.keep.alive").tag("outcome", "dead").counter().count());
+        assertEquals(Optional.of(List.of("JSESSIONID=alive")), find(store, "john_doe", "securePassword"));
+        verify(httpClientUtil, times(2)).getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class));
+    }
+
+    @Test
+    void keepAlive_ShouldNotBlockAndShouldSkipWhilePreviousRunIsInFlight() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+        CompletableFuture<HttpResponse<Void>> pending = new CompletableFuture<>();
+        when(httpClientUtil.getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class)))
+                .thenAnswer(invocation -> pending);
+        now += Duration.ofSeconds(61).toMillis();
+
+        store.keepAlive();
+        store.keepAlive();
+        verify(httpClientUtil, times(1)).getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class));
+
+        pending.complete(probeResponse(200, PROBE_URL));
+        now += Duration.ofSeconds(61).toMillis();
+        store.keepAlive();
+        verify(httpClientUtil, times(2)).getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class));
+    }
+
+    @Test
+    void keepAliveAll_ShouldSkipRecentlyValidatedSessions() {
+        UpstreamSessionStore store = store(true);
+        store.save("john_doe", "securePassword", COOKIES);
+
+        store.keepAliveAll().join();
+
+        verify(httpClientUtil, never()).getAsync(anyString(), any(CookieJar.class), any(), any(Duration.class));
+    }
+
+    @Test
+    void find_WhenDisabled_ShouldNeverStoreSessions() {
+        UpstreamSessionStore store = store(false);
+        store.save("john_doe", "securePassword", COOKIES);
+
+        assertEquals(Optional.empty(), find(store, "john_doe", "securePassword"));
+        store.keepAliveAll().join();
+        verifyNoInteractions(httpClientUtil);
+    }
+
+    @Test
+    void constructor_ShouldRejectShortEncryptionKey_WhenEnabled() {
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamSessionStore(httpClientUtil, upstreamResilience, true,
+                "short", 100, 1800, 60, 4, 8000, PROBE_URL, clock));
+    }
+
+    private UpstreamSessionStore store(boolean enabled) {
+        UpstreamSessionStore store = new UpstreamSessionStore(httpClientUtil, upstreamResilience, enabled, ENCRYPTION_KEY,
+                100, 1800, 60, 4, 8000, PROBE_URL, clock);
+        store.bindTo(registry);
+        return store;
+    }
+
+    private Optional<List<String>> find(UpstreamSessionStore store, String username, String password) {
+        return store.find(username, password, Deadline.after(Duration.ofSeconds(10))).join();
+    }
+
+    private void probeReturns(int statusCode, String finalUrl) {
+        HttpResponse<Void> response = probeResponse(statusCode, finalUrl);
+        when(httpClientUtil.getAsync(eq(PROBE_URL), any(CookieJar.class), any(), any(Duration.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(response));
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpResponse<Void> probeResponse(int statusCode, String finalUrl) {
+        HttpResponse<Void> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        when(response.uri()).thenReturn(URI.create(finalUrl));
+        return response;
+    }
+}
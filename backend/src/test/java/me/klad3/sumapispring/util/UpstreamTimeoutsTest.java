@@ -0,0 +1,113 @@
+package me.klad3.sumapispring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamTimeoutsTest {
+
+    @Test
+    void deadline_WithoutHeader_ShouldUseDefaultBudget() {
+        UpstreamTimeouts upstreamTimeouts = fixed();
+
+        Duration remaining = upstreamTimeouts.deadline(null).remaining();
+
+        assertBetween(Duration.ofMillis(9000), Duration.ofMillis(10000), remaining);
+    }
+
+    @Test
+    void deadline_ShouldHonourRequestedBudgetUpToTheMaximum() {
+        UpstreamTimeouts upstreamTimeouts = fixed();
+
+        assertBetween(Duration.ofMillis(2000), Duration.ofMillis(3000), upstreamTimeouts.deadline(" 3000 ").remaining());
+        assertBetween(Duration.ofMillis(24000), Duration.ofMillis(25000), upstreamTimeouts.deadline("600000").remaining());
+    }
+
+    @Test
+    void deadline_WithInvalidHeader_ShouldFallBackToDefaultBudget() {
+        UpstreamTimeouts upstreamTimeouts = fixed();
+
+        assertBetween(Duration.ofMillis(9000), Duration.ofMillis(10000), upstreamTimeouts.deadline("soon").remaining());
+        assertBetween(Duration.ofMillis(9000), Duration.ofMillis(10000), upstreamTimeouts.deadline("-5").remaining());
+    }
+
+    @Test
+    void timeout_ShouldNeverExceedTheRemainingBudget() {
+        UpstreamTimeouts upstreamTimeouts = fixed();
+
+        assertEquals(Duration.ofMillis(8000), upstreamTimeouts.timeout(UpstreamEndpoint.COURSES, Deadline.after(Duration.ofSeconds(20))));
+        assertBetween(Duration.ofMillis(1000), Duration.ofMillis(2000),
+                upstreamTimeouts.timeout(UpstreamEndpoint.COURSES, Deadline.after(Duration.ofMillis(2000))));
+    }
+
+    @Test
+    void callTimeout_WhenAdaptive_ShouldKeepFixedTimeoutUntilEnoughSamples() {
+        UpstreamTimeouts upstreamTimeouts = adaptive();
+        for (int i = 0; i < 4; i++) {
+            upstreamTimeouts.record(UpstreamEndpoint.COURSES, TimeUnit.MILLISECONDS.toNanos(600));
+        }
+
+        assertEquals(Duration.ofMillis(8000), upstreamTimeouts.callTimeout(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void callTimeout_WhenAdaptive_ShouldDeriveTimeoutFromObservedPercentile() {
+        UpstreamTimeouts upstreamTimeouts = adaptive();
+        for (int i = 1; i <= 10; i++) {
+            upstreamTimeouts.record(UpstreamEndpoint.COURSES, TimeUnit.MILLISECONDS.toNanos(i * 100L));
+        }
+
+        assertEquals(Duration.ofMillis(1800), upstreamTimeouts.callTimeout(UpstreamEndpoint.COURSES));
+        assertEquals(Duration.ofMillis(8000), upstreamTimeouts.callTimeout(UpstreamEndpoint.LOGIN_PAGE));
+    }
+
+    @Test
+    void callTimeout_WhenAdaptive_ShouldClampDerivedTimeout() {
+        UpstreamTimeouts upstreamTimeouts = adaptive();
+        for (int i = 0; i < 10; i++) {
+            upstreamTimeouts.record(UpstreamEndpoint.LOGIN_PAGE, TimeUnit.MILLISECONDS.toNanos(50));
+            upstreamTimeouts.record(UpstreamEndpoint.COURSES, TimeUnit.SECONDS.toNanos(30));
+        }
+
+        assertEquals(Duration.ofMillis(1000), upstreamTimeouts.callTimeout(UpstreamEndpoint.LOGIN_PAGE));
+        assertEquals(Duration.ofMillis(8000), upstreamTimeouts.callTimeout(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void callTimeout_WhenAdaptive_ShouldOnlyConsiderTheMostRecentWindow() {
+        UpstreamTimeouts upstreamTimeouts = adaptive();
+        for (int i = 0; i < 10; i++) {
+            upstreamTimeouts.record(UpstreamEndpoint.COURSES, TimeUnit.SECONDS.toNanos(30));
+        }
+        for (int i = 0; i < 10; i++) {
+            upstreamTimeouts.record(UpstreamEndpoint.COURSES, TimeUnit.MILLISECONDS.toNanos(700));
+        }
+
+        assertEquals(Duration.ofMillis(1400), upstreamTimeouts.callTimeout(UpstreamEndpoint.COURSES));
+    }
+
+    @Test
+    void bindTo_ShouldExposeTimeoutPerEndpoint() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        fixed().bindTo(registry);
+
+        assertEquals(8000.0, registry.get("upstream.timeout").tag("endpoint", "courses").gauge().value());
+    }
+
+    private static UpstreamTimeouts fixed() {
+        return new UpstreamTimeouts(10000, 25000, 8000, false, 0.99, 2.0, 1000, 200, 20);
+    }
+
+    private static UpstreamTimeouts adaptive() {
+        return new UpstreamTimeouts(10000, 25000, 8000, true, 0.9, 2.0, 1000, 10, 5);
+    }
+
+    private static void assertBetween(Duration lower, Duration upper, Duration actual) {
+        assertTrue(actual.compareTo(lower) > 0 && actual.compareTo(upper) <= 0, "duration: " + actual);
+    }
+}
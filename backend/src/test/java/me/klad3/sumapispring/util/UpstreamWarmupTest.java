@@ -0,0 +1,48 @@
+package me.klad3.sumapispring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UpstreamWarmupTest {
+
+    private static final String URL = "https://sum.unmsm.edu.pe/alumnoWebSum/login";
+
+    private final HttpClientUtil httpClientUtil = mock(HttpClientUtil.class);
+
+    @Test
+    void run_ShouldOpenConfiguredConnections() {
+        when(httpClientUtil.warmUp(URL, 4)).thenReturn(CompletableFuture.completedFuture(4L));
+
+        new UpstreamWarmup(httpClientUtil, true, URL, 4, 1000).run(null);
+
+        verify(httpClientUtil).warmUp(URL, 4);
+    }
+
+    @Test
+    void run_WhenDisabled_ShouldNotContactUpstream() {
+        new UpstreamWarmup(httpClientUtil, false, URL, 4, 1000).run(null);
+
+        verifyNoInteractions(httpClientUtil);
+    }
+
+    @Test
+    void run_ShouldNotBlockStartupBeyondTimeout() {
+        when(httpClientUtil.warmUp(URL, 2)).thenReturn(new CompletableFuture<>());
+
+        long startedAt = System.nanoTime();
+        assertDoesNotThrow(() -> new UpstreamWarmup(httpClientUtil, true, URL, 2, 50).run(null));
+
+        assertTrue(System.nanoTime() - startedAt < 5_000_000_000L);
+    }
+
+    @Test
+    void run_ShouldNotFailStartup_WhenWarmupFails() {
+        when(httpClientUtil.warmUp(URL, 2)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unreachable")));
+
+        assertDoesNotThrow(() -> new UpstreamWarmup(httpClientUtil, true, URL, 2, 1000).run(null));
+    }
+}